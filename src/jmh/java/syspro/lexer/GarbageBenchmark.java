@@ -0,0 +1,41 @@
+package syspro.lexer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+import syspro.parser.Parser;
+import syspro.tm.lexer.Token;
+import syspro.tm.parser.ParseResult;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Lexing and parsing pasted binary data. Runs of unrecognized code points are one BadToken each,
+// so the time per call should grow linearly with the size.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GarbageBenchmark {
+
+    @Param({"65536", "262144", "1048576"})
+    public int bytes;
+
+    String source;
+
+    @Setup
+    public void setup() {
+        source = LexerInputs.of("garbage", bytes);
+    }
+
+    @Benchmark
+    public List<Token> lex() {
+        return new Lexer().lex(source);
+    }
+
+    @Benchmark
+    public ParseResult parse() {
+        return new Parser().parse(source);
+    }
+}
@@ -0,0 +1,56 @@
+package syspro.lexer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+import syspro.tm.lexer.Token;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Throughput of Lexer.lex and DfaLexer.lex on 1 MB of each input kind. The megabytes counter is reported per second (MB/s),
+// allocation per token is gc.alloc.rate.norm divided by the token count printed at setup.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class LexerBenchmark {
+
+    @Param({"ascii", "unicode", "strings", "indented", "comments", "operators"})
+    public String input;
+
+    @Param({"lexer", "dfa"})
+    public String engine;
+
+    String source;
+    double megabytes;
+    int tokens;
+
+    @Setup
+    public void setup() {
+        source = LexerInputs.of(input, 1 << 20);
+        megabytes = LexerInputs.megabytes(source);
+        tokens = new Lexer().lex(source).size();
+        System.out.printf("%n%s: %.2f MB, %d tokens%n", input, megabytes, tokens);
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public double megabytes;
+        public double tokens;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            megabytes = tokens = 0;
+        }
+    }
+
+    @Benchmark
+    public List<Token> lex(Counters counters) {
+        counters.megabytes += megabytes;
+        counters.tokens += tokens;
+        return (engine.equals("dfa") ? new DfaLexer() : new Lexer()).lex(source);
+    }
+}
@@ -0,0 +1,97 @@
+package syspro.lexer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+// Synthetic sources for the lexer and parser benchmarks, each about the requested size in UTF-8 bytes.
+public final class LexerInputs {
+
+    static final String[] KINDS = {"ascii", "unicode", "strings", "indented", "comments", "operators", "garbage"};
+
+    private LexerInputs() {
+    }
+
+    public static String of(String kind, int bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; sb.length() < bytes; i++) {
+            switch (kind) {
+                case "ascii" -> ascii(sb, i);
+                case "unicode" -> unicode(sb, i);
+                case "strings" -> strings(sb, i);
+                case "indented" -> indented(sb, i);
+                case "comments" -> comments(sb, i);
+                case "operators" -> operators(sb, i);
+                case "garbage" -> garbage(sb, i);
+                default -> throw new IllegalArgumentException("Unknown input kind: " + kind);
+            }
+        }
+        return sb.toString();
+    }
+
+    public static double megabytes(String source) {
+        return source.getBytes(StandardCharsets.UTF_8).length / (1024.0 * 1024.0);
+    }
+
+    private static void ascii(StringBuilder sb, int i) {
+        sb.append("class Node").append(i).append("<T> < Comparable<T>\n");
+        sb.append("    var value: T\n");
+        sb.append("    var next: Node").append(i).append("<T>?\n");
+        sb.append("    def count(limit: Int64): Int64\n");
+        sb.append("        var result = 0i64\n");
+        sb.append("        while result < limit && next != null\n");
+        sb.append("            result = (result + 1) * 2 % 7\n");
+        sb.append("        return result\n");
+    }
+
+    private static void unicode(StringBuilder sb, int i) {
+        sb.append("class Κόμβος").append(i).append("\n");
+        sb.append("    var значение: Int32\n");
+        sb.append("    var 𝚨𐍁𝚩: Rune\n");
+        sb.append("    def вычислить(λ: Int32, 变量: Int32): Int32\n");
+        sb.append("        return значение + λ * 变量 - ä­ö\n");
+    }
+
+    private static void strings(StringBuilder sb, int i) {
+        sb.append("class Text").append(i).append("\n");
+        sb.append("    def value(): String\n");
+        sb.append("        return \"");
+        for (int j = 0; j < 16; j++) sb.append("part ").append(j).append(" \\U+1D6A8\\U+00AD\\U+10341 ");
+        sb.append("\"\n");
+        sb.append("    def letter(): Rune\n");
+        sb.append("        return '\\U+1F600'\n");
+    }
+
+    private static void indented(StringBuilder sb, int i) {
+        sb.append("class Deep").append(i).append("\n");
+        sb.append("    def f(x: Int64): Int64\n");
+        for (int depth = 2; depth < 24; depth++) {
+            sb.append("    ".repeat(depth)).append("if x > ").append(depth).append("\n");
+        }
+        sb.append("    ".repeat(24)).append("return x\n");
+        sb.append("        return 0\n");
+    }
+
+    private static void comments(StringBuilder sb, int i) {
+        sb.append("# Section ").append(i).append(" of a file that is mostly documentation.\n");
+        sb.append("# Every definition below is described in detail, with examples such as f(x) = x + 1.\n");
+        sb.append("class Documented").append(i).append(" # trailing comment\n");
+        sb.append("    # the value, never negative\n");
+        sb.append("    val x = ").append(i).append(" # literal\n");
+    }
+
+    private static void operators(StringBuilder sb, int i) {
+        sb.append("class Ops").append(i).append("\n");
+        sb.append("    def f(a: Int64, b: Int64): Boolean\n");
+        sb.append("        x = (a<<2)+(b>>1)*a%b-~a^b|a&b\n");
+        sb.append("        y = a[b]!=b[a]==(a<=b)>=(a<b)>(a>b)\n");
+        sb.append("        return x==y!=!(a<:b)&&(a>=b)||a.b.c?\n");
+    }
+
+    // Pasted binary data: code points that start no token, with a word now and then.
+    private static void garbage(StringBuilder sb, int i) {
+        String unrecognized = "@$;{}`\\\u0000\u0001\u001b\u007f\u0090\u00a4\u00a7\u00a9\u00b6";
+        Random random = new Random(i);
+        for (int j = 0; j < 256; j++) sb.append(unrecognized.charAt(random.nextInt(unrecognized.length())));
+        sb.append(" x\n");
+    }
+}
@@ -0,0 +1,48 @@
+package syspro.lexer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+import syspro.tm.lexer.Token;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Many threads lexing small snippets, as a service does: Lexer.lex against a reused LexerSession.
+// Run with the gc profiler (the default in the bench profile) to compare the allocation rate per call.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class LexerSessionBenchmark {
+
+    @Param({"256", "4096"})
+    public int bytes;
+
+    @Param({"ascii", "comments"})
+    public String input;
+
+    String source;
+    Lexer lexer;
+    LexerSession session;
+
+    @Setup
+    public void setup() {
+        source = LexerInputs.of(input, bytes);
+        // Each thread has its own lexer, NameTable is not thread-safe.
+        lexer = new Lexer();
+        session = new LexerSession();
+    }
+
+    @Benchmark
+    public List<Token> lex() {
+        return lexer.lex(source);
+    }
+
+    @Benchmark
+    public List<Token> session() {
+        return session.lex(source);
+    }
+}
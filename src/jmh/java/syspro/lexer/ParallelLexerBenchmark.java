@@ -0,0 +1,61 @@
+package syspro.lexer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+import syspro.tm.lexer.Token;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// How ParallelLexer scales with the number of threads on 16 MB of code.
+// Compare with LexerBenchmark on the same input kind for the sequential baseline.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ParallelLexerBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"ascii"})
+    public String input;
+
+    String source;
+    double megabytes;
+    ForkJoinPool pool;
+    ParallelLexer lexer;
+
+    @Setup
+    public void setup() {
+        source = LexerInputs.of(input, 16 << 20);
+        megabytes = LexerInputs.megabytes(source);
+        pool = new ForkJoinPool(threads);
+        lexer = new ParallelLexer(new Lexer(), pool, ParallelLexer.DEFAULT_CHUNK_SIZE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public double megabytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            megabytes = 0;
+        }
+    }
+
+    @Benchmark
+    public List<Token> lex(Counters counters) {
+        counters.megabytes += megabytes;
+        return lexer.lex(source);
+    }
+}
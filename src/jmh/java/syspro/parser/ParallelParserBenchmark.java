@@ -0,0 +1,71 @@
+package syspro.parser;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+import syspro.lexer.LexerInputs;
+import syspro.tm.parser.ParseResult;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// How ParallelParser scales with the number of threads on 4 MB of code, lexing included.
+// The source is one class after another, so it is cut about every chunkSize tokens.
+// Compare threads = 1 with sequential for the cost of the cuts and the merge.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ParallelParserBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"ascii"})
+    public String input;
+
+    String source;
+    double megabytes;
+    ForkJoinPool pool;
+    Parser parser;
+    ParallelParser parallelParser;
+
+    @Setup
+    public void setup() {
+        source = LexerInputs.of(input, 4 << 20);
+        megabytes = LexerInputs.megabytes(source);
+        pool = new ForkJoinPool(threads);
+        parser = new Parser();
+        parallelParser = new ParallelParser(parser, pool, ParallelParser.DEFAULT_CHUNK_SIZE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public double megabytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            megabytes = 0;
+        }
+    }
+
+    @Benchmark
+    public ParseResult parse(Counters counters) {
+        counters.megabytes += megabytes;
+        return parallelParser.parse(source);
+    }
+
+    // Does not depend on threads: run it with -p threads=1.
+    @Benchmark
+    public ParseResult sequential(Counters counters) {
+        counters.megabytes += megabytes;
+        return parser.parse(source);
+    }
+}
@@ -6,7 +6,11 @@ import syspro.languageServer.symbols.FunctionSymbol;
 import syspro.languageServer.symbols.TypeParameterSymbol;
 import syspro.languageServer.symbols.TypeSymbol;
 import syspro.languageServer.symbols.VariableSymbol;
+import syspro.lexer.NameTable;
 import syspro.parser.ast.ASTNode;
+import syspro.parser.ast.ArenaNode;
+import syspro.parser.ast.TypeDefinitionNode;
+import syspro.parser.ast.TypeParameterDefinitionNode;
 import syspro.tm.lexer.Keyword;
 import syspro.tm.parser.*;
 import syspro.tm.symbols.SemanticSymbol;
@@ -24,15 +28,20 @@ public class Environment {
     private final Deque<Scope> scopes;
 
     // A map storing definitions of symbols by their names.
-    private final Map<String, ASTNode> definitions;
+    private final Map<String, SyntaxNode> definitions;
 
     private final Collection<TextSpan> invalidRanges = new ArrayList<>();
     private final Collection<Diagnostic> diagnostics = new ArrayList<>();
 
     public Environment(SyntaxNode tree) {
+        this(tree, new NameTable());
+    }
+
+    // names should be the table the tree was parsed with, so identifier names are already interned.
+    public Environment(SyntaxNode tree, NameTable names) {
         this.scopes = new ArrayDeque<>();
         this.definitions = new HashMap<>();
-        push(new Scope(null, "GlobalScope", null));
+        push(new Scope(null, "GlobalScope", null, names));
         initBuildInTypes();
         initDefinitions(tree.slot(0));
     }
@@ -41,16 +50,17 @@ public class Environment {
     // and does not perform a full initialization of all symbols or scopes.
     private void initDefinitions(SyntaxNode tree) {
         for (int i = 0; i < tree.slotCount(); i++) {
-            ASTNode node = (ASTNode) tree.slot(i);
-            String name = node.slot(1).token().toString();
+            TypeDefinitionNode node = (TypeDefinitionNode) tree.slot(i);
+            String name = node.name().token().toString();
             if (definitions.containsKey(name)) addInvalidRange(node.span(), new DefinitionError("Type already exists."));
             TypeSymbol symbol = new TypeSymbol(name, node);
 
-            ASTNode params = (ASTNode) node.slot(3);
+            ArenaNode params = node.typeParameters();
             List<TypeLikeSymbol> symbolArgs = new ArrayList<>();
             if (params != null)
                 for (int j = 0; j < params.slotCount(); j += 2) {
-                    symbolArgs.add(new TypeParameterSymbol(params.slot(j).slot(0).token().toString(), symbol, params.slot(j)));
+                    TypeParameterDefinitionNode param = (TypeParameterDefinitionNode) params.slot(j);
+                    symbolArgs.add(new TypeParameterSymbol(param.name().token().toString(), symbol, param));
                 }
             symbol.typeArguments = symbolArgs;
             node.updateSymbol(symbol);
@@ -96,7 +106,7 @@ public class Environment {
         return !Objects.isNull(ownerScope) ? ownerScope.getSymbol() : null;
     }
 
-    public void define(String name, ASTNode node) {
+    public void define(String name, SyntaxNode node) {
         definitions.put(name, node);
     }
 
@@ -112,7 +122,7 @@ public class Environment {
         return get().hasClashingSignature(existingFunc, actualParams);
     }
 
-    public void declare(String name, SemanticSymbol semanticSymbol, ASTNode node) {
+    public void declare(String name, SemanticSymbol semanticSymbol, SyntaxNode node) {
         switch (semanticSymbol) {
             case TypeSymbol symbol -> get().declareSymbol(name, symbol);
             case VariableSymbol symbol -> get().declareSymbol(name, symbol);
@@ -9,9 +9,21 @@ import syspro.languageServer.symbols.TypeParameterSymbol;
 import syspro.languageServer.symbols.TypeSymbol;
 import syspro.languageServer.symbols.VariableSymbol;
 import syspro.parser.Parser;
-import syspro.parser.ast.ASTNode;
+import syspro.parser.SysproParseResult;
+import syspro.parser.ast.ArenaNode;
+import syspro.parser.ast.ExpressionStatementNode;
+import syspro.parser.ast.ForStatementNode;
+import syspro.parser.ast.FunctionDefinitionNode;
+import syspro.parser.ast.GenericNameExpressionNode;
+import syspro.parser.ast.IdentifierNameExpressionNode;
+import syspro.parser.ast.IfStatementNode;
+import syspro.parser.ast.ParameterDefinitionNode;
+import syspro.parser.ast.TypeBoundNode;
+import syspro.parser.ast.TypeDefinitionNode;
+import syspro.parser.ast.TypeParameterDefinitionNode;
+import syspro.parser.ast.VariableDefinitionNode;
+import syspro.parser.ast.WhileStatementNode;
 import syspro.tm.parser.ErrorCode;
-import syspro.tm.parser.ParseResult;
 import syspro.tm.parser.SyntaxNode;
 import syspro.tm.symbols.SemanticModel;
 import syspro.tm.symbols.SemanticSymbol;
@@ -27,42 +39,39 @@ import static syspro.tm.parser.SyntaxKind.*;
 
 public class LanguageServer implements syspro.tm.symbols.LanguageServer {
 
-    private void analyze(ASTNode tree, Environment env) {
+    private void analyze(ArenaNode tree, Environment env) {
         if (isNull(tree)) return;
         for (int i = 0; i < tree.slotCount(); i++) {
-            visit((ASTNode) tree.slot(i), env);
+            visit(tree.slot(i), env);
         }
     }
 
-    private void visit(ASTNode node, Environment env) {
+    private void visit(ArenaNode node, Environment env) {
         if (isNull(node)) return;
-        switch (node.kind()) {
-            case TYPE_DEFINITION -> analyzeTypeDefinition(node, env);
-            case VARIABLE_DEFINITION -> analyzeVariableDefinition(node, env);
-            case FUNCTION_DEFINITION -> analyzeFunctionDefinition(node, env);
-            case PARAMETER_DEFINITION -> analyzeParameterDefinition(node, env);
-            case TYPE_PARAMETER_DEFINITION -> analyzeTypeParameterDefinition(node, env);
-            case EXPRESSION_STATEMENT -> analyzeExpressionStatement(node, env);
-            case IF_STATEMENT -> analyzeIfStatement(node, env);
-            case FOR_STATEMENT -> analyzeForStatement(node, env);
-            case WHILE_STATEMENT -> analyzeWhileStatement(node, env);
-            case SUPER_EXPRESSION -> analyzeSuperExpression(node, env);
-            case THIS_EXPRESSION -> analyzeThisExpression(node, env);
-            case IDENTIFIER_NAME_EXPRESSION -> analyzeIdentifierNameExpression(node, env);
+        switch (node) {
+            case TypeDefinitionNode definition -> analyzeTypeDefinition(definition, env);
+            case VariableDefinitionNode definition -> analyzeVariableDefinition(definition, env);
+            case FunctionDefinitionNode definition -> analyzeFunctionDefinition(definition, env);
+            case ParameterDefinitionNode definition -> analyzeParameterDefinition(definition, env);
+            case TypeParameterDefinitionNode definition -> analyzeTypeParameterDefinition(definition, env);
+            case ExpressionStatementNode statement -> analyzeExpressionStatement(statement, env);
+            case IfStatementNode statement -> analyzeIfStatement(statement, env);
+            case ForStatementNode statement -> analyzeForStatement(statement, env);
+            case WhileStatementNode statement -> analyzeWhileStatement(statement, env);
+            case IdentifierNameExpressionNode expression -> analyzeIdentifierNameExpression(expression, env);
+            case ArenaNode expression when expression.kind() == SUPER_EXPRESSION -> analyzeSuperExpression(expression, env);
+            case ArenaNode expression when expression.kind() == THIS_EXPRESSION -> analyzeThisExpression(expression, env);
             default -> analyze(node, env);
         }
     }
 
 
-    // FOR_STATEMENT - forNode, primary, in, expr, indent, statements, dedent
-    private void analyzeForStatement(ASTNode node, Environment env) {
-        ASTNode primary = (ASTNode) node.slot(1);
-        ASTNode iterable = (ASTNode) node.slot(3);
-        ASTNode body = (ASTNode) node.slot(5);
+    private void analyzeForStatement(ForStatementNode node, Environment env) {
+        ArenaNode primary = node.variable();
 
         visit(primary, env);
-        visit(iterable, env);
-        visit(body, env);
+        visit(node.iterable(), env);
+        visit(node.body(), env);
 
         ((VariableSymbol) primary.symbol()).updateDefinition(node);
         node.updateSymbol(primary.symbol());
@@ -71,66 +80,59 @@ public class LanguageServer implements syspro.tm.symbols.LanguageServer {
 
     }
 
-    // WHILE_STATEMENT - whileNode, cond, indent, statements, dedent
-    private void analyzeWhileStatement(ASTNode node, Environment env) {
-        ASTNode condition = (ASTNode) node.slot(0);
-        ASTNode body = (ASTNode) node.slot(1);
-
-        visit(condition, env);
-        visit(body, env);
-
+    private void analyzeWhileStatement(WhileStatementNode node, Environment env) {
+        visit(node.condition(), env);
+        visit(node.body(), env);
     }
 
-    // IF_STATEMENT - ifNode, cond, indentTrue, statementsTrue, dedentTrue,
-    //                  elseNode, indentFalse, statementsFalse, dedentFalse
-    private void analyzeIfStatement(ASTNode node, Environment env) {
-        ASTNode condition = (ASTNode) node.slot(1);
-        ASTNode thenBlock = (ASTNode) node.slot(3);
-        ASTNode elseBlock = (ASTNode) node.slot(7);
-
-        visit(condition, env);
-        if (!isNull(elseBlock)) visit(thenBlock, env);
-        if (!isNull(elseBlock)) visit(elseBlock, env);
+    private void analyzeIfStatement(IfStatementNode node, Environment env) {
+        visit(node.condition(), env);
+        visit(node.thenBlock(), env);
+        visit(node.elseBlock(), env);
     }
 
-    private void analyzeIdentifierNameExpression(ASTNode node, Environment env) {
-        String name = node.slot(0).token().toString();
-        ASTNode identifier = (ASTNode) node.slot(0);
+    private void analyzeIdentifierNameExpression(IdentifierNameExpressionNode node, Environment env) {
+        ArenaNode identifier = node.name();
+        String name = identifier.token().toString();
 
         VariableSymbol symbol = new VariableSymbol(name, null, env.get().getSymbol(), SymbolKind.LOCAL, identifier);
         node.updateSymbol(symbol);
     }
 
-    private void analyzeThisExpression(ASTNode node, Environment env) {
+    private void analyzeThisExpression(ArenaNode node, Environment env) {
         SemanticSymbol owner = env.getOwner();
         if (!(owner instanceof TypeSymbol)) {
             env.addInvalidRange(node.span(), new VariableError("'this' can only be used within a class or object."));
         }
     }
 
-    private void analyzeSuperExpression(ASTNode node, Environment env) {
+    private void analyzeSuperExpression(ArenaNode node, Environment env) {
         SemanticSymbol owner = env.getOwner();
         if (!(owner instanceof TypeSymbol typeSymbol) || typeSymbol.baseTypes().isEmpty()) {
             env.addInvalidRange(node.span(), new VariableError("'super' can only be used within a class or object."));
         }
     }
 
-    private void analyzeExpressionStatement(ASTNode node, Environment env) {
-        ASTNode expression = (ASTNode) node.slot(0);
-        visit(expression, env);
+    private void analyzeExpressionStatement(ExpressionStatementNode node, Environment env) {
+        visit(node.expression(), env);
+    }
+
+    // Name of the type a name expression, like A or A<B>, refers to.
+    private static String typeName(SyntaxNode nameExpression) {
+        return nameExpression.slot(0).token().toString();
     }
 
 
     // Analyzes a list of type arguments or parameters in a separated list.
     private <T extends TypeLikeSymbol> void analyzeSeparatedList(
-            ASTNode separatedList,
+            ArenaNode separatedList,
             List<? super T> symbols,
             Function<String, ErrorCode> errorConstructor,
             Environment env) {
 
         for (int i = 0; i < separatedList.slotCount(); i += 2) {
-            ASTNode node = (ASTNode) separatedList.slot(i);
-            String nodeName = node.slot(0).token().toString();
+            ArenaNode node = separatedList.slot(i);
+            String nodeName = typeName(node);
             SemanticSymbol symbol = env.lookup(nodeName);
 
             // Check if the type has been defined.
@@ -145,35 +147,32 @@ public class LanguageServer implements syspro.tm.symbols.LanguageServer {
     }
 
     // Only for type definition (in case of generics)
-    // PARAMETER_DEFINITION - identifier, colon, name
-    private void analyzeTypeParameterDefinition(ASTNode node, Environment env) {
-        String typeName = node.slot(0).token().toString();
+    private void analyzeTypeParameterDefinition(TypeParameterDefinitionNode node, Environment env) {
+        String typeName = node.name().token().toString();
 
         TypeLikeSymbol paramSymbol = (TypeLikeSymbol) env.lookup(typeName);
         if (isNull(paramSymbol)) {
             paramSymbol = new TypeParameterSymbol(typeName, env.get().getSymbol(), node);
             env.declare(typeName, paramSymbol, node);
         }
-        paramSymbol = construct(paramSymbol, (ASTNode) paramSymbol.definition(), env);
+        paramSymbol = construct(paramSymbol, paramSymbol.definition(), env);
         node.updateSymbol(paramSymbol);
 
-        ASTNode boundsNode = (ASTNode) node.slot(1);
+        TypeBoundNode boundsNode = node.bounds();
         if (!isNull(boundsNode)) {
-            ASTNode boundList = (ASTNode) boundsNode.slot(1);
-            analyzeSeparatedList(boundList, ((TypeParameterSymbol) paramSymbol).bounds, TypeParameterError::new, env);
+            analyzeSeparatedList(boundsNode.types(), ((TypeParameterSymbol) paramSymbol).bounds, TypeParameterError::new, env);
         }
     }
 
     // Only in function definition.
-    // PARAMETER_DEFINITION - identifier, colon, name
-    private void analyzeParameterDefinition(ASTNode node, Environment env) {
-        String paramName = node.slot(0).token().toString();
-        ASTNode typeNode = (ASTNode) node.slot(2);
+    private void analyzeParameterDefinition(ParameterDefinitionNode node, Environment env) {
+        String paramName = node.name().token().toString();
+        ArenaNode typeNode = node.type();
 
         SemanticSymbol paramType = null;
 
         if (!isNull(typeNode)) {
-            String typeName = typeNode.slot(0).token().toString();
+            String typeName = typeName(typeNode);
             paramType = env.lookup(typeName);
 
             if (!(paramType instanceof TypeLikeSymbol))
@@ -191,13 +190,13 @@ public class LanguageServer implements syspro.tm.symbols.LanguageServer {
 
     // Constructs a specialized version of a TypeSymbol based on
     // the given node and environment (by calling construct function).
-    private TypeLikeSymbol construct(TypeLikeSymbol symbol, ASTNode node, Environment env) {
-        if (!isNull(node) && node.kind().equals(GENERIC_NAME_EXPRESSION)) {
-            ASTNode list = (ASTNode) node.slot(2);
+    private TypeLikeSymbol construct(TypeLikeSymbol symbol, SyntaxNode node, Environment env) {
+        if (node instanceof GenericNameExpressionNode generic) {
+            ArenaNode list = generic.typeArguments();
             List<TypeLikeSymbol> params = new ArrayList<>();
 
             for (int i = 0; i < list.slotCount(); i += 2) {
-                String name = list.slot(i).slot(0).token().toString();
+                String name = typeName(list.slot(i));
                 params.add((TypeLikeSymbol) env.lookup(name));
             }
             symbol = ((TypeSymbol) symbol).construct(params);
@@ -206,11 +205,8 @@ public class LanguageServer implements syspro.tm.symbols.LanguageServer {
     }
 
 
-    //    TYPE_DEFINITION - keyword, name, lessThan, generics, greaterThan,
-    //                      typeBoundsList, indent, memberDef, dedent
-    private void analyzeTypeDefinition(ASTNode node, Environment env) {
-        SyntaxNode name = node.slot(1);
-        String typeName = name.token().toString();
+    private void analyzeTypeDefinition(TypeDefinitionNode node, Environment env) {
+        String typeName = node.name().token().toString();
 
         TypeSymbol typeSymbol = new TypeSymbol(typeName, node);
         env.declare(typeName, typeSymbol, node);
@@ -218,14 +214,14 @@ public class LanguageServer implements syspro.tm.symbols.LanguageServer {
         env.push(new Scope(env.get(), typeName, typeSymbol));
 
         // Analyze type arguments of type.
-        analyze((ASTNode) node.slot(3), env);
+        analyze(node.typeParameters(), env);
         typeSymbol.typeArguments = env.get().getAllTypeParameters();
 
         // Analyze base types of type.
-        analyzeBaseTypes((ASTNode) node.slot(5), env);
+        analyzeBaseTypes(node.bounds(), env);
 
         // Analyze members (such as functions, variables) of type.
-        analyze((ASTNode) node.slot(7), env);
+        analyze(node.members(), env);
         typeSymbol.members = env.get().getAllMembers();
 
         env.pop();
@@ -235,26 +231,23 @@ public class LanguageServer implements syspro.tm.symbols.LanguageServer {
     }
 
     // SEPARATED_LIST [NameExpression, & - separator]
-    private void analyzeBaseTypes(ASTNode typeBounds, Environment env) {
+    private void analyzeBaseTypes(TypeBoundNode typeBounds, Environment env) {
         if (!isNull(typeBounds)) {
-            ASTNode separatedList = (ASTNode) typeBounds.slot(1);
             List<TypeSymbol> baseTypes = ((TypeSymbol) env.get().getSymbol()).baseTypes;
-            analyzeSeparatedList(separatedList, baseTypes, DefinitionError::new, env);
+            analyzeSeparatedList(typeBounds.types(), baseTypes, DefinitionError::new, env);
         }
     }
 
-    //  VARIABLE_DEFINITION - keyword, name, colon, typeExpr, eq, valueExpr
-    private void analyzeVariableDefinition(ASTNode node, Environment env) {
-        String name = node.slot(1).token().toString();
+    private void analyzeVariableDefinition(VariableDefinitionNode node, Environment env) {
+        String name = node.name().token().toString();
         if (env.isDefined(name))
             env.addInvalidRange(node.span(), new DefinitionError("Variable '" + name + "' is already defined." + name));
 
-        SyntaxNode type = node.slot(3);
+        ArenaNode type = node.type();
         TypeLikeSymbol varTypeSymbol = null;
         if (!isNull(type)) {
-            String typeName = type.slot(0).token().toString();
-            varTypeSymbol = (TypeLikeSymbol) env.lookup(typeName);
-            varTypeSymbol = construct(varTypeSymbol, (ASTNode) type, env);
+            varTypeSymbol = (TypeLikeSymbol) env.lookup(typeName(type));
+            varTypeSymbol = construct(varTypeSymbol, type, env);
         }
 
         SymbolKind kind = env.isInsideFunction() ? SymbolKind.LOCAL : SymbolKind.FIELD;
@@ -265,17 +258,15 @@ public class LanguageServer implements syspro.tm.symbols.LanguageServer {
     }
 
 
-    //    FUNCTION_DEFINITION - terminalList, def, functionName, openParen, parameterList, closeParen,
-    //                          colon, returnType, indent, functionBody, dedent
-    private void analyzeFunctionDefinition(ASTNode node, Environment env) {
-        String name = node.slot(2).token().toString();
+    private void analyzeFunctionDefinition(FunctionDefinitionNode node, Environment env) {
+        String name = node.name().token().toString();
         boolean isConstructor = name.equals("this");
 
         TypeSymbol owner = (TypeSymbol) env.get().getSymbol();
 
         // Return modifiers (native, virtual, abstract, override) and the type of the function.
-        List<Boolean> modifiers = getFuncTerminalsInfo((ASTNode) node.slot(0), owner.isAbstract());
-        TypeLikeSymbol returnType = getReturnType((ASTNode) node.slot(7), isConstructor, env, owner.typeArguments);
+        List<Boolean> modifiers = getFuncTerminalsInfo(node.modifiers(), owner.isAbstract());
+        TypeLikeSymbol returnType = getReturnType(node.returnType(), isConstructor, env, owner.typeArguments);
 
         FunctionSymbol symbol = new FunctionSymbol(name, returnType,
                 modifiers.get(0), modifiers.get(1), modifiers.get(2), modifiers.get(3),
@@ -285,8 +276,7 @@ public class LanguageServer implements syspro.tm.symbols.LanguageServer {
         env.declare(name, symbol, node);
         env.push(new Scope(env.get(), name, symbol));
 
-        ASTNode paramNode = (ASTNode) node.slot(4);
-        analyze(paramNode, env);
+        analyze(node.parameters(), env);
 
         // Check whether there is a defined function with the same signature.
         if (existingSymbol instanceof FunctionSymbol existingFunc) {
@@ -296,7 +286,7 @@ public class LanguageServer implements syspro.tm.symbols.LanguageServer {
         }
 
         // Analyze body of the function.
-        analyze((ASTNode) node.slot(9), env);
+        analyze(node.body(), env);
 
         symbol.parameters = env.get().getAllParameters();
         symbol.locals = env.get().getAllLocals();
@@ -307,18 +297,18 @@ public class LanguageServer implements syspro.tm.symbols.LanguageServer {
 
     }
 
-    private TypeLikeSymbol getReturnType(ASTNode returnTypeNode, boolean isConstructor, Environment env, List<? extends TypeLikeSymbol> params) {
+    private TypeLikeSymbol getReturnType(ArenaNode returnTypeNode, boolean isConstructor, Environment env, List<? extends TypeLikeSymbol> params) {
         if (isConstructor) return (TypeLikeSymbol) env.get().getSymbol();
         if (isNull(returnTypeNode)) return null;
 
         // Get the already defined (maybe not) type symbol by returning the name of the TypeNode.
-        TypeLikeSymbol result = (TypeLikeSymbol) env.lookup(returnTypeNode.slot(0).token().toString());
+        TypeLikeSymbol result = (TypeLikeSymbol) env.lookup(typeName(returnTypeNode));
         if (!isNull(result) && result instanceof TypeSymbol symbol) return symbol.construct(params);
         return result;
     }
 
 
-    private List<Boolean> getFuncTerminalsInfo(ASTNode terminalList, boolean isAbstract) {
+    private List<Boolean> getFuncTerminalsInfo(ArenaNode terminalList, boolean isAbstract) {
         boolean isNative = false;
         boolean isVirtual = isAbstract;
         boolean isOverride = false;
@@ -346,11 +336,11 @@ public class LanguageServer implements syspro.tm.symbols.LanguageServer {
     public SemanticModel buildModel(String code) {
 
         Parser parser = new Parser();
-        ParseResult result = parser.parse(code);
-        ASTNode tree = (ASTNode) result.root();
-        Environment env = new Environment(tree);
+        SysproParseResult result = (SysproParseResult) parser.parse(code);
+        ArenaNode tree = (ArenaNode) result.root();
+        Environment env = new Environment(tree, result.names);
 
-        analyze((ASTNode) tree.slot(0), env);
+        analyze(tree.slot(0), env);
 
         env.invalidRanges().addAll(result.invalidRanges());
         env.diagnostics().addAll(result.diagnostics());
@@ -358,6 +348,7 @@ public class LanguageServer implements syspro.tm.symbols.LanguageServer {
         return new syspro.languageServer.semantic.SemanticModel(
                 tree,
                 env.invalidRanges(),
-                env.diagnostics());
+                env.diagnostics(),
+                result.lines());
     }
 }
@@ -3,6 +3,7 @@ package syspro.languageServer;
 import syspro.languageServer.symbols.FunctionSymbol;
 import syspro.languageServer.symbols.TypeSymbol;
 import syspro.languageServer.symbols.VariableSymbol;
+import syspro.lexer.NameTable;
 import syspro.tm.symbols.MemberSymbol;
 import syspro.tm.symbols.SemanticSymbol;
 import syspro.tm.symbols.SymbolKind;
@@ -19,13 +20,20 @@ public class Scope {
 
     private final Scope parent;
     private final List<SemanticSymbol> orderedDefinitions;
-    private final LinkedHashMap<String, SemanticSymbol> symbols;
-    private final LinkedHashMap<String, List<SemanticSymbol>> functionSymbols;
+    // Symbols are keyed by name ids from names, which the whole scope chain shares.
+    private final NameTable names;
+    private final LinkedHashMap<Integer, SemanticSymbol> symbols;
+    private final LinkedHashMap<Integer, List<SemanticSymbol>> functionSymbols;
     private final String name;
     private SemanticSymbol scopeSymbol;
 
     public Scope(Scope parent, String name, SemanticSymbol scopeSymbol) {
+        this(parent, name, scopeSymbol, parent != null ? parent.names : new NameTable());
+    }
+
+    public Scope(Scope parent, String name, SemanticSymbol scopeSymbol, NameTable names) {
         this.parent = parent;
+        this.names = names;
         this.scopeSymbol = scopeSymbol;
         this.symbols = new LinkedHashMap<>();
         this.functionSymbols = new LinkedHashMap<>();
@@ -34,19 +42,20 @@ public class Scope {
     }
 
     public void declareSymbol(String name, SemanticSymbol symbol) {
+        Integer id = names.intern(name);
         if (symbol instanceof FunctionSymbol functionSymbol) {
-            List<SemanticSymbol> overloads = functionSymbols.getOrDefault(name, new ArrayList<>());
+            List<SemanticSymbol> overloads = functionSymbols.getOrDefault(id, new ArrayList<>());
             for (SemanticSymbol overload : overloads) {
                 if (hasClashingSignature((FunctionSymbol) overload, functionSymbol.parameters))
                     throw new IllegalArgumentException("Symbol '" + name + "' is already declared in this scope.");
             }
             overloads.add(functionSymbol);
-            functionSymbols.put(name, overloads);
+            functionSymbols.put(id, overloads);
         } else {
-            if (symbol instanceof TypeSymbol && this.name.equals("GlobalScope")) symbols.put(name, symbol);
-            else if (symbols.containsKey(name))
+            if (symbol instanceof TypeSymbol && this.name.equals("GlobalScope")) symbols.put(id, symbol);
+            else if (symbols.containsKey(id))
                 throw new IllegalArgumentException("Symbol '" + name + "' is already declared in this scope.");
-            else symbols.put(name, symbol);
+            else symbols.put(id, symbol);
         }
         orderedDefinitions.add(symbol);
     }
@@ -61,22 +70,35 @@ public class Scope {
     }
 
     public SemanticSymbol lookupSymbol(String name) {
-        SemanticSymbol symbol = symbols.get(name);
+        // A name that was never interned was never declared in any scope.
+        int id = names.find(name);
+        if (id < 0) return null;
+        return lookupSymbol(id);
+    }
+
+    public SemanticSymbol lookupSymbol(Integer id) {
+        SemanticSymbol symbol = symbols.get(id);
         if (symbol != null)
             return symbol;
         if (parent != null)
-            return parent.lookupSymbol(name);
+            return parent.lookupSymbol(id);
         return null;
     }
 
     public SemanticSymbol lookupFunction(String name, List<VariableSymbol> params) {
-        List<SemanticSymbol> list = functionSymbols.get(name);
+        int id = names.find(name);
+        if (id < 0) return null;
+        return lookupFunction(id, name, params);
+    }
+
+    private SemanticSymbol lookupFunction(Integer id, String name, List<VariableSymbol> params) {
+        List<SemanticSymbol> list = functionSymbols.get(id);
         if (isNull(list)) return null;
         for (SemanticSymbol s : list) {
             FunctionSymbol func = (FunctionSymbol) s;
             if (name.equals(func.name()) && hasClashingSignature(func, params)) return func;
         }
-        if (parent != null) return parent.lookupFunction(name, params);
+        if (parent != null) return parent.lookupFunction(id, name, params);
         return null;
     }
 
@@ -1,11 +1,14 @@
 package syspro.languageServer.semantic;
 
+import syspro.parser.ast.ArenaNode;
+import syspro.parser.ast.SyntaxArena;
 import syspro.tm.parser.Diagnostic;
 import syspro.tm.parser.SyntaxNode;
 import syspro.tm.parser.TextSpan;
 import syspro.tm.symbols.SemanticSymbol;
 import syspro.tm.symbols.SyntaxNodeWithSymbols;
 import syspro.tm.symbols.TypeSymbol;
+import syspro.utils.LineMap;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -18,16 +21,24 @@ public class SemanticModel implements syspro.tm.symbols.SemanticModel {
     public SyntaxNode root;
     public Collection<TextSpan> invalidRanges;
     Collection<Diagnostic> diagnostics;
+    // Lines of the source, the same the parser named in its messages.
+    public LineMap lines;
     private Collection<SemanticSymbol> symbols = new ArrayList<>();
 
-    public SemanticModel(SyntaxNode root, Collection<TextSpan> invalidRanges, Collection<Diagnostic> diagnostics) {
+    public SemanticModel(SyntaxNode root, Collection<TextSpan> invalidRanges, Collection<Diagnostic> diagnostics,
+                         LineMap lines) {
         this.root = root;
         this.invalidRanges = invalidRanges;
         this.diagnostics = diagnostics;
+        this.lines = lines;
         getAllSymbols();
     }
 
     private void getAllSymbols() {
+        if (root instanceof ArenaNode node) {
+            collectSymbols(node.arena);
+            return;
+        }
         SyntaxNode listNode =  root.slot(0);
         for (int i = 0; i < listNode.slotCount(); i++) {
             SyntaxNodeWithSymbols node = (SyntaxNodeWithSymbols)listNode.slot(i);
@@ -35,18 +46,18 @@ public class SemanticModel implements syspro.tm.symbols.SemanticModel {
         }
     }
 
+    // Definitions are stored one after another in pre-order, so going through the nodes of the arena finds
+    // the symbols in the same order as walking the tree.
+    private void collectSymbols(SyntaxArena arena) {
+        for (int i = 0; i < arena.size(); i++) {
+            SemanticSymbol symbol = arena.symbol(i);
+            if (symbol != null) addSymbol(symbol);
+        }
+    }
+
     private void collectSymbolsRecursive(SyntaxNode node) {
         if (node instanceof SyntaxNodeWithSymbols syntaxNodeWithSymbols && syntaxNodeWithSymbols.symbol() != null) {
-            symbols.add(syntaxNodeWithSymbols.symbol());
-
-            if (syntaxNodeWithSymbols.symbol() instanceof TypeSymbol typeSymbol && !Objects.isNull(typeSymbol.members())) {
-
-                for (var member : typeSymbol.members()) {
-                    if (member instanceof SemanticSymbol memberSymbol) {
-                        symbols.add(memberSymbol);
-                    }
-                }
-            }
+            addSymbol(syntaxNodeWithSymbols.symbol());
         }
         for (int i = 0; i < node.slotCount(); i++) {
             SyntaxNode child = node.slot(i);
@@ -56,6 +67,19 @@ public class SemanticModel implements syspro.tm.symbols.SemanticModel {
         }
     }
 
+    private void addSymbol(SemanticSymbol symbol) {
+        symbols.add(symbol);
+
+        if (symbol instanceof TypeSymbol typeSymbol && !Objects.isNull(typeSymbol.members())) {
+
+            for (var member : typeSymbol.members()) {
+                if (member instanceof SemanticSymbol memberSymbol) {
+                    symbols.add(memberSymbol);
+                }
+            }
+        }
+    }
+
     @Override
     public SyntaxNode root() {
         return root;
@@ -1,6 +1,5 @@
 package syspro.languageServer.symbols;
 
-import syspro.parser.ast.ASTNode;
 import syspro.tm.parser.SyntaxNode;
 import syspro.tm.symbols.SemanticSymbol;
 import syspro.tm.symbols.SymbolKind;
@@ -22,7 +21,7 @@ public class VariableSymbol implements syspro.tm.symbols.VariableSymbol {
         this.definition = definition;
     }
 
-    public void updateDefinition(ASTNode node) {
+    public void updateDefinition(SyntaxNode node) {
         this.definition = node;
     }
 
@@ -0,0 +1,190 @@
+package syspro.lexer;
+
+import syspro.lexer.utils.CodePointClassifier;
+import syspro.tm.lexer.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static syspro.lexer.State.ObservedState.*;
+import static syspro.lexer.TransitionTable.*;
+import static syspro.lexer.utils.UtilMaps.keywordMap;
+
+// Lexer whose tokens are recognized by one transition table with maximal munch over code points.
+// The table is built at class init from the rules below: the symbols, the keywords and the literal forms.
+// Trivia, comments and indentation are left to Lexer.scan, so both engines produce the same tokens.
+public class DfaLexer extends Lexer {
+
+    private static final int SYMBOL_RULE = 0;
+    private static final int KEYWORD_RULE = 1;
+    private static final int CONTEXTUAL_KEYWORD_RULE = 2;
+    private static final int BOOLEAN_RULE = 3;
+    private static final int IDENTIFIER_RULE = 4;
+    private static final int INTEGER_RULE = 5;
+    private static final int STRING_RULE = 6;
+    private static final int RUNE_RULE = 7;
+
+    // ASCII code points are classes of their own, the rest are grouped by how identifiers use them.
+    private static final int LETTER = 128;
+    private static final int DIGIT = 129;
+    private static final int MARK = 130;
+    private static final int OTHER = 131;
+    private static final int CLASS_COUNT = 132;
+
+    private record Rule(int kind, Object value, Pattern pattern) {
+    }
+
+    private static final List<Rule> RULES = new ArrayList<>();
+    private static final int[] transitions;
+    private static final int[] accepts;
+    private static final int[] kinds;
+    private static final Object[] values;
+
+    static {
+        // "&&" and "||" are lexed as two symbols, "=!" is another spelling of "!=".
+        for (Symbol symbol : Symbol.values()) {
+            if (symbol == Symbol.AMPERSAND_AMPERSAND || symbol == Symbol.BAR_BAR) continue;
+            RULES.add(new Rule(SYMBOL_RULE, symbol, literal(symbol.text)));
+        }
+        RULES.add(new Rule(SYMBOL_RULE, Symbol.EXCLAMATION_EQUALS, literal("=!")));
+        for (String word : KeywordTable.KEYWORDS) RULES.add(new Rule(KEYWORD_RULE, keywordMap.get(word), literal(word)));
+        for (String word : KeywordTable.CONTEXTUAL_KEYWORDS)
+            RULES.add(new Rule(CONTEXTUAL_KEYWORD_RULE, keywordMap.get(word), literal(word)));
+        for (String word : KeywordTable.BOOLEANS) RULES.add(new Rule(BOOLEAN_RULE, word.equals("true"), literal(word)));
+
+        Pattern digit = classes(c -> (classFlags(c) & CodePointClassifier.DIGIT) != 0);
+        RULES.add(new Rule(IDENTIFIER_RULE, null, sequence(
+                classes(c -> (classFlags(c) & CodePointClassifier.IDENTIFIER_START) != 0),
+                zeroOrMore(classes(c -> (classFlags(c) & CodePointClassifier.IDENTIFIER_CONTINUE) != 0)))));
+        RULES.add(new Rule(INTEGER_RULE, null, sequence(oneOrMore(digit),
+                optional(sequence(either(literal("i"), literal("u")), either(literal("32"), literal("64")))))));
+        // A backslash takes the code point after it, so an escaped quote does not end the literal.
+        RULES.add(new Rule(STRING_RULE, null, sequence(literal("\""), zeroOrMore(either(
+                classes(c -> c != '"' && c != '\\'), sequence(literal("\\"), classes(c -> true)))), literal("\""))));
+        RULES.add(new Rule(RUNE_RULE, null, sequence(literal("'"), zeroOrMore(either(
+                classes(c -> c != '\'' && c != '\\'), sequence(literal("\\"), classes(c -> true)))), literal("'"))));
+
+        TransitionTable table = TransitionTable.build(CLASS_COUNT, RULES.stream().map(Rule::pattern).toList());
+        transitions = table.transitions();
+        accepts = table.accepts();
+        kinds = RULES.stream().mapToInt(Rule::kind).toArray();
+        values = RULES.stream().map(Rule::value).toArray();
+    }
+
+    public DfaLexer() {
+        super();
+    }
+
+    public DfaLexer(NameTable names) {
+        super(names);
+    }
+
+    private static int classFlags(int characterClass) {
+        return switch (characterClass) {
+            case LETTER -> CodePointClassifier.IDENTIFIER_START | CodePointClassifier.IDENTIFIER_CONTINUE;
+            case DIGIT -> CodePointClassifier.DIGIT | CodePointClassifier.IDENTIFIER_CONTINUE;
+            case MARK -> CodePointClassifier.IDENTIFIER_CONTINUE;
+            case OTHER -> 0;
+            default -> CodePointClassifier.flags(characterClass);
+        };
+    }
+
+    private static int classOf(int codePoint) {
+        if (codePoint < 0x80) return codePoint;
+        int flags = CodePointClassifier.flags(codePoint);
+        if ((flags & CodePointClassifier.IDENTIFIER_START) != 0) return LETTER;
+        if ((flags & CodePointClassifier.DIGIT) != 0) return DIGIT;
+        if ((flags & CodePointClassifier.IDENTIFIER_CONTINUE) != 0) return MARK;
+        return OTHER;
+    }
+
+    @Override
+    boolean scan(LexerContext ctx) {
+        if (ctx.curState == COMMENTARY || ctx.curState == STRING || ctx.curState == RUNE) return super.scan(ctx);
+
+        int from = ctx.nextPos + 1;
+        int codePoint = ctx.codePoint(from);
+        // Blanks, newlines, comments and invalid characters.
+        if (codePoint < 0 || transitions[START * CLASS_COUNT + classOf(codePoint)] == NONE) return super.scan(ctx);
+
+        int rule = NONE;
+        int last = NONE;
+        int state = START;
+        for (int pos = from; codePoint >= 0; codePoint = ctx.codePoint(++pos)) {
+            state = transitions[state * CLASS_COUNT + classOf(codePoint)];
+            if (state == NONE) break;
+            if (accepts[state] != NONE) {
+                rule = accepts[state];
+                last = pos;
+            }
+        }
+        // Unterminated literals.
+        if (rule == NONE) return super.scan(ctx);
+
+        ctx.nextPos = from;
+        switch (kinds[rule]) {
+            case SYMBOL_RULE -> ctx.putToken(symbolToken(ctx, (Symbol) values[rule], last));
+            case KEYWORD_RULE, CONTEXTUAL_KEYWORD_RULE, BOOLEAN_RULE, IDENTIFIER_RULE -> ctx.putToken(wordToken(ctx, rule, last));
+            case INTEGER_RULE -> {
+                // A suffix is only taken when something follows it.
+                boolean hasSuffix = last - 3 >= from && (ctx.codePoint(last - 2) == 'i' || ctx.codePoint(last - 2) == 'u');
+                if (hasSuffix && ctx.isEOF(last + 1)) last -= 3;
+                ctx.beginLexeme(from);
+                ctx.nextPos = last;
+                ctx.putToken(getIntegerToken(ctx));
+            }
+            case STRING_RULE -> {
+                ctx.beginLexeme(from + 1);
+                ctx.curState = STRING;
+                ctx.nextPos = last;
+                ctx.putToken(getStringLiteralToken(ctx));
+                ctx.curState = DEFAULT;
+            }
+            case RUNE_RULE -> {
+                ctx.beginLexeme(from + 1);
+                ctx.curState = RUNE;
+                ctx.nextPos = last;
+                ctx.putToken(getRuneLiteralToken(ctx));
+                ctx.curState = DEFAULT;
+            }
+        }
+        return true;
+    }
+
+    // Generic brackets: a '<' not followed by a space opens one, the matching '>' never starts ">=" or ">>".
+    private SymbolToken symbolToken(LexerContext ctx, Symbol symbol, int last) {
+        int from = ctx.nextPos;
+        if (symbol.text.charAt(0) == '>' && ctx.lessThanCounter > 0) {
+            ctx.lessThanCounter--;
+            symbol = Symbol.GREATER_THAN;
+            last = from;
+        } else if (symbol == Symbol.LESS_THAN && !ctx.isNext(' ')) {
+            ctx.lessThanCounter++;
+        }
+        ctx.curState = SYMBOL;
+        ctx.start = from;
+        ctx.end = ctx.nextPos = last;
+        return new SymbolToken(ctx.start - ctx.countLeadingTrivia, ctx.end + ctx.countTrailingTrivia,
+                ctx.countLeadingTrivia, ctx.countTrailingTrivia, symbol);
+    }
+
+    private Token wordToken(LexerContext ctx, int rule, int last) {
+        ctx.beginLexeme(ctx.nextPos);
+        ctx.start = ctx.nextPos;
+        ctx.end = ctx.nextPos = last;
+        if (!ctx.isEOF(last + 1)) ctx.curState = IDENTIFIER;
+
+        int start = ctx.start - ctx.countLeadingTrivia;
+        int end = ctx.end + ctx.countTrailingTrivia;
+        return switch (kinds[rule]) {
+            case KEYWORD_RULE ->
+                    new KeywordToken(start, end, ctx.countLeadingTrivia, ctx.countTrailingTrivia, (Keyword) values[rule]);
+            case CONTEXTUAL_KEYWORD_RULE -> new IdentifierToken(start, end, ctx.countLeadingTrivia, ctx.countTrailingTrivia,
+                    ((Keyword) values[rule]).text, (Keyword) values[rule]);
+            case BOOLEAN_RULE ->
+                    new BooleanLiteralToken(start, end, ctx.countLeadingTrivia, ctx.countTrailingTrivia, (Boolean) values[rule]);
+            default -> new IdentifierToken(start, end, ctx.countLeadingTrivia, ctx.countTrailingTrivia,
+                    names.name(names.intern(ctx, ctx.start, ctx.end + 1)), null);
+        };
+    }
+}
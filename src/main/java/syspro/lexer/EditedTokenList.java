@@ -0,0 +1,108 @@
+package syspro.lexer;
+
+import syspro.tm.lexer.Token;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+// Read-only token list after an edit: tokens before the edit, the relexed tokens, and the reused
+// tail whose tokens are shifted by the length delta when they are first read. A shifted token is kept,
+// so every read of an index returns the same object and a parser going over the list shifts each token once.
+class EditedTokenList extends AbstractList<Token> {
+
+    // Nested views are flattened once reads would go through this many levels.
+    private static final int MAX_DEPTH = 16;
+
+    private final List<Token> head;
+    private final List<Token> middle;
+    private final List<Token> tail;
+    private final int delta;
+    private final int depth;
+    // Shifted tail tokens read so far, created on the first read. Tokens are immutable, so two threads that
+    // race on an index only both make an equal token.
+    private Token[] shifted;
+
+    private EditedTokenList(List<Token> head, List<Token> middle, List<Token> tail, int delta) {
+        this.head = head;
+        this.middle = middle;
+        this.tail = tail;
+        this.delta = delta;
+        this.depth = 1 + Math.max(depthOf(head), depthOf(tail));
+    }
+
+    static List<Token> of(List<Token> head, List<Token> middle, List<Token> tail, int delta) {
+        // A slice that lies within the head or the tail of an earlier edit is read from there
+        // directly, so repeated edits do not stack views on top of each other.
+        if (head instanceof Slice slice && slice.to <= slice.list.head.size()) {
+            head = slice.list.head.subList(slice.from, slice.to);
+        }
+        if (tail instanceof Slice slice && slice.from >= slice.list.tailStart()) {
+            int tailStart = slice.list.tailStart();
+            delta += slice.list.delta;
+            tail = slice.list.tail.subList(slice.from - tailStart, slice.to - tailStart);
+        }
+        EditedTokenList list = new EditedTokenList(head, middle, tail, delta);
+        if (list.depth < MAX_DEPTH) return list;
+        return new ArrayList<>(list);
+    }
+
+    private static int depthOf(List<Token> list) {
+        if (list instanceof Slice slice) return slice.list.depth;
+        return 0;
+    }
+
+    private int tailStart() {
+        return head.size() + middle.size();
+    }
+
+    @Override
+    public Token get(int index) {
+        if (index < head.size()) return head.get(index);
+        index -= head.size();
+        if (index < middle.size()) return middle.get(index);
+        index -= middle.size();
+        if (delta == 0) return tail.get(index);
+        Token[] cache = shifted;
+        if (cache == null) shifted = cache = new Token[tail.size()];
+        Token token = cache[index];
+        if (token == null) cache[index] = token = LexerContext.shift(tail.get(index), delta);
+        return token;
+    }
+
+    @Override
+    public int size() {
+        return head.size() + middle.size() + tail.size();
+    }
+
+    @Override
+    public List<Token> subList(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex)
+            throw new IndexOutOfBoundsException("Sublist " + fromIndex + ".." + toIndex + " of " + size());
+        return new Slice(this, fromIndex, toIndex);
+    }
+
+    // Range [from, to) of an edited list.
+    private static class Slice extends AbstractList<Token> {
+        private final EditedTokenList list;
+        private final int from;
+        private final int to;
+
+        Slice(EditedTokenList list, int from, int to) {
+            this.list = list;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Token get(int index) {
+            if (index < 0 || index >= size()) throw new IndexOutOfBoundsException(index);
+            return list.get(from + index);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+}
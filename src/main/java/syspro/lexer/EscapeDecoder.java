@@ -0,0 +1,110 @@
+package syspro.lexer;
+
+// Decodes string and rune literals straight from the code points of the source in one pass.
+// Escapes are \U+ with 4 or 5 hex digits (0-9, A-F) and the short ones: \0 \a \b \f \n \r \t \v \' \" \\.
+// A malformed escape is reported to the context with its exact range.
+final class EscapeDecoder {
+
+    static final int INVALID = -1;
+
+    private EscapeDecoder() {
+    }
+
+    // Content of the string literal at [start, end). Without a backslash the lexeme is returned as is,
+    // a malformed escape stays in the text.
+    static String decodeString(LexerContext ctx, int start, int end) {
+        int pos = start;
+        while (pos < end && ctx.codePoint(pos) != '\\') pos++;
+        if (pos == end) return ctx.lexeme(end);
+
+        StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start; i < pos; i++) sb.appendCodePoint(ctx.codePoint(i));
+        while (pos < end) {
+            int codePoint = ctx.codePoint(pos);
+            int length = codePoint == '\\' ? escapeLength(ctx, pos, end) : 0;
+            if (length == 0) {
+                sb.appendCodePoint(codePoint);
+                pos++;
+            } else {
+                sb.appendCodePoint(escapeValue(ctx, pos, length));
+                pos += length;
+            }
+        }
+        return sb.toString();
+    }
+
+    // Code point of the rune literal at [start, end), INVALID unless it holds exactly one character or escape.
+    static int decodeRune(LexerContext ctx, int start, int end) {
+        if (start == end) return INVALID;
+        int codePoint = ctx.codePoint(start);
+        if (codePoint == '\\') {
+            int length = escapeLength(ctx, start, end);
+            if (length == 0 || start + length != end) return INVALID;
+            return escapeValue(ctx, start, length);
+        }
+        if (end - start != 1 || codePoint == '\r' || codePoint == '\n') return INVALID;
+        return codePoint;
+    }
+
+    // Length of the escape whose backslash is at pos, 0 if it is malformed.
+    private static int escapeLength(LexerContext ctx, int pos, int end) {
+        if (pos + 1 == end) {
+            ctx.report(pos, end, "unterminated escape at the end of the literal");
+            return 0;
+        }
+        int kind = ctx.codePoint(pos + 1);
+        if (kind != 'U') {
+            if (shortEscape(kind) != INVALID) return 2;
+            ctx.report(pos, pos + 2, "unknown escape \\" + Character.toString(kind));
+            return 0;
+        }
+        if (pos + 2 == end || ctx.codePoint(pos + 2) != '+') {
+            ctx.report(pos, pos + 2, "expected '+' after \\U");
+            return 0;
+        }
+        int digits = 0;
+        while (digits < 5 && pos + 3 + digits < end && hexValue(ctx.codePoint(pos + 3 + digits)) >= 0) digits++;
+        if (digits < 4) {
+            ctx.report(pos, pos + 3 + digits, "\\U+ escape needs 4 or 5 hex digits (0-9, A-F)");
+            return 0;
+        }
+        int value = unicodeEscapeValue(ctx, pos, 3 + digits);
+        if (value >= Character.MIN_SURROGATE && value <= Character.MAX_SURROGATE) {
+            ctx.report(pos, pos + 3 + digits, "\\U+ escape of a surrogate is not a Unicode scalar value");
+            return 0;
+        }
+        return 3 + digits;
+    }
+
+    private static int escapeValue(LexerContext ctx, int pos, int length) {
+        if (length == 2) return shortEscape(ctx.codePoint(pos + 1));
+        return unicodeEscapeValue(ctx, pos, length);
+    }
+
+    private static int unicodeEscapeValue(LexerContext ctx, int pos, int length) {
+        int value = 0;
+        for (int i = 3; i < length; i++) value = value * 16 + hexValue(ctx.codePoint(pos + i));
+        return value;
+    }
+
+    private static int shortEscape(int codePoint) {
+        return switch (codePoint) {
+            case '0' -> 0;
+            case 'a' -> 7;
+            case 'b' -> '\b';
+            case 'f' -> '\f';
+            case 'n' -> '\n';
+            case 'r' -> '\r';
+            case 't' -> '\t';
+            case 'v' -> 11;
+            case '\'', '"', '\\' -> codePoint;
+            default -> INVALID;
+        };
+    }
+
+    private static int hexValue(int codePoint) {
+        if (codePoint >= '0' && codePoint <= '9') return codePoint - '0';
+        if (codePoint >= 'A' && codePoint <= 'F') return codePoint - 'A' + 10;
+        return -1;
+    }
+}
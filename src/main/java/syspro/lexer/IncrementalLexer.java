@@ -0,0 +1,337 @@
+package syspro.lexer;
+
+import syspro.tm.lexer.IndentationToken;
+import syspro.tm.lexer.Token;
+import syspro.tm.parser.Diagnostic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static syspro.lexer.utils.UnicodeReader.getUnicodePoints;
+
+// Keeps the tokens of a document up to date while it is being edited.
+// After every newline the complete LexerContext state is recorded together with the furthest
+// position the lexer has looked at so far. An edit restarts lexing from the last recorded line
+// that never looked at the edited range, and stops at the first newline behind the edit where
+// the state equals the recorded one again. Tokens after that point are reused, shifted by the
+// length delta of the edit. Offsets are in code points, like token positions.
+// Diagnostics are kept the same way: those reported before the restart line, the relexed ones, and the
+// ones reported after the line where lexing stopped, shifted.
+public class IncrementalLexer {
+
+    // Layout of one recorded line state in snapshots.
+    private static final int POS = 0;
+    private static final int TOKENS = 1;
+    private static final int INSPECTED = 2;
+    private static final int LEADING_TRIVIA = 3;
+    private static final int TRAILING_TRIVIA = 4;
+    private static final int CUR_LEVEL = 5;
+    private static final int PREV_LEVEL = 6;
+    private static final int INDENTATION_LENGTH = 7;
+    private static final int LESS_THAN_COUNTER = 8;
+    private static final int STATE = 9;
+    private static final int LEXEME_START = 10;
+    // Number of diagnostics reported before the line ends.
+    private static final int DIAGNOSTICS = 11;
+    private static final int SNAPSHOT_SIZE = 12;
+
+    private static final State.ObservedState[] STATES = State.ObservedState.values();
+
+    // Source code points as a gap buffer.
+    private int[] text;
+    private int gapStart;
+    private int gapEnd;
+
+    private int[] snapshots = new int[SNAPSHOT_SIZE * 64];
+    private int snapshotCount;
+    private int[] relexed = new int[SNAPSHOT_SIZE * 16];
+    private int relexedCount;
+
+    private List<Token> tokens;
+    private List<Diagnostic> diagnostics = List.of();
+    // Token that received the trailing trivia at the end of input, and its version before that.
+    private int finalTokenIndex = -1;
+    private Token finalTokenBeforeUpdate;
+    // Trivia was left at the end of input without a token to take it, as the text had no tokens.
+    private boolean finalTriviaUnclaimed;
+
+    public IncrementalLexer(String source) {
+        int[] codePoints = getUnicodePoints(source);
+        text = Arrays.copyOf(codePoints, codePoints.length + 64);
+        gapStart = codePoints.length;
+        gapEnd = text.length;
+        relex(-1, 0, 0, 0);
+    }
+
+    public List<Token> tokens() {
+        return tokens;
+    }
+
+    // Malformed literals in the current text, in the order Lexer reports them.
+    public List<Diagnostic> diagnostics() {
+        return diagnostics;
+    }
+
+    public int length() {
+        return text.length - (gapEnd - gapStart);
+    }
+
+    public List<Token> edit(int offset, int removedLength, String insertedText) {
+        if (offset < 0 || removedLength < 0 || offset + removedLength > length())
+            throw new IllegalArgumentException("Edit " + offset + "+" + removedLength + " is outside of the text.");
+
+        int[] inserted = getUnicodePoints(insertedText);
+        int restart = findRestart(offset);
+        replace(offset, removedLength, inserted);
+        relex(restart, offset + removedLength, offset + inserted.length, inserted.length - removedLength);
+        return tokens;
+    }
+
+    // Last recorded line whose lexing did not look at offset or beyond, -1 if there is none.
+    private int findRestart(int offset) {
+        int low = 0;
+        int high = snapshotCount - 1;
+        int result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (snapshots[mid * SNAPSHOT_SIZE + INSPECTED] < offset) {
+                result = mid;
+                low = mid + 1;
+            } else high = mid - 1;
+        }
+        return result;
+    }
+
+    private int findSnapshot(int pos) {
+        int low = 0;
+        int high = snapshotCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midPos = snapshots[mid * SNAPSHOT_SIZE + POS];
+            if (midPos == pos) return mid;
+            if (midPos < pos) low = mid + 1;
+            else high = mid - 1;
+        }
+        return -1;
+    }
+
+    // Relexes from the recorded line restart. Old lines ending at or after oldEditEnd are candidates
+    // for synchronization once the new text is lexed past newEditEnd.
+    private void relex(int restart, int oldEditEnd, int newEditEnd, int delta) {
+        // A lexer per relex, so the names of text that was edited away are not kept for the life of the document.
+        Lexer lexer = new Lexer();
+        GapBufferContext ctx = new GapBufferContext();
+        int tokenBase = 0;
+        int diagnosticBase = 0;
+        List<Token> oldTokens = tokens == null ? List.of() : tokens;
+
+        if (restart >= 0) {
+            int base = restart * SNAPSHOT_SIZE;
+            ctx.nextPos = snapshots[base + POS];
+            ctx.inspected = snapshots[base + INSPECTED];
+            ctx.countLeadingTrivia = snapshots[base + LEADING_TRIVIA];
+            ctx.countTrailingTrivia = snapshots[base + TRAILING_TRIVIA];
+            ctx.curIndentationLevel = snapshots[base + CUR_LEVEL];
+            ctx.prevIndentationLevel = snapshots[base + PREV_LEVEL];
+            ctx.indentationLength = snapshots[base + INDENTATION_LENGTH];
+            ctx.lessThanCounter = snapshots[base + LESS_THAN_COUNTER];
+            ctx.curState = STATES[snapshots[base + STATE]];
+            ctx.lexemeStart = snapshots[base + LEXEME_START];
+            diagnosticBase = snapshots[base + DIAGNOSTICS];
+
+            // The last tokens before the restart point are relexing input too: the end of input
+            // may still give trailing trivia to the last non-indentation token among them.
+            int headEnd = snapshots[base + TOKENS];
+            tokenBase = headEnd - 1;
+            while (tokenBase > 0 && oldTokens.get(tokenBase) instanceof IndentationToken) tokenBase--;
+            if (tokenBase < 0) tokenBase = 0;
+            ctx.tokens.addAll(oldTokens.subList(tokenBase, headEnd));
+            if (finalTokenIndex >= tokenBase && finalTokenIndex < headEnd)
+                ctx.tokens.set(finalTokenIndex - tokenBase, finalTokenBeforeUpdate);
+        }
+
+        relexedCount = 0;
+        while (lexer.scan(ctx)) {
+            if (ctx.codePoint() != '\n') continue;
+            recordLine(ctx, tokenBase, diagnosticBase);
+            if (ctx.nextPos < newEditEnd) continue;
+
+            int old = findSnapshot(ctx.nextPos - delta);
+            if (old >= 0 && snapshots[old * SNAPSHOT_SIZE + POS] >= oldEditEnd && canReuseAfter(old, ctx, oldEditEnd, delta)) {
+                reuseAfter(old, ctx, restart, tokenBase, diagnosticBase, oldTokens, delta);
+                return;
+            }
+        }
+
+        finalTokenIndex = -1;
+        finalTokenBeforeUpdate = null;
+        finalTriviaUnclaimed = ctx.countLeadingTrivia != 0 && ctx.tokens.isEmpty();
+        if (ctx.countLeadingTrivia != 0 && !ctx.tokens.isEmpty()) {
+            int index = ctx.lastTokenIndex();
+            finalTokenIndex = tokenBase + index;
+            finalTokenBeforeUpdate = ctx.tokens.get(index);
+        }
+        lexer.finish(ctx);
+
+        tokens = EditedTokenList.of(oldTokens.subList(0, tokenBase), ctx.tokens, List.of(), 0);
+        diagnostics = spliceDiagnostics(diagnosticBase, ctx.diagnostics, diagnostics.size(), 0);
+        spliceSnapshots(restart + 1, snapshotCount, 0, 0, 0, 0);
+    }
+
+    private void recordLine(GapBufferContext ctx, int tokenBase, int diagnosticBase) {
+        if ((relexedCount + 1) * SNAPSHOT_SIZE > relexed.length)
+            relexed = Arrays.copyOf(relexed, relexed.length * 2);
+        int base = relexedCount++ * SNAPSHOT_SIZE;
+        relexed[base + POS] = ctx.nextPos;
+        relexed[base + TOKENS] = tokenBase + ctx.tokens.size();
+        relexed[base + INSPECTED] = ctx.inspected;
+        relexed[base + LEADING_TRIVIA] = ctx.countLeadingTrivia;
+        relexed[base + TRAILING_TRIVIA] = ctx.countTrailingTrivia;
+        relexed[base + CUR_LEVEL] = ctx.curIndentationLevel;
+        relexed[base + PREV_LEVEL] = ctx.prevIndentationLevel;
+        relexed[base + INDENTATION_LENGTH] = ctx.indentationLength;
+        relexed[base + LESS_THAN_COUNTER] = ctx.lessThanCounter;
+        relexed[base + STATE] = ctx.curState.ordinal();
+        relexed[base + LEXEME_START] = ctx.lexemeStart;
+        relexed[base + DIAGNOSTICS] = diagnosticBase + ctx.diagnostics.size();
+    }
+
+    private boolean canReuseAfter(int old, GapBufferContext ctx, int oldEditEnd, int delta) {
+        int oldBase = old * SNAPSHOT_SIZE;
+        int newBase = (relexedCount - 1) * SNAPSHOT_SIZE;
+        for (int field = LEADING_TRIVIA; field <= STATE; field++) {
+            if (snapshots[oldBase + field] != relexed[newBase + field]) return false;
+        }
+        // An unfinished literal can be reused only if it started after the edit.
+        int oldLexemeStart = snapshots[oldBase + LEXEME_START];
+        if (oldLexemeStart < 0 ? ctx.lexemeStart >= 0 : oldLexemeStart < oldEditEnd || oldLexemeStart + delta != ctx.lexemeStart)
+            return false;
+
+        // The end of input changed a token before this line, or will change one now that there are tokens:
+        // that token is relexed now and would miss the change, so keep going until the end instead.
+        if (finalTriviaUnclaimed) return false;
+        return finalTokenIndex < 0 || finalTokenIndex >= snapshots[oldBase + TOKENS];
+    }
+
+    private void reuseAfter(int old, GapBufferContext ctx, int restart, int tokenBase, int diagnosticBase,
+                            List<Token> oldTokens, int delta) {
+        int oldTokenIndex = snapshots[old * SNAPSHOT_SIZE + TOKENS];
+        int newTokenIndex = tokenBase + ctx.tokens.size();
+        int tokenDelta = newTokenIndex - oldTokenIndex;
+        int oldDiagnosticIndex = snapshots[old * SNAPSHOT_SIZE + DIAGNOSTICS];
+        int diagnosticDelta = diagnosticBase + ctx.diagnostics.size() - oldDiagnosticIndex;
+
+        tokens = EditedTokenList.of(oldTokens.subList(0, tokenBase), ctx.tokens,
+                oldTokens.subList(oldTokenIndex, oldTokens.size()), delta);
+        if (finalTokenIndex >= 0) {
+            finalTokenIndex += tokenDelta;
+            finalTokenBeforeUpdate = LexerContext.shift(finalTokenBeforeUpdate, delta);
+        }
+        diagnostics = spliceDiagnostics(diagnosticBase, ctx.diagnostics, oldDiagnosticIndex, delta);
+        spliceSnapshots(restart + 1, old + 1, delta, tokenDelta, diagnosticDelta, ctx.inspected);
+    }
+
+    // Diagnostics before index from, then the relexed ones, then the old ones from index to on shifted by delta.
+    private List<Diagnostic> spliceDiagnostics(int from, List<Diagnostic> relexed, int to, int delta) {
+        if (diagnostics.isEmpty() && relexed.isEmpty()) return List.of();
+        List<Diagnostic> result = new ArrayList<>(from + relexed.size() + diagnostics.size() - to);
+        result.addAll(diagnostics.subList(0, from));
+        result.addAll(relexed);
+        for (int i = to; i < diagnostics.size(); i++) result.add(LexerContext.shift(diagnostics.get(i), delta));
+        return result;
+    }
+
+    // Replaces recorded lines [from, to) with the relexed ones and shifts the lines after them.
+    private void spliceSnapshots(int from, int to, int delta, int tokenDelta, int diagnosticDelta, int inspected) {
+        int tailCount = snapshotCount - to;
+        int newCount = from + relexedCount + tailCount;
+        if (newCount * SNAPSHOT_SIZE > snapshots.length)
+            snapshots = Arrays.copyOf(snapshots, Math.max(newCount * SNAPSHOT_SIZE, snapshots.length * 2));
+
+        System.arraycopy(snapshots, to * SNAPSHOT_SIZE, snapshots, (from + relexedCount) * SNAPSHOT_SIZE, tailCount * SNAPSHOT_SIZE);
+        System.arraycopy(relexed, 0, snapshots, from * SNAPSHOT_SIZE, relexedCount * SNAPSHOT_SIZE);
+
+        for (int i = from + relexedCount; i < newCount; i++) {
+            int base = i * SNAPSHOT_SIZE;
+            snapshots[base + POS] += delta;
+            snapshots[base + TOKENS] += tokenDelta;
+            snapshots[base + DIAGNOSTICS] += diagnosticDelta;
+            snapshots[base + INSPECTED] = Math.max(snapshots[base + INSPECTED] + delta, inspected);
+            if (snapshots[base + LEXEME_START] >= 0) snapshots[base + LEXEME_START] += delta;
+        }
+        snapshotCount = newCount;
+    }
+
+    private void replace(int offset, int removedLength, int[] inserted) {
+        moveGap(offset);
+        gapEnd += removedLength;
+        if (gapEnd - gapStart < inserted.length) {
+            int tailLength = text.length - gapEnd;
+            int[] grown = new int[Math.max(text.length * 2, length() + inserted.length + 64)];
+            System.arraycopy(text, 0, grown, 0, gapStart);
+            System.arraycopy(text, gapEnd, grown, grown.length - tailLength, tailLength);
+            gapEnd = grown.length - tailLength;
+            text = grown;
+        }
+        System.arraycopy(inserted, 0, text, gapStart, inserted.length);
+        gapStart += inserted.length;
+    }
+
+    private void moveGap(int offset) {
+        if (offset < gapStart) {
+            int count = gapStart - offset;
+            System.arraycopy(text, offset, text, gapEnd - count, count);
+            gapStart -= count;
+            gapEnd -= count;
+        } else if (offset > gapStart) {
+            int count = offset - gapStart;
+            System.arraycopy(text, gapEnd, text, gapStart, count);
+            gapStart += count;
+            gapEnd += count;
+        }
+    }
+
+    // Reads the gap buffer and remembers the furthest position looked at.
+    private class GapBufferContext extends LexerContext {
+        int inspected = -1;
+
+        GapBufferContext() {
+            super(text);
+            this.tokens = new ArrayList<>();
+        }
+
+        private int at(int pos) {
+            return text[pos < gapStart ? pos : pos + gapEnd - gapStart];
+        }
+
+        @Override
+        int[] source() {
+            return null;
+        }
+
+        @Override
+        public int codePoint() {
+            return at(nextPos);
+        }
+
+        @Override
+        public int codePoint(int pos) {
+            if (pos < 0 || isEOF(pos)) return -1;
+            return at(pos);
+        }
+
+        @Override
+        boolean isEOF(int pos) {
+            if (pos > inspected) inspected = pos;
+            return pos >= length();
+        }
+
+        @Override
+        String lexeme(int endPos) {
+            StringBuilder builder = new StringBuilder(lexemeLength(endPos));
+            for (int pos = lexemeStart; pos < endPos; pos++) builder.appendCodePoint(at(pos));
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package syspro.lexer;
+
+import syspro.tm.lexer.Keyword;
+
+import static syspro.lexer.utils.UtilMaps.keywordMap;
+
+// Recognizes the reserved words of the language straight from code points.
+// The slot of a word depends only on its length and its first and last code point; the multipliers
+// are chosen once so that no two words share a slot. A lookup then compares at most one word.
+class KeywordTable {
+
+    static final int KEYWORD = 0;
+    static final int CONTEXTUAL_KEYWORD = 1;
+    static final int BOOLEAN = 2;
+
+    static final String[] KEYWORDS = {"this", "super", "is", "if", "else", "for", "in", "while", "def", "var",
+            "val", "return", "break", "continue", "abstract", "virtual", "override", "native"};
+    static final String[] CONTEXTUAL_KEYWORDS = {"class", "object", "interface", "null"};
+    static final String[] BOOLEANS = {"true", "false"};
+
+    private static final int SIZE = 64;
+    private static final int MAX_MULTIPLIER = 256;
+
+    private static final String[] words = new String[SIZE];
+    private static final int[] kinds = new int[SIZE];
+    private static final Keyword[] keywords = new Keyword[SIZE];
+    private static int minLength = Integer.MAX_VALUE;
+    private static int maxLength;
+    private static final int firstMultiplier;
+    private static final int lastMultiplier;
+
+    static {
+        int[] found = findMultipliers();
+        firstMultiplier = found[0];
+        lastMultiplier = found[1];
+        put(KEYWORDS, KEYWORD);
+        put(CONTEXTUAL_KEYWORDS, CONTEXTUAL_KEYWORD);
+        put(BOOLEANS, BOOLEAN);
+    }
+
+    private KeywordTable() {
+    }
+
+    private static int slot(int length, int first, int last, int firstMultiplier, int lastMultiplier) {
+        return (length + first * firstMultiplier + last * lastMultiplier) & (SIZE - 1);
+    }
+
+    private static int slot(String word, int firstMultiplier, int lastMultiplier) {
+        return slot(word.length(), word.charAt(0), word.charAt(word.length() - 1), firstMultiplier, lastMultiplier);
+    }
+
+    private static int[] findMultipliers() {
+        for (int first = 1; first < MAX_MULTIPLIER; first++) {
+            for (int last = 1; last < MAX_MULTIPLIER; last++) {
+                boolean[] used = new boolean[SIZE];
+                if (fits(KEYWORDS, used, first, last) && fits(CONTEXTUAL_KEYWORDS, used, first, last)
+                        && fits(BOOLEANS, used, first, last))
+                    return new int[]{first, last};
+            }
+        }
+        throw new IllegalStateException("No collision-free slot function for the keyword set.");
+    }
+
+    private static boolean fits(String[] group, boolean[] used, int firstMultiplier, int lastMultiplier) {
+        for (String word : group) {
+            int slot = slot(word, firstMultiplier, lastMultiplier);
+            if (used[slot]) return false;
+            used[slot] = true;
+        }
+        return true;
+    }
+
+    private static void put(String[] group, int kind) {
+        for (String word : group) {
+            int slot = slot(word, firstMultiplier, lastMultiplier);
+            words[slot] = word;
+            kinds[slot] = kind;
+            keywords[slot] = keywordMap.get(word);
+            minLength = Math.min(minLength, word.length());
+            maxLength = Math.max(maxLength, word.length());
+        }
+    }
+
+    // Slot of the word formed by code points [start, end) of the source, -1 if it is not reserved.
+    static int find(LexerContext ctx, int start, int end) {
+        int length = end - start;
+        if (length < minLength || length > maxLength) return -1;
+        int first = ctx.codePoint(start);
+        int last = ctx.codePoint(end - 1);
+        if ((first | last) >= 0x80) return -1;
+
+        int slot = slot(length, first, last, firstMultiplier, lastMultiplier);
+        String word = words[slot];
+        if (word == null || word.length() != length) return -1;
+        for (int i = 0; i < length; i++) {
+            if (word.charAt(i) != ctx.codePoint(start + i)) return -1;
+        }
+        return slot;
+    }
+
+    static String word(int slot) {
+        return words[slot];
+    }
+
+    static int kind(int slot) {
+        return kinds[slot];
+    }
+
+    static Keyword keyword(int slot) {
+        return keywords[slot];
+    }
+}
@@ -1,9 +1,22 @@
 package syspro.lexer;
 
-import syspro.lexer.utils.UnicodeReader;
+import syspro.lexer.diagnostics.OverflowError;
 import syspro.tm.lexer.*;
-
+import syspro.tm.parser.Diagnostic;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 
 import static syspro.lexer.State.ObservedState.*;
 import static syspro.lexer.utils.UnicodePattern.*;
@@ -12,11 +25,28 @@ import static syspro.lexer.utils.UtilMaps.*;
 
 public class Lexer implements syspro.tm.lexer.Lexer {
 
+    // Identifier names of everything lexed by this lexer.
+    public final NameTable names;
+
+    private static final TriviaScanner SCANNER = TriviaScanner.INSTANCE;
+    // Largest unsigned 64-bit value that can take one more decimal digit.
+    private static final long MAX_UNSIGNED_TENTH = Long.divideUnsigned(-1L, 10);
+
+    public Lexer() {
+        this(new NameTable());
+    }
+
+    public Lexer(NameTable names) {
+        this.names = names;
+    }
+
 
     private int countIndentationLength(LexerContext ctx, int pos) {
+        int[] source = ctx.source();
+        if (source != null) return SCANNER.indentationWidth(source, pos, ctx.size);
         int count = 0;
-        while (!ctx.isEOF(pos) && (ctx.codePoints[pos] == ' ' || ctx.codePoints[pos] == '\t')) {
-            count += ctx.codePoints[pos] == '\t' ? 2 : 1;
+        while (!ctx.isEOF(pos) && (ctx.codePoint(pos) == ' ' || ctx.codePoint(pos) == '\t')) {
+            count += ctx.codePoint(pos) == '\t' ? 2 : 1;
             pos++;
         }
         return count;
@@ -79,70 +109,63 @@ public class Lexer implements syspro.tm.lexer.Lexer {
         }
     }
 
+    private Symbol singleSymbol(int codePoint) {
+        if (codePoint < 0 || codePoint >= asciiSymbolTable.length) return null;
+        return asciiSymbolTable[codePoint];
+    }
+
     private SymbolToken getSymbolToken(LexerContext ctx) {
         ctx.curState = SYMBOL;
-        String lexeme = ctx.symbolBuffer.toString();
         ctx.start = ctx.end = ctx.nextPos;
 
-        switch (ctx.symbolBuffer.toString()) {
-            case ">" -> {
+        int codePoint = ctx.codePoint();
+        Symbol symbol = singleSymbol(codePoint);
+        switch (codePoint) {
+            case '>' -> {
                 if (ctx.lessThanCounter > 0) {
                     ctx.lessThanCounter--;
                     break;
                 }
-                if (ctx.isNext("=")) lexeme = ">=";
-                else if (ctx.isNext(">")) lexeme = ">>";
+                if (ctx.isNext('=')) symbol = Symbol.GREATER_THAN_EQUALS;
+                else if (ctx.isNext('>')) symbol = Symbol.GREATER_THAN_GREATER_THAN;
             }
-            case "<" -> {
-                if (ctx.isNext("=")) lexeme = "<=";
-                else if (ctx.isNext("<")) lexeme = "<<";
-                else if (ctx.isNext(":")) lexeme = "<:";
-                else if (!ctx.isNext(" ")) ctx.lessThanCounter++;
+            case '<' -> {
+                if (ctx.isNext('=')) symbol = Symbol.LESS_THAN_EQUALS;
+                else if (ctx.isNext('<')) symbol = Symbol.LESS_THAN_LESS_THAN;
+                else if (ctx.isNext(':')) symbol = Symbol.BOUND;
+                else if (!ctx.isNext(' ')) ctx.lessThanCounter++;
             }
-            case "=" -> {
-                if (ctx.isNext("=")) lexeme = "==";
-                else if (ctx.isNext("!")) lexeme = "!=";
+            case '=' -> {
+                if (ctx.isNext('=')) symbol = Symbol.EQUALS_EQUALS;
+                else if (ctx.isNext('!')) symbol = Symbol.EXCLAMATION_EQUALS;
             }
-            case "&" -> {
-                if (ctx.isNext("&")) lexeme = "&";
-            }
-            case "!" -> {
-                if (ctx.isNext("=")) lexeme = "!=";
-            }
-            default -> {
-                if (!symbolMap.containsKey(lexeme)) return null;
+            case '!' -> {
+                if (ctx.isNext('=')) symbol = Symbol.EXCLAMATION_EQUALS;
             }
         }
+        if (symbol == null) return null;
 
-        int shift = lexeme.length() == 2 ? 1 : 0;
+        int shift = symbol.text.length() == 2 ? 1 : 0;
         ctx.end = ctx.nextPos += shift;
 
         return new SymbolToken(ctx.start - ctx.countLeadingTrivia, ctx.end + ctx.countTrailingTrivia,
-                ctx.countLeadingTrivia, ctx.countTrailingTrivia, symbolMap.get(lexeme));
+                ctx.countLeadingTrivia, ctx.countTrailingTrivia, symbol);
 
     }
 
     void scanIdentifier(LexerContext ctx) {
-        ctx.putNext();
+        ctx.beginLexeme(ctx.nextPos);
         ctx.nextPos++;
+        int[] source = ctx.source();
+        if (source != null) ctx.nextPos = SCANNER.identifierRunEnd(source, ctx.nextPos, ctx.size);
 
         while (!ctx.isEOF(ctx.nextPos)) {
-            boolean isIdentifierPart = isIdentifierContinue(ctx.symbol());
+            boolean isIdentifierPart = isIdentifierContinue(ctx.codePoint());
             if (!isIdentifierPart) {
-                String lexeme = ctx.symbolBuffer.toString();
-                if (isBoolean(lexeme)) {
-                    ctx.curState = BOOLEAN;
-                } else if (isKeyword(lexeme)) {
-                    ctx.curState = KEYWORD;
-                } else {
-                    ctx.curState = IDENTIFIER;
-                }
+                ctx.curState = IDENTIFIER;
                 break;
-
-            } else {
-                ctx.putNext();
-                ctx.nextPos++;
             }
+            ctx.nextPos++;
         }
         ctx.cancel();
     }
@@ -150,183 +173,353 @@ public class Lexer implements syspro.tm.lexer.Lexer {
 
     public Token getLiteralToken(LexerContext ctx) {
         ctx.end = ctx.nextPos;
-        ctx.start = ctx.nextPos - ctx.bufferLen() + 1;
-
-        String lexeme = ctx.symbolBuffer.toString();
-        Token token = null;
-
-        if (isIdentifierStart(lexeme)) {
-            switch (lexeme) {
-                case "this", "super", "is", "if", "else", "for", "in", "while", "def", "var", "val", "return", "break",
-                     "continue", "abstract", "virtual", "override", "native" -> {
-                    token = new KeywordToken(ctx.start - ctx.countLeadingTrivia, ctx.end + ctx.countTrailingTrivia,
-                            ctx.countLeadingTrivia, ctx.countTrailingTrivia, keywordMap.get(lexeme));
-                }
-                case "class", "object", "interface", "null" -> {
-                    token = new IdentifierToken(ctx.start - ctx.countLeadingTrivia, ctx.end + ctx.countTrailingTrivia,
-                            ctx.countLeadingTrivia, ctx.countTrailingTrivia, lexeme, keywordMap.get(lexeme));
-                }
-                case "true", "false" -> {
-                    token = new BooleanLiteralToken(ctx.start - ctx.countLeadingTrivia, ctx.end + ctx.countTrailingTrivia,
-                            ctx.countLeadingTrivia, ctx.countTrailingTrivia, Boolean.parseBoolean(lexeme));
-                }
-                default -> {
-                    if (isIdentifier(lexeme))
-                        token = new IdentifierToken(ctx.start - ctx.countLeadingTrivia, ctx.end + ctx.countTrailingTrivia,
-                                ctx.countLeadingTrivia, ctx.countTrailingTrivia, lexeme, null);
-
-                }
-            }
+        ctx.start = ctx.lexemeStart;
+        if (!isIdentifierStart(ctx.codePoint(ctx.start))) return null;
+
+        int start = ctx.start - ctx.countLeadingTrivia;
+        int end = ctx.end + ctx.countTrailingTrivia;
+        int word = KeywordTable.find(ctx, ctx.start, ctx.end + 1);
+        if (word < 0) {
+            String name = names.name(names.intern(ctx, ctx.start, ctx.end + 1));
+            return new IdentifierToken(start, end, ctx.countLeadingTrivia, ctx.countTrailingTrivia, name, null);
         }
-        return token;
+        return switch (KeywordTable.kind(word)) {
+            case KeywordTable.KEYWORD ->
+                    new KeywordToken(start, end, ctx.countLeadingTrivia, ctx.countTrailingTrivia, KeywordTable.keyword(word));
+            case KeywordTable.CONTEXTUAL_KEYWORD ->
+                    new IdentifierToken(start, end, ctx.countLeadingTrivia, ctx.countTrailingTrivia,
+                            KeywordTable.word(word), KeywordTable.keyword(word));
+            default -> new BooleanLiteralToken(start, end, ctx.countLeadingTrivia, ctx.countTrailingTrivia,
+                    KeywordTable.word(word).equals("true"));
+        };
     }
 
 
     void scanNumber(LexerContext ctx) {
-        ctx.putNext();
+        ctx.beginLexeme(ctx.nextPos);
         ctx.nextPos++;
 
         while (!ctx.isEOF(ctx.nextPos)) {
-            boolean isDigit = isDigit(ctx.symbol());
+            boolean isDigit = isDigit(ctx.codePoint());
 
             if (!isDigit) {
-                String suffix = ctx.hasSuffix() ? ctx.getSuffix() : "";
-                ctx.symbolBuffer.append(suffix);
-                ctx.nextPos += suffix.length();
+                if (ctx.suffix(ctx.nextPos) != null) ctx.nextPos += 3;
                 ctx.curState = NUMBER;
                 break;
-            } else {
-                ctx.putNext();
-                ctx.nextPos++;
             }
+            ctx.nextPos++;
         }
         ctx.cancel();
     }
 
 
+    // Reads the digits as an unsigned 64-bit value in one pass. A u64 above Long.MAX_VALUE is stored as its bits.
+    // A literal that does not fit into its type is reported and becomes a BadToken, so that lex(), which has
+    // no diagnostics to hand out, does not return a wrapped value as if it were fine.
     Token getIntegerToken(LexerContext ctx) {
         ctx.end = ctx.nextPos;
-        ctx.start = ctx.nextPos - ctx.bufferLen() + 1;
-
-        String lexeme = ctx.symbolBuffer.toString();
-        Token token = null;
-
-        if (isNumber(lexeme)) {
-            ctx.curState = NUMBER;
-            BuiltInType type = BuiltInType.INT64;
-            boolean hasSuffix = false;
-            long value;
-
-            try {
-                value = Long.parseLong(lexeme);
-            } catch (NumberFormatException e) {
-                int typeNameLen = 3;
-                String typeName = lexeme.substring(lexeme.length() - typeNameLen);
-                type = builtInTypeMap.get(typeName);
-                hasSuffix = true;
-                value = Long.parseLong(lexeme.substring(0, lexeme.length() - typeNameLen));
-            }
-            token = new IntegerLiteralToken(ctx.start - ctx.countLeadingTrivia, ctx.end + ctx.countTrailingTrivia,
-                    ctx.countLeadingTrivia, ctx.countTrailingTrivia, type, hasSuffix, value);
+        ctx.start = ctx.lexemeStart;
+
+        ctx.curState = NUMBER;
+        BuiltInType suffix = ctx.end - 3 >= ctx.start ? ctx.suffix(ctx.end - 2) : null;
+        boolean hasSuffix = suffix != null;
+        BuiltInType type = hasSuffix ? suffix : BuiltInType.INT64;
+        int digitsEnd = hasSuffix ? ctx.end - 2 : ctx.end + 1;
+
+        long value = 0;
+        boolean overflow = false;
+        for (int pos = ctx.start; pos < digitsEnd; pos++) {
+            int digit = Character.digit(ctx.codePoint(pos), 10);
+            if (Long.compareUnsigned(value, MAX_UNSIGNED_TENTH) > 0) overflow = true;
+            long next = value * 10 + digit;
+            if (Long.compareUnsigned(next, value * 10) < 0) overflow = true;
+            value = next;
         }
-        return token;
+        if (overflow || Long.compareUnsigned(value, maxValue(type)) > 0) {
+            ctx.report(ctx.start, ctx.end + 1, new OverflowError("integer literal does not fit into " + typeName(type)));
+            return new BadToken(ctx.start - ctx.countLeadingTrivia, ctx.end + ctx.countTrailingTrivia,
+                    ctx.countLeadingTrivia, ctx.countTrailingTrivia);
+        }
+        return new IntegerLiteralToken(ctx.start - ctx.countLeadingTrivia, ctx.end + ctx.countTrailingTrivia,
+                ctx.countLeadingTrivia, ctx.countTrailingTrivia, type, hasSuffix, value);
+    }
+
+    // Largest value of the type, compared as unsigned.
+    private static long maxValue(BuiltInType type) {
+        return switch (type) {
+            case INT32 -> Integer.MAX_VALUE;
+            case UINT32 -> 0xFFFF_FFFFL;
+            case UINT64 -> -1L;
+            default -> Long.MAX_VALUE;
+        };
+    }
+
+    private static String typeName(BuiltInType type) {
+        return switch (type) {
+            case INT32 -> "Int32";
+            case UINT32 -> "UInt32";
+            case UINT64 -> "UInt64";
+            default -> "Int64";
+        };
     }
 
 
-    private Token getStringLiteralToken(LexerContext ctx) {
+    Token getStringLiteralToken(LexerContext ctx) {
         ctx.end = ctx.nextPos;
-        ctx.start = ctx.nextPos - ctx.bufferLen() - 1;
+        ctx.start = ctx.lexemeStart - 1;
         return new StringLiteralToken(ctx.start - ctx.countLeadingTrivia, ctx.end + ctx.countTrailingTrivia,
-                ctx.countLeadingTrivia, ctx.countTrailingTrivia, UnicodeReader.substituteRune(ctx.symbolBuffer.toString()));
+                ctx.countLeadingTrivia, ctx.countTrailingTrivia, EscapeDecoder.decodeString(ctx, ctx.lexemeStart, ctx.end));
     }
 
 
-    private Token getRuneLiteralToken(LexerContext ctx) {
+    Token getRuneLiteralToken(LexerContext ctx) {
         ctx.end = ctx.nextPos;
-        ctx.start = ctx.nextPos - ctx.bufferLen() - 1;
-        String rune = ctx.symbolBuffer.toString();
+        ctx.start = ctx.lexemeStart - 1;
+        int rune = EscapeDecoder.decodeRune(ctx, ctx.lexemeStart, ctx.end);
 
-        if (isRune(rune)) {
+        if (rune != EscapeDecoder.INVALID) {
             return new RuneLiteralToken(ctx.start - ctx.countLeadingTrivia, ctx.end + ctx.countTrailingTrivia,
-                    ctx.countLeadingTrivia, ctx.countTrailingTrivia, UnicodeReader.runeToCodePoint(rune));
+                    ctx.countLeadingTrivia, ctx.countTrailingTrivia, rune);
         }
         return null;
     }
 
 
     public List<Token> tokenize(LexerContext ctx) {
-        while (!ctx.isEOF(++ctx.nextPos)) {
-            String nextSymbol = ctx.symbol();
+        while (scan(ctx)) ;
+        finish(ctx);
+        return ctx.tokens;
+    }
+
+    public TokenBuffer tokenizeToBuffer(LexerContext ctx, TokenBuffer buffer) {
+        ctx.buffer = buffer;
+        ctx.diagnostics = buffer.diagnostics;
+        while (scan(ctx)) ;
+        finish(ctx);
+        buffer.trimToSize();
+        return buffer;
+    }
 
-            if (ctx.isState(COMMENTARY) && !ctx.isNewline()) {
+    // Processes the next code point. Returns false once the input is exhausted.
+    boolean scan(LexerContext ctx) {
+        if (ctx.isEOF(++ctx.nextPos)) return false;
+        int codePoint = ctx.codePoint();
+
+        if (ctx.isState(COMMENTARY) && !ctx.isNewline()) {
+            int[] source = ctx.source();
+            if (source != null) putTriviaRun(ctx, SCANNER.newlineIndex(source, ctx.nextPos, ctx.size));
+            else ctx.putTrivia();
+            return true;
+        }
+        // Literal content stays in the lexeme range until the matching quote. The code point after a backslash
+        // is a part of the literal, so \" and \' do not end it; EscapeDecoder decodes them.
+        if ((ctx.isState(STRING) && codePoint != '"') || (ctx.isState(RUNE) && codePoint != '\'')) {
+            if (codePoint == '\\' && !ctx.isEOF(ctx.nextPos + 1)) ctx.nextPos++;
+            return true;
+        }
+
+        switch (codePoint) {
+            case '#' -> {
                 ctx.putTrivia();
-                continue;
+                ctx.curState = COMMENTARY;
             }
-            if ((ctx.isState(RUNE) || ctx.isState(STRING)) && !ctx.isSymbol("'") && !ctx.isSymbol("\"")) {
-                ctx.putNext();
-                continue;
+            case '\n' -> {
+                ctx.putTrivia();
+                ctx.lessThanCounter = 0;
+                ctx.curState = INDENTATION;
+                calculateIndentation(ctx);
             }
-
-            switch (nextSymbol) {
-                case "#" -> {
-                    ctx.putTrivia();
-                    ctx.curState = COMMENTARY;
-                }
-                case "\n" -> {
-                    ctx.putTrivia();
-                    ctx.lessThanCounter = 0;
-                    ctx.curState = INDENTATION;
-                    calculateIndentation(ctx);
-                }
-                case " ", "\t", "\r" -> {
-                    ctx.putTrivia();
-                }
-                case "=", "<", ">", ".", ",", ":", "-", "+", "*", "/", "%", "!", "~", "&", "|", "^", "[", "]", "(",
-                     ")", "?" -> {
-                    ctx.putNext();
-                    ctx.putToken(getSymbolToken(ctx));
-                }
-                case "'" -> {
-                    if (ctx.isState(RUNE)) {
-                        ctx.putToken(getRuneLiteralToken(ctx));
-                        ctx.curState = DEFAULT;
-                        break;
-                    }
-                    ctx.curState = RUNE;
+            case ' ', '\t', '\r' -> {
+                int[] source = ctx.source();
+                if (source != null) putTriviaRun(ctx, SCANNER.blankRunEnd(source, ctx.nextPos, ctx.size));
+                else ctx.putTrivia();
+            }
+            case '=', '<', '>', '.', ',', ':', '-', '+', '*', '/', '%', '!', '~', '&', '|', '^', '[', ']', '(',
+                 ')', '?' -> {
+                ctx.putToken(getSymbolToken(ctx));
+            }
+            case '\'' -> {
+                if (ctx.isState(RUNE)) {
+                    ctx.putToken(getRuneLiteralToken(ctx));
+                    ctx.curState = DEFAULT;
+                    break;
                 }
-                case "\"" -> {
-                    if (ctx.isState(STRING)) {
-                        ctx.putToken(getStringLiteralToken(ctx));
-                        ctx.curState = DEFAULT;
-                        break;
-                    }
-                    ctx.curState = STRING;
+                ctx.beginLexeme(ctx.nextPos + 1);
+                ctx.curState = RUNE;
+            }
+            case '"' -> {
+                if (ctx.isState(STRING)) {
+                    ctx.putToken(getStringLiteralToken(ctx));
+                    ctx.curState = DEFAULT;
+                    break;
                 }
+                ctx.beginLexeme(ctx.nextPos + 1);
+                ctx.curState = STRING;
+            }
 
-                default -> {
-                    if (isIdentifierStart(ctx.symbol())) {
-                        scanIdentifier(ctx);
-                        ctx.putToken(getLiteralToken(ctx));
-
-                    } else if (isDigit(ctx.symbol())) {
-                        scanNumber(ctx);
-                        ctx.putToken(getIntegerToken(ctx));
-                    } else ctx.putToken(null);
-                }
+            default -> {
+                if (isIdentifierStart(codePoint)) {
+                    scanIdentifier(ctx);
+                    ctx.putToken(getLiteralToken(ctx));
+
+                } else if (isDigit(codePoint)) {
+                    scanNumber(ctx);
+                    ctx.putToken(getIntegerToken(ctx));
+                } else putBadRun(ctx);
             }
         }
+        return true;
+    }
+
+    // Takes the code points from nextPos up to end as trivia at once. Runs stop before a '\n',
+    // which is always scanned on its own.
+    private void putTriviaRun(LexerContext ctx, int end) {
+        ctx.putTrivia(end - ctx.nextPos);
+        ctx.nextPos = end - 1;
+    }
+
+    // Unrecognized code points in a row, e.g. pasted binary data, make one BadToken instead of one each.
+    private void putBadRun(LexerContext ctx) {
+        int first = ctx.nextPos;
+        while (isUnrecognized(ctx.codePoint(ctx.nextPos + 1))) ctx.nextPos++;
+        ctx.curState = DEFAULT;
+        ctx.putToken(new BadToken(first - ctx.countLeadingTrivia, ctx.nextPos + ctx.countTrailingTrivia,
+                ctx.countLeadingTrivia, ctx.countTrailingTrivia));
+    }
+
+    // Code points that neither start a token nor are trivia, the ones scan() turns into a BadToken.
+    private boolean isUnrecognized(int codePoint) {
+        return switch (codePoint) {
+            case -1, '#', '\n', ' ', '\t', '\r', '\'', '"' -> false;
+            default -> singleSymbol(codePoint) == null && !isIdentifierStart(codePoint) && !isDigit(codePoint);
+        };
+    }
 
+    void finish(LexerContext ctx) {
         if (ctx.countLeadingTrivia != 0) {
             ctx.updateToken();
         }
         resetIndentationAtTheEnd(ctx);
-        return ctx.tokens;
+    }
+
+    // Yields tokens one by one while keeping only a fixed-size window of the source in memory.
+    // Produces the same token stream as lex() on the same text.
+    public Iterator<Token> lexStreaming(Reader reader) {
+        return lexStreaming(reader, StreamingLexerContext.DEFAULT_WINDOW_SIZE);
+    }
+
+    public Iterator<Token> lexStreaming(ReadableByteChannel channel) {
+        return lexStreaming(Channels.newReader(channel, StandardCharsets.UTF_8));
+    }
+
+    // Same, with the malformed literals handed to diagnostics as they are found, ahead of the tokens they are in.
+    public Iterator<Token> lexStreaming(Reader reader, Consumer<Diagnostic> diagnostics) {
+        return new TokenIterator(new StreamingLexerContext(reader, StreamingLexerContext.DEFAULT_WINDOW_SIZE), diagnostics);
+    }
+
+    Iterator<Token> lexStreaming(Reader reader, int windowSize) {
+        return new TokenIterator(new StreamingLexerContext(reader, windowSize), diagnostic -> {
+        });
+    }
+
+    // A token is handed out only when it can no longer change: the last non-indentation
+    // token may still receive trailing trivia at the end of input (see LexerContext.updateToken).
+    private class TokenIterator implements Iterator<Token> {
+        private final LexerContext ctx;
+        private final Consumer<Diagnostic> diagnostics;
+        private int ready;
+        // Tokens handed out from the front of ctx.tokens, removed when the next ones are scanned.
+        private int taken;
+        private int scannedTokens;
+        private boolean finished;
+
+        TokenIterator(LexerContext ctx, Consumer<Diagnostic> diagnostics) {
+            this.ctx = ctx;
+            this.diagnostics = diagnostics;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (ready == 0 && !finished) {
+                // One removal for all of them: removing each from the front of the list would move the rest every time.
+                ctx.tokens.subList(0, taken).clear();
+                scannedTokens -= taken;
+                taken = 0;
+                if (!scan(ctx)) {
+                    finish(ctx);
+                    finished = true;
+                    ready = ctx.tokens.size();
+                } else if (ctx.tokens.size() != scannedTokens) {
+                    scannedTokens = ctx.tokens.size();
+                    ready = lastNonIndentationToken();
+                }
+                // Passed on right away, so they do not pile up in the context.
+                ctx.diagnostics.forEach(diagnostics);
+                ctx.diagnostics.clear();
+            }
+            return ready > 0;
+        }
+
+        @Override
+        public Token next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            ready--;
+            return ctx.tokens.get(taken++);
+        }
+
+        private int lastNonIndentationToken() {
+            int index = ctx.tokens.size() - 1;
+            while (index > 0 && ctx.tokens.get(index) instanceof IndentationToken) index--;
+            return Math.max(index, 0);
+        }
+    }
+
+    // Lexes a UTF-8 file without decoding it into a String first. Token positions are in code points, as with lex(String).
+    public List<Token> lex(Path path) {
+        return lex(path, diagnostic -> {
+        });
+    }
+
+    public List<Token> lex(Path path, Consumer<Diagnostic> diagnostics) {
+        LexerContext ctx = mapFile(path);
+        List<Token> tokens = tokenize(ctx);
+        ctx.diagnostics.forEach(diagnostics);
+        return tokens;
+    }
+
+    // Same tokens as lex(), stored in a TokenBuffer instead of a list of Token objects.
+    public TokenBuffer lexToBuffer(String s) {
+        return tokenizeToBuffer(new LexerContext(s), new TokenBuffer(s.length() / 4, names));
+    }
+
+    public TokenBuffer lexToBuffer(Path path) {
+        MappedLexerContext ctx = mapFile(path);
+        return tokenizeToBuffer(ctx, new TokenBuffer(ctx.length() / 4, names));
+    }
+
+    private MappedLexerContext mapFile(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IllegalArgumentException("File is too large to lex: " + path);
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new MappedLexerContext(bytes);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     @Override
     public List<Token> lex(String s) {
+        return lex(s, diagnostic -> {
+        });
+    }
+
+    // Same, with the malformed literals handed to diagnostics.
+    public List<Token> lex(String s, Consumer<Diagnostic> diagnostics) {
         LexerContext ctx = new LexerContext(s);
-        return tokenize(ctx);
+        List<Token> tokens = tokenize(ctx);
+        ctx.diagnostics.forEach(diagnostics);
+        return tokens;
     }
 }
 
@@ -1,14 +1,19 @@
 package syspro.lexer;
 
-import syspro.lexer.utils.UtilMaps;
+import syspro.lexer.diagnostics.EscapeError;
 import syspro.tm.lexer.*;
+import syspro.tm.parser.Diagnostic;
+import syspro.tm.parser.DiagnosticInfo;
+import syspro.tm.parser.ErrorCode;
+import syspro.tm.parser.SyntaxKind;
+import syspro.tm.parser.TextSpan;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 import static syspro.lexer.State.ObservedState.DEFAULT;
 import static syspro.lexer.State.ObservedState.INDENTATION;
-import static syspro.lexer.utils.UnicodeReader.codePointToString;
 import static syspro.lexer.utils.UnicodeReader.getUnicodePoints;
 
 public class LexerContext {
@@ -24,81 +29,138 @@ public class LexerContext {
     public int end;
 
     public int[] codePoints;
-    public StringBuilder symbolBuffer;
+    // Number of code points of the source, codePoints may be longer when it is reused (see LexerSession).
+    int size;
+    // Index of the first code point of the lexeme being scanned, -1 if there is none.
+    public int lexemeStart = -1;
     public ArrayList<Token> tokens;
+    // When set, tokens go here instead of into tokens.
+    public TokenBuffer buffer;
+    // Malformed escapes and overflowing integers in literals, positions in code points like token positions.
+    public List<Diagnostic> diagnostics = new ArrayList<>();
     public int lessThanCounter;
 
     public State.ObservedState curState;
 
 
     public LexerContext(String source) {
+        this(getUnicodePoints(source));
+    }
+
+    LexerContext(int[] codePoints) {
         this.curState = DEFAULT;
-        this.symbolBuffer = new StringBuilder();
         this.tokens = new ArrayList<Token>();
-        this.codePoints = getUnicodePoints(source);
+        this.codePoints = codePoints;
+        this.size = codePoints.length;
+    }
+
+    // Starts over on the first size code points of codePoints, keeping the capacity of the lists.
+    void reset(int size) {
+        this.size = size;
+        countLeadingTrivia = countTrailingTrivia = 0;
+        curIndentationLevel = prevIndentationLevel = indentationLength = 0;
+        nextPos = -1;
+        start = end = 0;
+        lexemeStart = -1;
+        lessThanCounter = 0;
+        curState = DEFAULT;
+        tokens.clear();
+        buffer = null;
+        diagnostics.clear();
+    }
+
+    void report(int start, int end, String msg) {
+        report(start, end, new EscapeError(msg));
+    }
+
+    void report(int start, int end, ErrorCode errorCode) {
+        diagnostics.add(new Diagnostic(new DiagnosticInfo(errorCode, null), new TextSpan(start, end - start), null));
     }
 
     void cancel() {
         nextPos--;
     }
 
-    String getSuffix() {
-        if (nextPos + 3 >= codePoints.length) return "";
-        return symbol(nextPos) + symbol(nextPos + 1) + symbol(nextPos + 2);
+    // Returns the built-in type of the i32/i64/u32/u64 suffix starting at pos, or null.
+    BuiltInType suffix(int pos) {
+        if (isEOF(pos + 3)) return null;
+        int sign = codePoint(pos);
+        boolean is32 = codePoint(pos + 1) == '3' && codePoint(pos + 2) == '2';
+        boolean is64 = codePoint(pos + 1) == '6' && codePoint(pos + 2) == '4';
+        if (sign == 'i') return is32 ? BuiltInType.INT32 : is64 ? BuiltInType.INT64 : null;
+        if (sign == 'u') return is32 ? BuiltInType.UINT32 : is64 ? BuiltInType.UINT64 : null;
+        return null;
     }
 
-    boolean hasSuffix() {
-        if (nextPos + 3 >= codePoints.length) return false;
-        String suffix = getSuffix();
-        return Objects.nonNull(UtilMaps.builtInTypeMap.get(suffix));
+    public void beginLexeme(int pos) {
+        lexemeStart = pos;
     }
 
-    public void resetBuffer() {
-        symbolBuffer = new StringBuilder();
+    public void resetLexeme() {
+        lexemeStart = -1;
     }
 
-    public void putNext() {
-        symbolBuffer.append(symbol());
+    public boolean hasLexeme() {
+        return lexemeStart >= 0;
     }
 
-    public boolean hasLexeme() {
-        return !symbolBuffer.isEmpty();
+    // Length of the lexeme that ends right before pos.
+    int lexemeLength(int pos) {
+        return pos - lexemeStart;
     }
 
-    public String symbol() {
-        assert nextPos < codePoints.length;
-        return codePointToString(codePoints[nextPos]);
+    String lexeme(int endPos) {
+        return new String(codePoints, lexemeStart, lexemeLength(endPos));
     }
 
-    public String symbol(int pos) {
-        assert pos < codePoints.length;
-        return codePointToString(codePoints[pos]);
+    public int codePoint() {
+        assert nextPos < size;
+        return codePoints[nextPos];
     }
 
-    public boolean isSymbol(String string) {
-        return Objects.equals(symbol(nextPos), string);
+    public int codePoint(int pos) {
+        return isEOF(pos) ? -1 : codePoints[pos];
     }
 
-    public boolean isNext(String string) {
-        return Objects.equals(symbol(nextPos + 1), string);
+    // The whole source indexed by position, the first size code points. Null when a subclass keeps it some other way.
+    // Lexer only scans runs in bulk when it is available.
+    int[] source() {
+        return codePoints;
+    }
+
+    public boolean isNext(int codePoint) {
+        return codePoint(nextPos + 1) == codePoint;
     }
 
 
     void putToken(Token token) {
         if (Objects.isNull(token)) {
             BadToken badToken = new BadToken(nextPos - countLeadingTrivia, nextPos + countTrailingTrivia, countLeadingTrivia, countTrailingTrivia);
-            tokens.add(badToken);
+            addToken(badToken);
             curState = DEFAULT;
-            resetBuffer();
         } else {
-            tokens.add(token);
-            resetBuffer();
+            addToken(token);
         }
+        resetLexeme();
         start = end = nextPos;
         if (curState.equals(INDENTATION)) return;
         countTrailingTrivia = countLeadingTrivia = 0;
     }
 
+    private void addToken(Token token) {
+        if (buffer != null) buffer.add(token);
+        else tokens.add(token);
+    }
+
+    int tokenCount() {
+        return buffer != null ? buffer.size() : tokens.size();
+    }
+
+    private boolean isIndentationToken(int index) {
+        if (buffer != null) return buffer.kind(index) == TokenBuffer.INDENTATION;
+        return tokens.get(index) instanceof IndentationToken;
+    }
+
     void putTrivia() {
         if (!hasLexeme()) {
             countLeadingTrivia++;
@@ -107,18 +169,22 @@ public class LexerContext {
         }
     }
 
-
-    int bufferLen() {
-        return (int) symbolBuffer.codePoints().count();
+    void putTrivia(int count) {
+        if (!hasLexeme()) {
+            countLeadingTrivia += count;
+        } else {
+            countTrailingTrivia += count;
+        }
     }
 
+
     int countNewlineLen() {
         if (nextPos == 0) return 0;
-        return codePoints[nextPos - 1] == '\r' ? 1 : 0;
+        return codePoint(nextPos - 1) == '\r' ? 1 : 0;
     }
 
     boolean isEOF(int pos) {
-        return !(pos < codePoints.length);
+        return !(pos < size);
     }
 
     boolean isState(State.ObservedState state) {
@@ -130,20 +196,31 @@ public class LexerContext {
     }
 
     boolean isNewline(int pos) {
-        assert pos < codePoints.length || pos + 1 < codePoints.length;
-        return codePoints[pos] == '\n' || (codePoints[pos] == '\r' && codePoints[pos + 1] == '\n');
+        return codePoint(pos) == '\n' || (codePoint(pos) == '\r' && codePoint(pos + 1) == '\n');
 
     }
 
     void updateToken() {
-        int counter = tokens.size() - 1;
-        while (counter - 1 >= 0 && tokens.get(counter) instanceof IndentationToken) {
-            counter--;
+        int counter = lastTokenIndex();
+        // Only trivia and indentation: no token to take it.
+        if (counter < 0 || isIndentationToken(counter)) return;
+        if (buffer != null) {
+            buffer.addTrailingTrivia(counter, countLeadingTrivia);
+            return;
         }
         Token token = tokens.get(counter);
         tokens.set(counter, updateToken(token));
     }
 
+    // Index of the token that updateToken() gives the remaining trivia to.
+    int lastTokenIndex() {
+        int counter = tokenCount() - 1;
+        while (counter - 1 >= 0 && isIndentationToken(counter)) {
+            counter--;
+        }
+        return counter;
+    }
+
     private Token updateToken(Token tokenToUpdate) {
         return switch (tokenToUpdate) {
             case BooleanLiteralToken b ->
@@ -166,5 +243,39 @@ public class LexerContext {
         };
     }
 
+    // Copy of the token moved by delta code points.
+    public static Token shift(Token token, int delta) {
+        if (delta == 0) return token;
+        return switch (token) {
+            case BooleanLiteralToken b ->
+                    new BooleanLiteralToken(b.start + delta, b.end + delta, b.leadingTriviaLength, b.trailingTriviaLength, b.value);
+            case IdentifierToken i ->
+                    new IdentifierToken(i.start + delta, i.end + delta, i.leadingTriviaLength, i.trailingTriviaLength, i.value, i.contextualKeyword);
+            case IntegerLiteralToken i ->
+                    new IntegerLiteralToken(i.start + delta, i.end + delta, i.leadingTriviaLength, i.trailingTriviaLength, i.type, i.hasTypeSuffix, i.value);
+            case KeywordToken k ->
+                    new KeywordToken(k.start + delta, k.end + delta, k.leadingTriviaLength, k.trailingTriviaLength, k.keyword);
+            case RuneLiteralToken r ->
+                    new RuneLiteralToken(r.start + delta, r.end + delta, r.leadingTriviaLength, r.trailingTriviaLength, r.value);
+            case StringLiteralToken s ->
+                    new StringLiteralToken(s.start + delta, s.end + delta, s.leadingTriviaLength, s.trailingTriviaLength, s.value);
+            case SymbolToken s ->
+                    new SymbolToken(s.start + delta, s.end + delta, s.leadingTriviaLength, s.trailingTriviaLength, s.symbol);
+            case BadToken b ->
+                    new BadToken(b.start + delta, b.end + delta, b.leadingTriviaLength, b.trailingTriviaLength);
+            case IndentationToken i ->
+                    new IndentationToken(i.start + delta, i.end + delta, i.leadingTriviaLength, i.trailingTriviaLength,
+                            i.toSyntaxKind() == SyntaxKind.INDENT ? 1 : -1);
+            default -> throw new IllegalStateException("Unexpected value: " + token);
+        };
+    }
+
+    // Copy of the diagnostic moved by delta code points.
+    public static Diagnostic shift(Diagnostic diagnostic, int delta) {
+        if (delta == 0) return diagnostic;
+        TextSpan location = diagnostic.location();
+        return new Diagnostic(diagnostic.info(), new TextSpan(location.start + delta, location.length), diagnostic.hints());
+    }
+
 
 }
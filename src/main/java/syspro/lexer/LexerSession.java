@@ -0,0 +1,76 @@
+package syspro.lexer;
+
+import syspro.tm.lexer.Token;
+import syspro.tm.parser.Diagnostic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Lexes many small sources in a row without allocating a context, a code point array and a token list per call.
+// The buffers are kept between calls, but not the ones of a source larger than the small ones it is meant for.
+// A session is confined to one thread, like the NameTable of its lexer; local() gives each thread its own.
+public final class LexerSession {
+
+    private static final ThreadLocal<LexerSession> LOCAL = ThreadLocal.withInitial(LexerSession::new);
+
+    // Largest buffers kept for the next call.
+    static final int MAX_KEPT_CODE_POINTS = 1 << 16;
+    static final int MAX_KEPT_TOKENS = 1 << 14;
+    // A session that made its lexer starts its names over beyond this many, see lex().
+    static final int MAX_NAMES = 1 << 14;
+
+    public final Lexer lexer;
+    private final boolean ownsLexer;
+    private final LexerContext ctx = new LexerContext(new int[64]);
+
+    public LexerSession() {
+        this(new Lexer(), true);
+    }
+
+    // The names of lexer are the caller's: they are kept as long as the caller keeps them.
+    public LexerSession(Lexer lexer) {
+        this(lexer, false);
+    }
+
+    private LexerSession(Lexer lexer, boolean ownsLexer) {
+        this.lexer = lexer;
+        this.ownsLexer = ownsLexer;
+    }
+
+    // The session of the current thread, with a lexer of its own.
+    public static LexerSession local() {
+        return LOCAL.get();
+    }
+
+    // Same tokens as lexer.lex(source). The list belongs to the session and is overwritten by the next call.
+    public List<Token> lex(String source) {
+        // Names are only interned for their Strings to be shared, so the session's own table can start over
+        // rather than keep every name of every source a thread has lexed.
+        if (ownsLexer && lexer.names.size() > MAX_NAMES) lexer.names.clear();
+        if (ctx.tokens.size() > MAX_KEPT_TOKENS) ctx.tokens = new ArrayList<>();
+        ctx.reset(decode(source));
+        List<Token> tokens = lexer.tokenize(ctx);
+        // The tokens do not refer to the code points.
+        if (ctx.codePoints.length > MAX_KEPT_CODE_POINTS) ctx.codePoints = new int[64];
+        return tokens;
+    }
+
+    // Malformed literals found by the last call to lex().
+    public List<Diagnostic> diagnostics() {
+        return ctx.diagnostics;
+    }
+
+    // Decodes the source into ctx.codePoints, growing it when needed. Returns the number of code points.
+    private int decode(String source) {
+        int length = source.length();
+        if (ctx.codePoints.length < length) ctx.codePoints = new int[Math.max(length, ctx.codePoints.length * 2)];
+        int[] codePoints = ctx.codePoints;
+        int count = 0;
+        for (int i = 0; i < length; count++) {
+            int codePoint = source.codePointAt(i);
+            codePoints[count] = codePoint;
+            i += Character.charCount(codePoint);
+        }
+        return count;
+    }
+}
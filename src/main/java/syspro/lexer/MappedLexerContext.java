@@ -0,0 +1,142 @@
+package syspro.lexer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// LexerContext over UTF-8 bytes (usually a memory-mapped file) that decodes code points on demand.
+// Positions stay in code points. For pure ASCII input a position is the byte offset itself.
+// Otherwise the byte offset of every BLOCK_SIZE-th code point is recorded up front; a block that
+// takes exactly BLOCK_SIZE bytes is ASCII and is indexed directly, other blocks are walked from
+// their start or from the last decoded position.
+// Malformed sequences decode to U+FFFD, one per lead byte.
+class MappedLexerContext extends LexerContext {
+
+    private static final int BLOCK_SHIFT = 6;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final long NON_ASCII_MASK = 0x8080808080808080L;
+    private static final int REPLACEMENT = 0xFFFD;
+
+    private final ByteBuffer bytes;
+    private final int length;
+    private final boolean ascii;
+    // Byte offset of code point i * BLOCK_SIZE, with the byte length as the last entry.
+    private final int[] blocks;
+
+    // Last decoded position, so that sequential reads inside a non-ASCII block do not walk it again.
+    private int cursorPos;
+    private int cursorByte;
+
+    MappedLexerContext(ByteBuffer bytes) {
+        super(new int[0]);
+        this.bytes = bytes;
+        int size = bytes.limit();
+
+        int asciiPrefix = asciiPrefix(bytes, size);
+        this.ascii = asciiPrefix == size;
+        if (ascii) {
+            this.length = size;
+            this.blocks = null;
+            return;
+        }
+
+        int[] offsets = new int[(size >>> BLOCK_SHIFT) + 2];
+        for (int block = 0; block << BLOCK_SHIFT < asciiPrefix; block++) offsets[block] = block << BLOCK_SHIFT;
+        int count = asciiPrefix;
+        int offset = asciiPrefix;
+        while (offset < size) {
+            if ((count & (BLOCK_SIZE - 1)) == 0) offsets[count >>> BLOCK_SHIFT] = offset;
+            offset += sequenceLength(offset);
+            count++;
+        }
+        int blockCount = (count + BLOCK_SIZE - 1) >>> BLOCK_SHIFT;
+        offsets[blockCount] = size;
+        this.length = count;
+        this.blocks = offsets;
+    }
+
+    // Number of leading ASCII bytes, checked eight at a time.
+    private static int asciiPrefix(ByteBuffer bytes, int size) {
+        int i = 0;
+        while (i + Long.BYTES <= size && (bytes.getLong(i) & NON_ASCII_MASK) == 0) i += Long.BYTES;
+        while (i < size && bytes.get(i) >= 0) i++;
+        return i;
+    }
+
+    private int sequenceLength(int offset) {
+        int lead = bytes.get(offset) & 0xFF;
+        int length = lead < 0xC0 ? 1 : lead < 0xE0 ? 2 : lead < 0xF0 ? 3 : lead < 0xF8 ? 4 : 1;
+        return Math.min(length, bytes.limit() - offset);
+    }
+
+    private int decode(int offset) {
+        int lead = bytes.get(offset) & 0xFF;
+        if (lead < 0x80) return lead;
+        int sequenceLength = sequenceLength(offset);
+        if (sequenceLength == 1) return REPLACEMENT;
+
+        int codePoint = lead & (0x7F >>> sequenceLength);
+        for (int i = 1; i < sequenceLength; i++) {
+            int next = bytes.get(offset + i);
+            if ((next & 0xC0) != 0x80) return REPLACEMENT;
+            codePoint = (codePoint << 6) | (next & 0x3F);
+        }
+        return codePoint <= Character.MAX_CODE_POINT ? codePoint : REPLACEMENT;
+    }
+
+    private int byteOffset(int pos) {
+        if (ascii) return pos;
+        int block = pos >>> BLOCK_SHIFT;
+        int blockStart = blocks[block];
+        boolean isFullBlock = block < length >>> BLOCK_SHIFT;
+        if (isFullBlock && blocks[block + 1] - blockStart == BLOCK_SIZE) return blockStart + (pos & (BLOCK_SIZE - 1));
+
+        if (cursorPos > pos || cursorPos < pos - (pos & (BLOCK_SIZE - 1))) {
+            cursorPos = pos & ~(BLOCK_SIZE - 1);
+            cursorByte = blockStart;
+        }
+        while (cursorPos < pos) {
+            cursorByte += sequenceLength(cursorByte);
+            cursorPos++;
+        }
+        return cursorByte;
+    }
+
+    int length() {
+        return length;
+    }
+
+    @Override
+    int[] source() {
+        return null;
+    }
+
+    @Override
+    public int codePoint() {
+        return codePoint(nextPos);
+    }
+
+    @Override
+    public int codePoint(int pos) {
+        if (pos < 0 || pos >= length) return -1;
+        if (ascii) return bytes.get(pos);
+        return decode(byteOffset(pos));
+    }
+
+    @Override
+    boolean isEOF(int pos) {
+        return pos >= length;
+    }
+
+    @Override
+    String lexeme(int endPos) {
+        int lexemeLength = lexemeLength(endPos);
+        if (ascii) {
+            byte[] lexeme = new byte[lexemeLength];
+            bytes.get(lexemeStart, lexeme);
+            return new String(lexeme, StandardCharsets.US_ASCII);
+        }
+        StringBuilder builder = new StringBuilder(lexemeLength);
+        for (int pos = lexemeStart; pos < endPos; pos++) builder.appendCodePoint(codePoint(pos));
+        return builder.toString();
+    }
+}
@@ -0,0 +1,146 @@
+package syspro.lexer;
+
+import java.util.Arrays;
+
+// Interns identifier names. Every distinct name gets a dense int id and one canonical String,
+// so names coming from the same table can be compared by id (or by String identity).
+// Names are looked up straight from the code points of a LexerContext, a String is created
+// only the first time a name is seen. Not thread-safe.
+public class NameTable {
+
+    private String[] names = new String[64];
+    private int[] hashes = new int[64];
+    // Code points of name i are pool[poolStarts[i]..poolStarts[i + 1]).
+    private int[] poolStarts = new int[65];
+    private int[] pool = new int[256];
+    private int size;
+
+    // Open addressing table of id + 1, 0 for an empty slot.
+    private int[] slots = new int[128];
+
+    public int size() {
+        return size;
+    }
+
+    // Forgets every name and gives back the memory they took. Ids handed out before are no longer valid.
+    void clear() {
+        names = new String[64];
+        hashes = new int[64];
+        poolStarts = new int[65];
+        pool = new int[256];
+        slots = new int[128];
+        size = 0;
+    }
+
+    public String name(int id) {
+        if (id < 0 || id >= size) throw new IndexOutOfBoundsException(id);
+        return names[id];
+    }
+
+    public int intern(String name) {
+        int hash = hash(name);
+        int slot = findSlot(name, hash);
+        if (slots[slot] != 0) return slots[slot] - 1;
+        int[] codePoints = name.codePoints().toArray();
+        return add(slot, hash, codePoints, name);
+    }
+
+    // Id of the name, -1 if it was never interned.
+    public int find(String name) {
+        return slots[findSlot(name, hash(name))] - 1;
+    }
+
+    // Interns the code points [start, end) of the source.
+    int intern(LexerContext ctx, int start, int end) {
+        int hash = 0;
+        for (int pos = start; pos < end; pos++) hash = hash(hash, ctx.codePoint(pos));
+
+        int mask = slots.length - 1;
+        int slot = spread(hash) & mask;
+        while (slots[slot] != 0) {
+            int id = slots[slot] - 1;
+            if (hashes[id] == hash && matches(id, ctx, start, end)) return id;
+            slot = (slot + 1) & mask;
+        }
+        int[] codePoints = new int[end - start];
+        for (int pos = start; pos < end; pos++) codePoints[pos - start] = ctx.codePoint(pos);
+        return add(slot, hash, codePoints, new String(codePoints, 0, codePoints.length));
+    }
+
+    private boolean matches(int id, LexerContext ctx, int start, int end) {
+        int from = poolStarts[id];
+        if (poolStarts[id + 1] - from != end - start) return false;
+        for (int pos = start; pos < end; pos++) {
+            if (pool[from + pos - start] != ctx.codePoint(pos)) return false;
+        }
+        return true;
+    }
+
+    // Mixes the high bits in, since only the low ones select a slot.
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    // Same as String.hashCode(), so a canonical String never needs hashing twice.
+    private static int hash(String name) {
+        return name.hashCode();
+    }
+
+    private static int hash(int hash, int codePoint) {
+        if (Character.isBmpCodePoint(codePoint)) return 31 * hash + codePoint;
+        return 31 * (31 * hash + Character.highSurrogate(codePoint)) + Character.lowSurrogate(codePoint);
+    }
+
+    private boolean matches(int id, String name) {
+        if (names[id] == name) return true;
+        int pos = poolStarts[id];
+        int end = poolStarts[id + 1];
+        for (int i = 0; i < name.length(); pos++) {
+            int codePoint = name.codePointAt(i);
+            if (pos == end || pool[pos] != codePoint) return false;
+            i += Character.charCount(codePoint);
+        }
+        return pos == end;
+    }
+
+    private int findSlot(String name, int hash) {
+        int mask = slots.length - 1;
+        int slot = spread(hash) & mask;
+        while (slots[slot] != 0) {
+            int id = slots[slot] - 1;
+            if (hashes[id] == hash && matches(id, name)) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int add(int slot, int hash, int[] codePoints, String name) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+            poolStarts = Arrays.copyOf(poolStarts, size * 2 + 1);
+        }
+        int poolEnd = poolStarts[size];
+        int length = codePoints.length;
+        if (poolEnd + length > pool.length) pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolEnd + length));
+        System.arraycopy(codePoints, 0, pool, poolEnd, length);
+
+        int id = size++;
+        names[id] = name;
+        hashes[id] = hash;
+        poolStarts[size] = poolEnd + length;
+        slots[slot] = id + 1;
+        if (size * 2 > slots.length) rehash();
+        return id;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = spread(hashes[id]) & mask;
+            while (slots[slot] != 0) slot = (slot + 1) & mask;
+            slots[slot] = id + 1;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package syspro.lexer;
+
+import syspro.tm.lexer.IdentifierToken;
+import syspro.tm.lexer.Token;
+import syspro.tm.parser.Diagnostic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+import static syspro.lexer.State.ObservedState.INDENTATION;
+import static syspro.lexer.utils.UnicodeReader.getUnicodePoints;
+
+// Lexes a large source on several threads and produces the same tokens as Lexer.lex().
+// The source is cut right after newlines that are followed by a line starting at column 0.
+// Every chunk but the first is lexed assuming the lexer is in the state it has after such a newline:
+// no open literal or comment, indentation level 0, and trivia made of the whitespace just before the cut.
+// Chunks are stitched in order. When the real state at a cut differs from the assumed one (a string
+// spanning lines, a comment before the cut), the chunk is relexed from the real state until the first
+// newline where both states agree again; the rest of the speculative tokens is kept.
+// Diagnostics are stitched the same way, so they come in the order the sequential lexer reports them.
+public class ParallelLexer {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
+    // Layout of one recorded line state.
+    private static final int POS = 0;
+    private static final int TOKENS = 1;
+    private static final int LEADING_TRIVIA = 2;
+    private static final int TRAILING_TRIVIA = 3;
+    private static final int CUR_LEVEL = 4;
+    private static final int INDENTATION_LENGTH = 5;
+    private static final int LESS_THAN_COUNTER = 6;
+    private static final int STATE = 7;
+    private static final int LEXEME_START = 8;
+    private static final int DIAGNOSTICS = 9;
+    private static final int STATE_SIZE = 10;
+
+    private final Lexer lexer;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    public ParallelLexer() {
+        this(new Lexer(), ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    // Identifier names end up in lexer.names, as with sequential lexing.
+    public ParallelLexer(Lexer lexer, ForkJoinPool pool, int chunkSize) {
+        if (chunkSize <= 0) throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        this.lexer = lexer;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    public List<Token> lex(String source) {
+        return lex(source, diagnostic -> {
+        });
+    }
+
+    // Same, with the malformed literals handed to diagnostics.
+    public List<Token> lex(String source, Consumer<Diagnostic> diagnostics) {
+        int[] codePoints = getUnicodePoints(source);
+        int[] cuts = findCuts(codePoints);
+
+        List<ForkJoinTask<Chunk>> tasks = new ArrayList<>();
+        for (int i = 0; i + 1 < cuts.length; i++) {
+            int from = cuts[i];
+            int to = cuts[i + 1];
+            tasks.add(pool.submit(() -> lexChunk(codePoints, from, to)));
+        }
+
+        ArrayList<Token> tokens = new ArrayList<>(codePoints.length / 4);
+        LexerContext ctx = null;
+        for (int i = 0; i < tasks.size(); i++) {
+            Chunk chunk = tasks.get(i).join();
+            if (ctx == null || matches(ctx, chunk.assumed, 0)) {
+                addCanonical(tokens, chunk.ctx.tokens, 0);
+                ctx = chunk.ctx;
+            } else {
+                ctx = relex(ctx, chunk, cuts[i + 1], tokens, diagnostics);
+            }
+            // Whatever the context reports from here on is new.
+            ctx.diagnostics.forEach(diagnostics);
+            ctx.diagnostics.clear();
+        }
+
+        ctx.tokens = tokens;
+        while (lexer.scan(ctx)) ;
+        lexer.finish(ctx);
+        ctx.diagnostics.forEach(diagnostics);
+        return tokens;
+    }
+
+    // Chunk starts: 0, then every position after a newline that begins a column 0 line, about chunkSize apart.
+    private int[] findCuts(int[] codePoints) {
+        int[] cuts = new int[codePoints.length / chunkSize + 2];
+        int count = 1;
+        int pos = chunkSize;
+        while (pos < codePoints.length) {
+            while (pos < codePoints.length && !isCut(codePoints, pos)) pos++;
+            if (pos == codePoints.length) break;
+            cuts[count++] = pos;
+            pos += chunkSize;
+        }
+        cuts[count++] = codePoints.length;
+        return Arrays.copyOf(cuts, count);
+    }
+
+    private static boolean isCut(int[] codePoints, int pos) {
+        if (codePoints[pos - 1] != '\n') return false;
+        int codePoint = codePoints[pos];
+        return codePoint != ' ' && codePoint != '\t' && codePoint != '\r' && codePoint != '\n';
+    }
+
+    private Chunk lexChunk(int[] codePoints, int from, int to) {
+        // Each thread interns into its own table, names are made canonical while stitching.
+        Lexer chunkLexer = new Lexer();
+        LexerContext ctx = new LexerContext(codePoints);
+        if (from > 0) {
+            ctx.nextPos = from - 1;
+            ctx.curState = INDENTATION;
+            int trivia = 0;
+            while (from - 1 - trivia >= 0 && isWhitespace(codePoints[from - 1 - trivia])) trivia++;
+            ctx.countLeadingTrivia = trivia;
+        }
+
+        Chunk chunk = new Chunk(ctx);
+        record(chunk.assumed, 0, ctx, 0);
+        while (ctx.nextPos + 1 < to && chunkLexer.scan(ctx)) {
+            if (ctx.codePoint() == '\n') chunk.addLine(ctx);
+        }
+        return chunk;
+    }
+
+    private static boolean isWhitespace(int codePoint) {
+        return codePoint == ' ' || codePoint == '\t' || codePoint == '\r' || codePoint == '\n';
+    }
+
+    // Continues the real state over the chunk until it agrees with the speculative one at a newline.
+    private LexerContext relex(LexerContext ctx, Chunk chunk, int to, ArrayList<Token> tokens,
+                               Consumer<Diagnostic> diagnostics) {
+        ctx.tokens = new ArrayList<>();
+        int line = 0;
+        while (ctx.nextPos + 1 < to && lexer.scan(ctx)) {
+            if (ctx.codePoint() != '\n') continue;
+            while (line < chunk.lineCount && chunk.lines[line * STATE_SIZE + POS] < ctx.nextPos) line++;
+            if (line < chunk.lineCount && chunk.lines[line * STATE_SIZE + POS] == ctx.nextPos
+                    && matches(ctx, chunk.lines, line * STATE_SIZE)) {
+                tokens.addAll(ctx.tokens);
+                addCanonical(tokens, chunk.ctx.tokens, chunk.lines[line * STATE_SIZE + TOKENS]);
+                ctx.diagnostics.forEach(diagnostics);
+                // The speculative ones before this line were reported from the wrong state.
+                chunk.ctx.diagnostics.subList(0, chunk.lines[line * STATE_SIZE + DIAGNOSTICS]).clear();
+                return chunk.ctx;
+            }
+        }
+        tokens.addAll(ctx.tokens);
+        return ctx;
+    }
+
+    private void addCanonical(ArrayList<Token> tokens, List<Token> chunkTokens, int from) {
+        for (int i = from; i < chunkTokens.size(); i++) {
+            Token token = chunkTokens.get(i);
+            if (token instanceof IdentifierToken t && t.contextualKeyword == null) {
+                String name = lexer.names.name(lexer.names.intern(t.value));
+                if (name != t.value) token = new IdentifierToken(t.start, t.end, t.leadingTriviaLength, t.trailingTriviaLength, name, null);
+            }
+            tokens.add(token);
+        }
+    }
+
+    private static void record(int[] states, int base, LexerContext ctx, int tokenCount) {
+        states[base + POS] = ctx.nextPos;
+        states[base + TOKENS] = tokenCount;
+        states[base + LEADING_TRIVIA] = ctx.countLeadingTrivia;
+        states[base + TRAILING_TRIVIA] = ctx.countTrailingTrivia;
+        states[base + CUR_LEVEL] = ctx.curIndentationLevel;
+        states[base + INDENTATION_LENGTH] = ctx.indentationLength;
+        states[base + LESS_THAN_COUNTER] = ctx.lessThanCounter;
+        states[base + STATE] = ctx.curState.ordinal();
+        states[base + LEXEME_START] = ctx.lexemeStart;
+        states[base + DIAGNOSTICS] = ctx.diagnostics.size();
+    }
+
+    // prevIndentationLevel is always overwritten before it is read, and so is indentationLength at level 0:
+    // neither can change later tokens, so they are not compared.
+    private static boolean matches(LexerContext ctx, int[] states, int base) {
+        return states[base + LEADING_TRIVIA] == ctx.countLeadingTrivia
+                && states[base + TRAILING_TRIVIA] == ctx.countTrailingTrivia
+                && states[base + CUR_LEVEL] == ctx.curIndentationLevel
+                && (ctx.curIndentationLevel == 0 || states[base + INDENTATION_LENGTH] == ctx.indentationLength)
+                && states[base + LESS_THAN_COUNTER] == ctx.lessThanCounter
+                && states[base + STATE] == ctx.curState.ordinal()
+                && states[base + LEXEME_START] == ctx.lexemeStart;
+    }
+
+    // Speculative result of one chunk with the state recorded after each of its newlines.
+    private static class Chunk {
+        final LexerContext ctx;
+        final int[] assumed = new int[STATE_SIZE];
+        int[] lines = new int[STATE_SIZE * 64];
+        int lineCount;
+
+        Chunk(LexerContext ctx) {
+            this.ctx = ctx;
+        }
+
+        void addLine(LexerContext ctx) {
+            if ((lineCount + 1) * STATE_SIZE > lines.length) lines = Arrays.copyOf(lines, lines.length * 2);
+            record(lines, lineCount++ * STATE_SIZE, ctx, ctx.tokens.size());
+        }
+    }
+}
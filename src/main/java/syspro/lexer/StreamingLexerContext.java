@@ -0,0 +1,110 @@
+package syspro.lexer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+// LexerContext that reads code points from a Reader into a sliding window instead of
+// holding the whole source. Positions stay absolute: codePoints[0] is the code point at windowBase.
+// The window keeps the lexeme being scanned and the code point before nextPos (needed for \r\n);
+// everything older is dropped on refill. It grows only if a single lexeme does not fit.
+class StreamingLexerContext extends LexerContext {
+
+    static final int DEFAULT_WINDOW_SIZE = 1 << 16;
+
+    private final Reader reader;
+    private final char[] chars;
+    private int pendingHighSurrogate = -1;
+    private boolean endOfInput;
+
+    private int windowBase;
+    private int windowLength;
+
+    StreamingLexerContext(Reader reader, int windowSize) {
+        super(new int[Math.max(windowSize, 8)]);
+        this.reader = reader;
+        this.chars = new char[codePoints.length];
+    }
+
+    @Override
+    int[] source() {
+        return null;
+    }
+
+    @Override
+    String lexeme(int endPos) {
+        return new String(codePoints, lexemeStart - windowBase, lexemeLength(endPos));
+    }
+
+    @Override
+    public int codePoint() {
+        return codePoints[nextPos - windowBase];
+    }
+
+    @Override
+    public int codePoint(int pos) {
+        if (pos < windowBase || isEOF(pos)) return -1;
+        return codePoints[pos - windowBase];
+    }
+
+    @Override
+    boolean isEOF(int pos) {
+        while (pos >= windowBase + windowLength) {
+            if (!fill()) return true;
+        }
+        return false;
+    }
+
+    private boolean fill() {
+        if (endOfInput) return false;
+        if (codePoints.length - windowLength < 2) makeRoom();
+
+        int free = codePoints.length - windowLength;
+        int added = 0;
+        try {
+            while (added == 0 && !endOfInput) {
+                int read = reader.read(chars, 0, Math.min(chars.length, free - 1));
+                if (read < 0) {
+                    endOfInput = true;
+                    if (pendingHighSurrogate >= 0) codePoints[windowLength + added++] = pendingHighSurrogate;
+                    pendingHighSurrogate = -1;
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    char c = chars[i];
+                    if (pendingHighSurrogate >= 0) {
+                        if (Character.isLowSurrogate(c)) {
+                            codePoints[windowLength + added++] = Character.toCodePoint((char) pendingHighSurrogate, c);
+                            pendingHighSurrogate = -1;
+                            continue;
+                        }
+                        codePoints[windowLength + added++] = pendingHighSurrogate;
+                        pendingHighSurrogate = -1;
+                    }
+                    if (Character.isHighSurrogate(c)) pendingHighSurrogate = c;
+                    else codePoints[windowLength + added++] = c;
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        windowLength += added;
+        return added > 0;
+    }
+
+    private void makeRoom() {
+        int keepFrom = Math.max(nextPos - 1, windowBase);
+        if (hasLexeme()) keepFrom = Math.min(keepFrom, lexemeStart);
+
+        int drop = keepFrom - windowBase;
+        if (drop > 0) {
+            System.arraycopy(codePoints, drop, codePoints, 0, windowLength - drop);
+            windowBase += drop;
+            windowLength -= drop;
+        }
+        // Room for at least one char and a pending surrogate.
+        if (codePoints.length - windowLength < 2) {
+            codePoints = Arrays.copyOf(codePoints, codePoints.length * 2);
+        }
+    }
+}
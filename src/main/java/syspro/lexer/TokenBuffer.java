@@ -0,0 +1,308 @@
+package syspro.lexer;
+
+import syspro.tm.lexer.*;
+import syspro.tm.parser.AnySyntaxKind;
+import syspro.tm.parser.Diagnostic;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Tokens stored column-wise in primitive arrays instead of one object per token.
+// Every token has a kind, start, end, trivia lengths and an int payload:
+// - symbols, keywords - enum ordinal
+// - booleans - 0/1, runes - the code point, indentation - the level difference
+// - identifiers - name id in the NameTable
+// - contextual keywords, strings - index into strings (with the contextual keyword next to it)
+// - integers - index into integers and integerTypes
+// Token objects are created only when token() or a get() of asList() is called, a new one on every call.
+// The lexer still hands every lexeme to add() as a short-lived Token, which is taken apart into the arrays.
+// Reads do not change the buffer or its NameTable, so lexed tokens can be read from several threads.
+public class TokenBuffer {
+
+    public static final byte BAD = 0;
+    public static final byte BOOLEAN = 1;
+    public static final byte IDENTIFIER = 2;
+    public static final byte INDENTATION = 3;
+    public static final byte INTEGER = 4;
+    public static final byte KEYWORD = 5;
+    public static final byte RUNE = 6;
+    public static final byte STRING = 7;
+    public static final byte SYMBOL = 8;
+    public static final byte CONTEXTUAL_IDENTIFIER = 9;
+
+    private static final Symbol[] SYMBOLS = Symbol.values();
+    private static final Keyword[] KEYWORDS = Keyword.values();
+    private static final BuiltInType[] BUILT_IN_TYPES = BuiltInType.values();
+    private static final int NO_KEYWORD = -1;
+    private static final int HAS_SUFFIX = 1 << 7;
+    private static final int NO_TYPE = HAS_SUFFIX - 1;
+
+    // Syntax kinds of payload-independent tokens, and of every symbol and keyword.
+    private static final AnySyntaxKind[] KIND_SYNTAX = new AnySyntaxKind[CONTEXTUAL_IDENTIFIER + 1];
+    private static final AnySyntaxKind[] SYMBOL_SYNTAX = new AnySyntaxKind[SYMBOLS.length];
+    private static final AnySyntaxKind[] KEYWORD_SYNTAX = new AnySyntaxKind[KEYWORDS.length];
+    private static final AnySyntaxKind[] BOOLEAN_SYNTAX = {
+            new BooleanLiteralToken(0, 0, 0, 0, false).toSyntaxKind(),
+            new BooleanLiteralToken(0, 0, 0, 0, true).toSyntaxKind()
+    };
+    private static final AnySyntaxKind[] INDENTATION_SYNTAX = {
+            new IndentationToken(0, 0, 0, 0, -1).toSyntaxKind(),
+            new IndentationToken(0, 0, 0, 0, 1).toSyntaxKind()
+    };
+
+    static {
+        KIND_SYNTAX[BAD] = new BadToken(0, 0, 0, 0).toSyntaxKind();
+        KIND_SYNTAX[IDENTIFIER] = new IdentifierToken(0, 0, 0, 0, "", null).toSyntaxKind();
+        KIND_SYNTAX[CONTEXTUAL_IDENTIFIER] = new IdentifierToken(0, 0, 0, 0, "class", Keyword.CLASS).toSyntaxKind();
+        KIND_SYNTAX[INTEGER] = new IntegerLiteralToken(0, 0, 0, 0, BuiltInType.INT64, false, 0).toSyntaxKind();
+        KIND_SYNTAX[RUNE] = new RuneLiteralToken(0, 0, 0, 0, 0).toSyntaxKind();
+        KIND_SYNTAX[STRING] = new StringLiteralToken(0, 0, 0, 0, "").toSyntaxKind();
+        for (Symbol symbol : SYMBOLS) {
+            SYMBOL_SYNTAX[symbol.ordinal()] = new SymbolToken(0, 0, 0, 0, symbol).toSyntaxKind();
+        }
+        for (Keyword keyword : KEYWORDS) {
+            KEYWORD_SYNTAX[keyword.ordinal()] = new KeywordToken(0, 0, 0, 0, keyword).toSyntaxKind();
+        }
+    }
+
+    private final NameTable names;
+    private int size;
+    private byte[] kinds;
+    private int[] starts;
+    private int[] ends;
+    private int[] leadingTrivia;
+    private int[] trailingTrivia;
+    private int[] payloads;
+
+    private int stringCount;
+    private String[] strings = new String[16];
+    private int[] contextualKeywords = new int[16];
+    // Name id of a contextual identifier, interned when it is added; -1 for a string literal.
+    private int[] stringNames = new int[16];
+
+    private int integerCount;
+    private long[] integers = new long[16];
+    private byte[] integerTypes = new byte[16];
+
+    // Filled by Lexer.tokenizeToBuffer.
+    final List<Diagnostic> diagnostics = new ArrayList<>();
+
+    public TokenBuffer() {
+        this(64, new NameTable());
+    }
+
+    public TokenBuffer(int capacity, NameTable names) {
+        this.names = names;
+        capacity = Math.max(capacity, 16);
+        kinds = new byte[capacity];
+        starts = new int[capacity];
+        ends = new int[capacity];
+        leadingTrivia = new int[capacity];
+        trailingTrivia = new int[capacity];
+        payloads = new int[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte kind(int index) {
+        return kinds[checkIndex(index)];
+    }
+
+    public int start(int index) {
+        return starts[checkIndex(index)];
+    }
+
+    public int end(int index) {
+        return ends[checkIndex(index)];
+    }
+
+    public int leadingTriviaLength(int index) {
+        return leadingTrivia[checkIndex(index)];
+    }
+
+    public int trailingTriviaLength(int index) {
+        return trailingTrivia[checkIndex(index)];
+    }
+
+    public NameTable names() {
+        return names;
+    }
+
+    // Malformed escapes found while lexing.
+    public List<Diagnostic> diagnostics() {
+        return diagnostics;
+    }
+
+    // Name id of an identifier token, -1 for other tokens.
+    public int nameId(int index) {
+        return switch (kind(index)) {
+            case IDENTIFIER -> payloads[index];
+            case CONTEXTUAL_IDENTIFIER -> stringNames[payloads[index]];
+            default -> -1;
+        };
+    }
+
+    // Keyword of a keyword token, or the contextual keyword of an identifier. null for other tokens.
+    public Keyword keyword(int index) {
+        return switch (kind(index)) {
+            case KEYWORD -> KEYWORDS[payloads[index]];
+            case CONTEXTUAL_IDENTIFIER -> KEYWORDS[contextualKeywords[payloads[index]]];
+            default -> null;
+        };
+    }
+
+    // Same as token(index).toSyntaxKind(), without creating the token.
+    public AnySyntaxKind syntaxKind(int index) {
+        int payload = payloads[checkIndex(index)];
+        return switch (kinds[index]) {
+            case SYMBOL -> SYMBOL_SYNTAX[payload];
+            case KEYWORD -> KEYWORD_SYNTAX[payload];
+            case BOOLEAN -> BOOLEAN_SYNTAX[payload];
+            case INDENTATION -> INDENTATION_SYNTAX[payload > 0 ? 1 : 0];
+            default -> KIND_SYNTAX[kinds[index]];
+        };
+    }
+
+    public Token token(int index) {
+        int start = starts[checkIndex(index)];
+        int end = ends[index];
+        int leading = leadingTrivia[index];
+        int trailing = trailingTrivia[index];
+        int payload = payloads[index];
+        return switch (kinds[index]) {
+            case BAD -> new BadToken(start, end, leading, trailing);
+            case BOOLEAN -> new BooleanLiteralToken(start, end, leading, trailing, payload != 0);
+            case IDENTIFIER -> new IdentifierToken(start, end, leading, trailing, names.name(payload), null);
+            case CONTEXTUAL_IDENTIFIER -> new IdentifierToken(start, end, leading, trailing, strings[payload],
+                    KEYWORDS[contextualKeywords[payload]]);
+            case INDENTATION -> new IndentationToken(start, end, leading, trailing, payload);
+            case INTEGER -> {
+                int typeBits = integerTypes[payload] & 0xFF;
+                int type = typeBits & ~HAS_SUFFIX;
+                yield new IntegerLiteralToken(start, end, leading, trailing, type == NO_TYPE ? null : BUILT_IN_TYPES[type],
+                        (typeBits & HAS_SUFFIX) != 0, integers[payload]);
+            }
+            case KEYWORD -> new KeywordToken(start, end, leading, trailing, KEYWORDS[payload]);
+            case RUNE -> new RuneLiteralToken(start, end, leading, trailing, payload);
+            case STRING -> new StringLiteralToken(start, end, leading, trailing, strings[payload]);
+            case SYMBOL -> new SymbolToken(start, end, leading, trailing, SYMBOLS[payload]);
+            default -> throw new IllegalStateException("Unexpected token kind: " + kinds[index]);
+        };
+    }
+
+    public void add(Token token) {
+        if (size == kinds.length) grow();
+        set(size++, token);
+    }
+
+    public void set(int index, Token token) {
+        checkIndex(index);
+        starts[index] = token.start;
+        ends[index] = token.end;
+        leadingTrivia[index] = token.leadingTriviaLength;
+        trailingTrivia[index] = token.trailingTriviaLength;
+        switch (token) {
+            case BadToken b -> put(index, BAD, 0);
+            case BooleanLiteralToken b -> put(index, BOOLEAN, b.value ? 1 : 0);
+            case IdentifierToken i when i.contextualKeyword == null -> put(index, IDENTIFIER, names.intern(i.value));
+            case IdentifierToken i -> put(index, CONTEXTUAL_IDENTIFIER,
+                    addString(i.value, i.contextualKeyword.ordinal(), names.intern(i.value)));
+            case IndentationToken i -> put(index, INDENTATION, i.toSyntaxKind() == INDENTATION_SYNTAX[1] ? 1 : -1);
+            case IntegerLiteralToken i -> put(index, INTEGER, addInteger(i.value, i.type, i.hasTypeSuffix));
+            case KeywordToken k -> put(index, KEYWORD, k.keyword.ordinal());
+            case RuneLiteralToken r -> put(index, RUNE, r.value);
+            case StringLiteralToken s -> put(index, STRING, addString(s.value, NO_KEYWORD, -1));
+            case SymbolToken s -> put(index, SYMBOL, s.symbol.ordinal());
+            default -> throw new IllegalStateException("Unexpected value: " + token);
+        }
+    }
+
+    // Extends the token by trivia that follows it, see LexerContext.updateToken.
+    void addTrailingTrivia(int index, int length) {
+        ends[checkIndex(index)] += length;
+        trailingTrivia[index] += length;
+    }
+
+    // Read and write view for code that works with List<Token>. Every get() creates a token, so code that reads
+    // many tokens should use kind(), syntaxKind(), start() and end() instead.
+    public List<Token> asList() {
+        return new AbstractList<>() {
+            @Override
+            public Token get(int index) {
+                return token(index);
+            }
+
+            @Override
+            public Token set(int index, Token token) {
+                Token previous = token(index);
+                TokenBuffer.this.set(index, token);
+                return previous;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private void put(int index, byte kind, int payload) {
+        kinds[index] = kind;
+        payloads[index] = payload;
+    }
+
+    private int addString(String value, int contextualKeyword, int nameId) {
+        if (stringCount == strings.length) {
+            strings = Arrays.copyOf(strings, Math.max(stringCount * 2, 16));
+            contextualKeywords = Arrays.copyOf(contextualKeywords, strings.length);
+            stringNames = Arrays.copyOf(stringNames, strings.length);
+        }
+        strings[stringCount] = value;
+        contextualKeywords[stringCount] = contextualKeyword;
+        stringNames[stringCount] = nameId;
+        return stringCount++;
+    }
+
+    private int addInteger(long value, BuiltInType type, boolean hasTypeSuffix) {
+        if (integerCount == integers.length) {
+            integers = Arrays.copyOf(integers, Math.max(integerCount * 2, 16));
+            integerTypes = Arrays.copyOf(integerTypes, integers.length);
+        }
+        integers[integerCount] = value;
+        int typeIndex = type == null ? NO_TYPE : type.ordinal();
+        integerTypes[integerCount] = (byte) (typeIndex | (hasTypeSuffix ? HAS_SUFFIX : 0));
+        return integerCount++;
+    }
+
+    // Drops unused capacity once no more tokens are added.
+    public void trimToSize() {
+        resize(size);
+        strings = Arrays.copyOf(strings, stringCount);
+        contextualKeywords = Arrays.copyOf(contextualKeywords, stringCount);
+        stringNames = Arrays.copyOf(stringNames, stringCount);
+        integers = Arrays.copyOf(integers, integerCount);
+        integerTypes = Arrays.copyOf(integerTypes, integerCount);
+    }
+
+    private void grow() {
+        resize(Math.max(kinds.length * 2, 16));
+    }
+
+    private void resize(int capacity) {
+        kinds = Arrays.copyOf(kinds, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        leadingTrivia = Arrays.copyOf(leadingTrivia, capacity);
+        trailingTrivia = Arrays.copyOf(trailingTrivia, capacity);
+        payloads = Arrays.copyOf(payloads, capacity);
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+        return index;
+    }
+}
@@ -0,0 +1,213 @@
+package syspro.lexer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+// Deterministic automaton over character classes, built from token patterns.
+// The patterns are compiled into an NFA (Thompson construction) and then determinized by subset construction.
+// A state accepts the pattern with the lowest index among the NFA states it contains.
+final class TransitionTable {
+
+    static final int START = 0;
+    static final int NONE = -1;
+
+    private final int[] transitions;
+    private final int[] accepts;
+
+    private TransitionTable(int[] transitions, int[] accepts) {
+        this.transitions = transitions;
+        this.accepts = accepts;
+    }
+
+    // Row-major copy of the transitions: the next state is transitions()[state * classCount + class].
+    int[] transitions() {
+        return transitions.clone();
+    }
+
+    // Index of the pattern accepted in each state, NONE if the state is not accepting.
+    int[] accepts() {
+        return accepts.clone();
+    }
+
+    // Patterns match sequences of character classes in [0, classCount).
+    abstract static class Pattern {
+        // Adds the pattern to the NFA starting at from, returns its final state.
+        abstract int build(Nfa nfa, int from);
+    }
+
+    static Pattern classes(IntPredicate characterClasses) {
+        return new Pattern() {
+            @Override
+            int build(Nfa nfa, int from) {
+                int to = nfa.state();
+                nfa.edge(from, to, characterClasses);
+                return to;
+            }
+        };
+    }
+
+    static Pattern literal(String text) {
+        Pattern[] parts = text.chars().mapToObj(c -> classes(characterClass -> characterClass == c)).toArray(Pattern[]::new);
+        return sequence(parts);
+    }
+
+    static Pattern sequence(Pattern... parts) {
+        return new Pattern() {
+            @Override
+            int build(Nfa nfa, int from) {
+                for (Pattern part : parts) from = part.build(nfa, from);
+                return from;
+            }
+        };
+    }
+
+    static Pattern either(Pattern... alternatives) {
+        return new Pattern() {
+            @Override
+            int build(Nfa nfa, int from) {
+                int to = nfa.state();
+                for (Pattern alternative : alternatives) {
+                    int start = nfa.state();
+                    nfa.epsilon(from, start);
+                    nfa.epsilon(alternative.build(nfa, start), to);
+                }
+                return to;
+            }
+        };
+    }
+
+    static Pattern optional(Pattern pattern) {
+        return new Pattern() {
+            @Override
+            int build(Nfa nfa, int from) {
+                int to = pattern.build(nfa, from);
+                nfa.epsilon(from, to);
+                return to;
+            }
+        };
+    }
+
+    static Pattern zeroOrMore(Pattern pattern) {
+        return new Pattern() {
+            @Override
+            int build(Nfa nfa, int from) {
+                int loop = nfa.state();
+                nfa.epsilon(from, loop);
+                int end = pattern.build(nfa, loop);
+                nfa.epsilon(end, loop);
+                return loop;
+            }
+        };
+    }
+
+    static Pattern oneOrMore(Pattern pattern) {
+        return sequence(pattern, zeroOrMore(pattern));
+    }
+
+    static TransitionTable build(int classCount, List<Pattern> patterns) {
+        Nfa nfa = new Nfa(classCount);
+        int start = nfa.state();
+        for (int i = 0; i < patterns.size(); i++) {
+            int begin = nfa.state();
+            nfa.epsilon(start, begin);
+            nfa.accepting.put(patterns.get(i).build(nfa, begin), i);
+        }
+        return nfa.determinize(start);
+    }
+
+    static final class Nfa {
+        private final int classCount;
+        private final List<List<Integer>> epsilons = new ArrayList<>();
+        private final List<List<int[]>> edges = new ArrayList<>();
+        private final List<BitSet> edgeClasses = new ArrayList<>();
+        private final Map<Integer, Integer> accepting = new HashMap<>();
+
+        Nfa(int classCount) {
+            this.classCount = classCount;
+        }
+
+        int state() {
+            epsilons.add(new ArrayList<>());
+            edges.add(new ArrayList<>());
+            return epsilons.size() - 1;
+        }
+
+        void epsilon(int from, int to) {
+            epsilons.get(from).add(to);
+        }
+
+        void edge(int from, int to, IntPredicate characterClasses) {
+            BitSet set = new BitSet(classCount);
+            for (int c = 0; c < classCount; c++) if (characterClasses.test(c)) set.set(c);
+            edgeClasses.add(set);
+            edges.get(from).add(new int[]{to, edgeClasses.size() - 1});
+        }
+
+        private BitSet closure(BitSet states) {
+            BitSet result = (BitSet) states.clone();
+            int[] stack = states.stream().toArray();
+            int top = stack.length;
+            stack = Arrays.copyOf(stack, epsilons.size());
+            while (top > 0) {
+                int state = stack[--top];
+                for (int next : epsilons.get(state)) {
+                    if (!result.get(next)) {
+                        result.set(next);
+                        stack[top++] = next;
+                    }
+                }
+            }
+            return result;
+        }
+
+        private TransitionTable determinize(int start) {
+            BitSet initial = new BitSet();
+            initial.set(start);
+            List<BitSet> states = new ArrayList<>();
+            Map<BitSet, Integer> ids = new HashMap<>();
+            states.add(closure(initial));
+            ids.put(states.getFirst(), START);
+
+            int[] transitions = new int[classCount * 16];
+            for (int id = 0; id < states.size(); id++) {
+                if ((id + 1) * classCount > transitions.length) transitions = Arrays.copyOf(transitions, transitions.length * 2);
+                BitSet current = states.get(id);
+                for (int c = 0; c < classCount; c++) {
+                    BitSet target = new BitSet();
+                    for (int s = current.nextSetBit(0); s >= 0; s = current.nextSetBit(s + 1)) {
+                        for (int[] edge : edges.get(s)) if (edgeClasses.get(edge[1]).get(c)) target.set(edge[0]);
+                    }
+                    if (target.isEmpty()) {
+                        transitions[id * classCount + c] = NONE;
+                        continue;
+                    }
+                    BitSet closed = closure(target);
+                    Integer next = ids.get(closed);
+                    if (next == null) {
+                        next = states.size();
+                        states.add(closed);
+                        ids.put(closed, next);
+                    }
+                    transitions[id * classCount + c] = next;
+                }
+            }
+
+            int[] accepts = new int[states.size()];
+            for (int id = 0; id < states.size(); id++) {
+                int accept = NONE;
+                BitSet set = states.get(id);
+                for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+                    Integer pattern = accepting.get(s);
+                    if (pattern != null && (accept == NONE || pattern < accept)) accept = pattern;
+                }
+                accepts[id] = accept;
+            }
+            return new TransitionTable(Arrays.copyOf(transitions, states.size() * classCount), accepts);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package syspro.lexer;
+
+// Finds the end of runs the lexer consumes in bulk: blanks, comment text, indentation and ASCII identifier parts.
+// Works on the code points of the whole source, from and to are positions in it. None of the runs crosses a '\n'.
+// This is the scalar version. VectorTriviaScanner does the same with the jdk.incubator.vector API; it is only built
+// by the vector profile, and used when the module is present at run time.
+class TriviaScanner {
+
+    static final TriviaScanner INSTANCE = select();
+
+    private static TriviaScanner select() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (TriviaScanner) Class.forName("syspro.lexer.VectorTriviaScanner").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Fall back to the scalar scanner.
+            }
+        }
+        return new TriviaScanner();
+    }
+
+    // First position in [from, to) that is not ' ', '\t' or '\r', to if there is none.
+    int blankRunEnd(int[] codePoints, int from, int to) {
+        int pos = from;
+        while (pos < to && isBlank(codePoints[pos])) pos++;
+        return pos;
+    }
+
+    // First '\n' in [from, to), to if there is none.
+    int newlineIndex(int[] codePoints, int from, int to) {
+        int pos = from;
+        while (pos < to && codePoints[pos] != '\n') pos++;
+        return pos;
+    }
+
+    // First position in [from, to) that is not an ASCII identifier part, to if there is none.
+    // Anything past it, including non-ASCII identifier parts, is left to the caller.
+    int identifierRunEnd(int[] codePoints, int from, int to) {
+        int pos = from;
+        while (pos < to && isAsciiIdentifierPart(codePoints[pos])) pos++;
+        return pos;
+    }
+
+    // Width of the spaces and tabs starting at from, a tab counts as two.
+    int indentationWidth(int[] codePoints, int from, int to) {
+        int width = 0;
+        for (int pos = from; pos < to; pos++) {
+            if (codePoints[pos] == ' ') width++;
+            else if (codePoints[pos] == '\t') width += 2;
+            else break;
+        }
+        return width;
+    }
+
+    static boolean isBlank(int codePoint) {
+        return codePoint == ' ' || codePoint == '\t' || codePoint == '\r';
+    }
+
+    // The ASCII part of UnicodePattern.isIdentifierContinue: letters, digits and '|', but not '_'.
+    static boolean isAsciiIdentifierPart(int codePoint) {
+        int lower = codePoint | 0x20;
+        return (lower >= 'a' && lower <= 'z') || (codePoint >= '0' && codePoint <= '9') || codePoint == '|';
+    }
+}
@@ -0,0 +1,17 @@
+package syspro.lexer.diagnostics;
+
+import syspro.tm.parser.ErrorCode;
+
+public class EscapeError implements ErrorCode {
+
+    String errorMessage;
+
+    public EscapeError(String msg) {
+        errorMessage = msg;
+    }
+
+    @Override
+    public String name() {
+        return "EscapeError: " + errorMessage;
+    }
+}
@@ -0,0 +1,17 @@
+package syspro.lexer.diagnostics;
+
+import syspro.tm.parser.ErrorCode;
+
+public class OverflowError implements ErrorCode {
+
+    String errorMessage;
+
+    public OverflowError(String msg) {
+        errorMessage = msg;
+    }
+
+    @Override
+    public String name() {
+        return "OverflowError: " + errorMessage;
+    }
+}
@@ -0,0 +1,93 @@
+package syspro.lexer.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Classifies code points for the lexer without regex.
+// Categories are computed once for every Unicode plane and stored in a two-level page table:
+// the high bits of a code point select a page, the low bits select a flag byte inside it.
+// Identical pages (most of the unassigned planes, for example) are stored only once.
+public class CodePointClassifier {
+
+    public static final int IDENTIFIER_START = 1;
+    public static final int IDENTIFIER_CONTINUE = 1 << 1;
+    public static final int DIGIT = 1 << 2;
+
+    private static final int PAGE_SHIFT = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int PAGE_COUNT = (Character.MAX_CODE_POINT + 1) >>> PAGE_SHIFT;
+
+    private static final char[] pageIndex = new char[PAGE_COUNT];
+    private static final byte[] pages;
+
+    static {
+        Map<String, Integer> uniquePages = new HashMap<>();
+        byte[] storage = new byte[PAGE_SIZE * 64];
+        byte[] page = new byte[PAGE_SIZE];
+
+        for (int p = 0; p < PAGE_COUNT; p++) {
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                page[i] = (byte) computeFlags((p << PAGE_SHIFT) | i);
+            }
+            String key = new String(page, StandardCharsets.ISO_8859_1);
+            Integer id = uniquePages.get(key);
+            if (id == null) {
+                id = uniquePages.size();
+                if ((id + 1) * PAGE_SIZE > storage.length) {
+                    storage = Arrays.copyOf(storage, storage.length * 2);
+                }
+                System.arraycopy(page, 0, storage, id * PAGE_SIZE, PAGE_SIZE);
+                uniquePages.put(key, id);
+            }
+            pageIndex[p] = (char) id.intValue();
+        }
+        pages = Arrays.copyOf(storage, uniquePages.size() * PAGE_SIZE);
+    }
+
+    private CodePointClassifier() {
+    }
+
+    // Mirrors the regex classes from UnicodePattern:
+    // start    - [\p{L}\p{Nl}] or '_'
+    // continue - [\p{L}\p{Nl}|\p{Nd}\p{Mn}\p{Mc}\p{Cf}] (the '|' is part of the original class)
+    // digit    - \p{Nd}
+    private static int computeFlags(int codePoint) {
+        int flags = 0;
+        int type = Character.getType(codePoint);
+        boolean isLetter = switch (type) {
+            case Character.UPPERCASE_LETTER, Character.LOWERCASE_LETTER, Character.TITLECASE_LETTER,
+                 Character.MODIFIER_LETTER, Character.OTHER_LETTER, Character.LETTER_NUMBER -> true;
+            default -> false;
+        };
+        boolean isDigit = type == Character.DECIMAL_DIGIT_NUMBER;
+        boolean isMarkOrFormat = switch (type) {
+            case Character.NON_SPACING_MARK, Character.COMBINING_SPACING_MARK, Character.FORMAT -> true;
+            default -> false;
+        };
+
+        if (isLetter || codePoint == '_') flags |= IDENTIFIER_START;
+        if (isLetter || isDigit || isMarkOrFormat || codePoint == '|') flags |= IDENTIFIER_CONTINUE;
+        if (isDigit) flags |= DIGIT;
+        return flags;
+    }
+
+    public static int flags(int codePoint) {
+        if (codePoint < 0 || codePoint > Character.MAX_CODE_POINT) return 0;
+        return pages[(pageIndex[codePoint >>> PAGE_SHIFT] << PAGE_SHIFT) | (codePoint & PAGE_MASK)];
+    }
+
+    public static boolean isIdentifierStart(int codePoint) {
+        return (flags(codePoint) & IDENTIFIER_START) != 0;
+    }
+
+    public static boolean isIdentifierContinue(int codePoint) {
+        return (flags(codePoint) & IDENTIFIER_CONTINUE) != 0;
+    }
+
+    public static boolean isDigit(int codePoint) {
+        return (flags(codePoint) & DIGIT) != 0;
+    }
+}
@@ -1,65 +1,23 @@
 package syspro.lexer.utils;
 
-import java.util.regex.Pattern;
-
-import static syspro.lexer.utils.UnicodePattern.UnicodeSymbols.*;
-import static syspro.lexer.utils.UnicodeReader.codePointToString;
 
 public class UnicodePattern {
 
-    public enum UnicodeSymbols {
-        NUMBER_LITERAL("\\p{Nd}"),
-        PUNCTUATION("\\p{Pc}"),
-        NON_SPACING_MARK("\\p{Mn}"),
-        SPACING_MARK("\\p{Mc}"),
-        FORMAT("\\p{Cf}"),
-        LETTER_CHARACTER("[\\p{L}\\p{Nl}]"),
-        UNICODE_SCORE("_");
-
-        public final String text;
-
-        UnicodeSymbols(String text) {
-            this.text = text;
-        }
-    }
-
-    static private boolean isLetterCharacter(String s) {
-        return Pattern.compile(LETTER_CHARACTER.text).matcher(s).matches();
-    }
-
-    static private boolean isPunctuation(String s) {
-        return Pattern.compile(PUNCTUATION.text).matcher(s).matches();
-    }
-
-    static private boolean isNumberLiteral(String s) {
-        return Pattern.compile(NUMBER_LITERAL.text).matcher(s).matches();
-    }
-
-    static private boolean isNoneSpacingMark(String s) {
-        return Pattern.compile(NON_SPACING_MARK.text).matcher(s).matches();
-    }
-
-    static private boolean isSpacingMark(String s) {
-        return Pattern.compile(SPACING_MARK.text).matcher(s).matches();
-    }
-
-    static private boolean isFormat(String s) {
-        return Pattern.compile(FORMAT.text).matcher(s).matches();
+    static public boolean isIdentifierStart(String s) {
+        if (s.isEmpty()) return false;
+        return isIdentifierStart(s.codePointAt(0));
     }
 
-    static private boolean isUnicodeScore(String s) {
-        return Pattern.compile(UNICODE_SCORE.text).matcher(s).matches();
+    static public boolean isIdentifierStart(int codePoint) {
+        return CodePointClassifier.isIdentifierStart(codePoint);
     }
 
-    static public boolean isIdentifierStart(String s) {
-        if (s.isEmpty()) return false;
-        String firstSymbol = codePointToString(s.codePoints().toArray()[0]);
-        return isLetterCharacter(firstSymbol) || firstSymbol.equals("_");
+    static public boolean isIdentifierContinue(String s) {
+        return isSingleCodePoint(s) && isIdentifierContinue(s.codePointAt(0));
     }
 
-    static public boolean isIdentifierContinue(String s) {
-        String regex = "[\\p{L}\\p{Nl}|\\p{Nd}\\p{Mn}\\p{Mc}\\p{Cf}]";
-        return Pattern.compile(regex).matcher(s).matches();
+    static public boolean isIdentifierContinue(int codePoint) {
+        return CodePointClassifier.isIdentifierContinue(codePoint);
     }
 
 
@@ -72,30 +30,49 @@ public class UnicodePattern {
     }
 
 
+    // Same language as [\p{L}\p{Nl}|_-]+[\p{L}\p{Nl}|\p{Nd}\p{Mn}\p{Mc}\p{Cf}]*
     static public boolean isIdentifier(String s) {
-        String regex = "[\\p{L}\\p{Nl}|_-]+[\\p{L}\\p{Nl}|\\p{Nd}\\p{Mn}\\p{Mc}\\p{Cf}]*";
-        return Pattern.compile(regex).matcher(s).matches();
+        int pos = 0;
+        while (pos < s.length()) {
+            int codePoint = s.codePointAt(pos);
+            if (!isIdentifierStart(codePoint) && codePoint != '|' && codePoint != '-') break;
+            pos += Character.charCount(codePoint);
+        }
+        if (pos == 0) return false;
+        while (pos < s.length()) {
+            int codePoint = s.codePointAt(pos);
+            if (!isIdentifierContinue(codePoint)) return false;
+            pos += Character.charCount(codePoint);
+        }
+        return true;
     }
 
+    // Same language as ^\p{Nd}+(i64|i32|u32|u64)?$
     static public boolean isNumber(String s) {
-        return Pattern.compile("(^\\p{Nd}+(i64|i32|u32|u64)?)$").matcher(s).matches();
+        int pos = 0;
+        while (pos < s.length()) {
+            int codePoint = s.codePointAt(pos);
+            if (!isDigit(codePoint)) break;
+            pos += Character.charCount(codePoint);
+        }
+        if (pos == 0) return false;
+        if (pos == s.length()) return true;
+        return switch (s.substring(pos)) {
+            case "i64", "i32", "u32", "u64" -> true;
+            default -> false;
+        };
     }
 
     static public boolean isDigit(String s) {
-        return isNumberLiteral(s);
+        return isSingleCodePoint(s) && isDigit(s.codePointAt(0));
     }
 
-
-    static public String runePattern() {
-        String SHORT_ESCAPE = "\\[0abfnrtv'\\]";
-        String UNICODE_ESCAPE = "[\\\\U+]*[0-9A-F]{4,5}";
-        String ESCAPE = String.format("(%s|%s)", SHORT_ESCAPE, UNICODE_ESCAPE);
-        String SIMPLE_RUNE_CHARACTER = "[^'\\\r\n]";
-        return String.format("(%s|%s)", SIMPLE_RUNE_CHARACTER, ESCAPE);
+    static public boolean isDigit(int codePoint) {
+        return CodePointClassifier.isDigit(codePoint);
     }
 
-    static public boolean isRune(String s) {
-        return Pattern.compile(runePattern()).matcher(s).matches();
+    static private boolean isSingleCodePoint(String s) {
+        return !s.isEmpty() && Character.charCount(s.codePointAt(0)) == s.length();
     }
 
 
@@ -22,4 +22,13 @@ public class UtilMaps {
             "true", BuiltInType.BOOLEAN,
             "false", BuiltInType.BOOLEAN
     );
+    // Single-character symbols indexed by their ASCII code.
+    static final public Symbol[] asciiSymbolTable = new Symbol[128];
+
+    static {
+        for (Symbol symbol : Symbol.values()) {
+            if (symbol.text.length() == 1 && symbol.text.charAt(0) < asciiSymbolTable.length)
+                asciiSymbolTable[symbol.text.charAt(0)] = symbol;
+        }
+    }
 }
@@ -0,0 +1,309 @@
+package syspro.parser;
+
+import syspro.lexer.Lexer;
+import syspro.lexer.LexerContext;
+import syspro.lexer.NameTable;
+import syspro.lexer.TokenBuffer;
+import syspro.parser.ast.GreenNode;
+import syspro.parser.ast.RedNode;
+import syspro.tm.lexer.Token;
+import syspro.tm.parser.Diagnostic;
+import syspro.tm.parser.SyntaxNode;
+import syspro.tm.parser.TextSpan;
+import syspro.utils.LineMap;
+import syspro.utils.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static syspro.tm.parser.SyntaxKind.LIST;
+import static syspro.tm.parser.SyntaxKind.SOURCE_TEXT;
+
+// Parses a document again after an edit by parsing only the top-level definitions around the edit.
+// A top-level definition starts on a line at indentation level 0, where neither the lexer nor the parser keeps
+// anything from the text before, so a run of definitions lexes and parses the same on its own as in the document.
+// The run starts with the definition the edit is in and ends before the first definition behind the edit that the
+// parser starts at the same token as before. All other definitions are reused as green nodes, which do not depend on their position.
+// Offsets are in code points, like token positions.
+final class IncrementalParser {
+
+    private final Parser parser;
+    private final SysproParseResult previous;
+    private final RedNode definitions;
+    private final int count;
+    // Names of the parsed region only: like a full parse, a reparse has a table of its own.
+    private final NameTable names = new NameTable();
+    // Green nodes are shared with the earlier versions of the document.
+    private final GreenNode.Cache greenNodes;
+    // Lines of the edited text, once a message needed them.
+    private LineMap lines;
+
+    IncrementalParser(Parser parser, SysproParseResult previous) {
+        this.parser = parser;
+        this.previous = previous;
+        this.definitions = previous.tree().slot(0);
+        this.count = definitions.slotCount();
+        this.greenNodes = previous.greenNodes;
+    }
+
+    // Definitions, invalid ranges and diagnostics parsed from a part of the text.
+    private static final class Region {
+        final List<RedNode> definitions = new ArrayList<>();
+        List<TextSpan> invalidRanges;
+        List<Diagnostic> diagnostics;
+        List<Diagnostic> lexerDiagnostics;
+        int[] definitionRanges;
+
+        // Drops what was found from boundary on. Returns false if no definition starts there.
+        boolean cut(int boundary) {
+            int kept = 0;
+            while (kept < definitions.size() && definitions.get(kept).offset < boundary) kept++;
+            if (kept == definitions.size() || definitions.get(kept).offset != boundary) return false;
+            int ranges = definitionRanges[kept];
+            definitions.subList(kept, definitions.size()).clear();
+            invalidRanges = invalidRanges.subList(0, ranges);
+            diagnostics = diagnostics.subList(0, ranges);
+            definitionRanges = Arrays.copyOf(definitionRanges, kept + 1);
+            definitionRanges[kept] = ranges;
+            lexerDiagnostics.removeIf(diagnostic -> diagnostic.location().start >= boundary);
+            return true;
+        }
+    }
+
+    SysproParseResult reparse(int offset, int removedLength, String insertedText) {
+        String oldText = previous.text;
+        int oldLength = oldText.codePointCount(0, oldText.length());
+        if (offset < 0 || removedLength < 0 || offset + removedLength > oldLength)
+            throw new IllegalArgumentException("Edit " + offset + "+" + removedLength + " is outside of the text.");
+
+        int from = oldText.offsetByCodePoints(0, offset);
+        int to = oldText.offsetByCodePoints(from, removedLength);
+        String text = oldText.substring(0, from) + insertedText + oldText.substring(to);
+        int delta = insertedText.codePointCount(0, insertedText.length()) - removedLength;
+        int lineDelta = lines(insertedText) - lines(oldText.substring(from, to));
+
+        // The definition before ends on the first token of the next one and on the indentation of its line,
+        // so it is parsed again too unless the edit is behind that token.
+        int first = lastStartingBefore(offset);
+        for (int moved = first + 1; moved != first; ) {
+            moved = first;
+            first = reachingInto(startingLineAtOrBefore(first));
+        }
+        int regionStart = first < 0 ? 0 : start(first);
+        int next = firstStartingAfter(offset + removedLength, first + 1);
+
+        // Grows the run until the parser starts the definition behind it at the same token as before,
+        // doubling the step on every miss.
+        Region region;
+        for (int step = 1; ; step *= 2) {
+            while (next < count && !startsLine(next)) next++;
+            region = parse(text, regionStart, next, delta);
+            if (region != null) break;
+            next = Math.min(count, next + step);
+        }
+        int tail = next;
+        int end = tail < count ? start(tail) : oldLength;
+
+        List<GreenNode> greens = new ArrayList<>();
+        List<Integer> starts = new ArrayList<>();
+        for (int k = 0; k < first; k++) {
+            greens.add(definitions.green.slot(k));
+            starts.add(start(k));
+        }
+        for (RedNode definition : region.definitions) {
+            greens.add(definition.green);
+            starts.add(definition.offset);
+        }
+        for (int k = tail; k < count; k++) {
+            greens.add(definitions.green.slot(k));
+            starts.add(start(k) + delta);
+        }
+
+        List<TextSpan> oldRanges = new ArrayList<>(previous.invalidRanges);
+        List<Diagnostic> oldDiagnostics = new ArrayList<>(previous.diagnostics);
+        int[] oldDefinitionRanges = previous.definitionRanges;
+
+        List<TextSpan> invalidRanges = new ArrayList<>();
+        List<Diagnostic> parserDiagnostics = new ArrayList<>();
+        int[] definitionRanges = new int[greens.size() + 1];
+        int definition = 0;
+
+        int prefix = first < 0 ? 0 : oldDefinitionRanges[first];
+        for (int k = 0; k < first; k++) definitionRanges[definition++] = oldDefinitionRanges[k];
+        for (int i = 0; i < prefix; i++) {
+            invalidRanges.add(oldRanges.get(i));
+            parserDiagnostics.add(oldDiagnostics.get(previous.lexerDiagnostics + i));
+        }
+
+        for (int k = 0; k < region.definitions.size(); k++) {
+            definitionRanges[definition++] = invalidRanges.size() + region.definitionRanges[k];
+        }
+        invalidRanges.addAll(region.invalidRanges);
+        parserDiagnostics.addAll(region.diagnostics);
+
+        // The messages name the line they are in. If the edit changed the number of lines, the runs of definitions
+        // behind it that have invalid ranges are parsed again to get them right.
+        for (int run = tail, runEnd; run < count; run = runEnd) {
+            runEnd = run + 1;
+            while (runEnd < count && !startsLine(runEnd)) runEnd++;
+            int rangesFrom = oldDefinitionRanges[run];
+            int rangesTo = oldDefinitionRanges[runEnd];
+            Region moved = lineDelta != 0 && rangesFrom != rangesTo ? parse(text, start(run) + delta, runEnd, delta) : null;
+            if (moved != null) {
+                for (int k = 0; k < runEnd - run; k++) {
+                    definitionRanges[definition++] = invalidRanges.size() + moved.definitionRanges[k];
+                }
+                invalidRanges.addAll(moved.invalidRanges);
+                parserDiagnostics.addAll(moved.diagnostics);
+                continue;
+            }
+            for (int k = run; k < runEnd; k++) {
+                definitionRanges[definition++] = invalidRanges.size() + oldDefinitionRanges[k] - rangesFrom;
+            }
+            for (int i = rangesFrom; i < rangesTo; i++) {
+                invalidRanges.add(shift(oldRanges.get(i), delta));
+                parserDiagnostics.add(shift(oldDiagnostics.get(previous.lexerDiagnostics + i), delta));
+            }
+        }
+        definitionRanges[definition] = invalidRanges.size();
+
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        for (int i = 0; i < previous.lexerDiagnostics; i++) {
+            Diagnostic diagnostic = oldDiagnostics.get(i);
+            if (diagnostic.location().start < regionStart) diagnostics.add(diagnostic);
+        }
+        diagnostics.addAll(region.lexerDiagnostics);
+        for (int i = 0; i < previous.lexerDiagnostics; i++) {
+            Diagnostic diagnostic = oldDiagnostics.get(i);
+            if (diagnostic.location().start >= end) diagnostics.add(shift(diagnostic, delta));
+        }
+        int lexerDiagnostics = diagnostics.size();
+        diagnostics.addAll(parserDiagnostics);
+
+        GreenNode[] children = greens.toArray(GreenNode[]::new);
+        int[] offsets = starts.stream().mapToInt(Integer::intValue).toArray();
+        GreenNode list = greenNodes.node(LIST, children, offsets);
+        int listStart = offsets.length == 0 || list.width == 0 ? 0 : offsets[0];
+        GreenNode root = greenNodes.node(SOURCE_TEXT, new GreenNode[]{list}, new int[]{listStart});
+        SysproParseResult result = new SysproParseResult(RedNode.root(root, listStart), invalidRanges, diagnostics,
+                names, greenNodes, text, lexerDiagnostics, definitionRanges);
+        result.lines = lines;
+        return result;
+    }
+
+    // Absolute start of definition k before the edit, trivia included.
+    private int start(int k) {
+        return definitions.offset + definitions.green.slotOffset(k);
+    }
+
+    // Whether the first token of definition k is the first one on its line, at indentation level 0.
+    // The lexer and the parser start over at such a definition.
+    private boolean startsLine(int k) {
+        return previous.lines().column(definitions.slot(k).span().start) == 1;
+    }
+
+    // Last definition from k back that starts a line, -1 if there is none.
+    private int startingLineAtOrBefore(int k) {
+        while (k >= 0 && !startsLine(k)) k--;
+        return k;
+    }
+
+    // Last definition whose first token ends before offset, -1 if there is none.
+    private int lastStartingBefore(int offset) {
+        int low = 0;
+        int high = count - 1;
+        int result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            Token token = definitions.slot(mid).firstToken();
+            if (token.end + 1 - token.trailingTriviaLength < offset) {
+                result = mid;
+                low = mid + 1;
+            } else high = mid - 1;
+        }
+        return result;
+    }
+
+    // First definition from index low on that starts behind offset, count if there is none.
+    private int firstStartingAfter(int offset, int low) {
+        int high = count - 1;
+        int result = count;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (start(mid) > offset) {
+                result = mid;
+                high = mid - 1;
+            } else low = mid + 1;
+        }
+        return result;
+    }
+
+    // Moves the first definition to parse back while an invalid range found before it reaches into it:
+    // error recovery skips to the next indentation token, which can be behind the end of the definition.
+    private int reachingInto(int first) {
+        int[] definitionRanges = previous.definitionRanges;
+        List<TextSpan> ranges = new ArrayList<>(previous.invalidRanges);
+        while (first >= 0) {
+            int start = start(first);
+            int reaching = first;
+            int definition = first - 1;
+            for (int i = definitionRanges[first] - 1; i >= 0; i--) {
+                while (definition >= 0 && definitionRanges[definition] > i) definition--;
+                TextSpan range = ranges.get(i);
+                if (range.start + range.length > start) reaching = definition;
+            }
+            if (reaching == first) break;
+            first = reaching;
+        }
+        return first;
+    }
+
+    // Parses the text from start up to old definition end, which starts a line. The definition at end is read too,
+    // and null is returned if the parser does not start it at the same token as before, because what comes before
+    // now takes some of its tokens.
+    private Region parse(String text, int start, int end, int delta) {
+        int length = text.codePointCount(0, text.length());
+        if (end >= count) return parse(text, start, length);
+        int lookahead = end + 1 < count ? start(end + 1) + delta : length;
+        Region region = parse(text, start, lookahead);
+        return region.cut(start(end) + delta) ? region : null;
+    }
+
+    // Lexes and parses text[start, end) on its own, with tokens and ranges at their positions in text.
+    private Region parse(String text, int start, int end) {
+        int from = text.offsetByCodePoints(0, start);
+        int to = text.offsetByCodePoints(from, end - start);
+        TokenBuffer buffer = new Lexer(names).lexToBuffer(text.substring(from, to));
+        List<Token> tokens = new ArrayList<>(buffer.size());
+        for (Token token : buffer.asList()) tokens.add(LexerContext.shift(token, start));
+
+        // The full text, so that messages name the right line.
+        ParserContext ctx = new ParserContext(tokens, new Logger(Logger.Stage.SYNTAX), text);
+        ctx.lines = lines;
+        Region region = new Region();
+        for (SyntaxNode definition : parser.parse(ctx)) region.definitions.add(greenNodes.tree(definition));
+        lines = ctx.lines;
+        region.invalidRanges = ctx.getInvalidRanges();
+        region.diagnostics = ctx.getDiagnostics();
+        region.definitionRanges = Parser.definitionRanges(ctx);
+        region.lexerDiagnostics = new ArrayList<>();
+        for (Diagnostic diagnostic : buffer.diagnostics()) region.lexerDiagnostics.add(shift(diagnostic, start));
+        return region;
+    }
+
+    private static TextSpan shift(TextSpan span, int delta) {
+        return delta == 0 ? span : new TextSpan(span.start + delta, span.length);
+    }
+
+    private static Diagnostic shift(Diagnostic diagnostic, int delta) {
+        if (delta == 0) return diagnostic;
+        return new Diagnostic(diagnostic.info(), shift(diagnostic.location(), delta), diagnostic.hints());
+    }
+
+    private static int lines(String text) {
+        int lines = 0;
+        for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', i + 1)) lines++;
+        return lines;
+    }
+}
@@ -0,0 +1,108 @@
+package syspro.parser;
+
+import syspro.parser.ast.ArenaNode;
+import syspro.tm.lexer.Token;
+import syspro.tm.parser.ParseResult;
+import syspro.tm.parser.SyntaxNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Parses the top-level definitions of a large file on several threads, with the same tree, invalid ranges and
+// diagnostics as Parser.parse(). Like ParallelLexer, it guesses where the parse starts over and checks the guess.
+// The tokens are cut at class, object and interface tokens at column 0, about chunkSize tokens apart, and every chunk
+// is parsed on its own context as if the previous definition had ended right before it.
+// Chunks are merged in order. If the definition before a cut takes tokens behind it (error recovery skips to the next
+// indentation token), the speculative chunk is dropped and the tokens are parsed on from where the parse really is.
+// Chunks copy their definitions into arenas of their own, which are appended to the arena of the parse when merged.
+public class ParallelParser {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 14;
+
+    private final Parser parser;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    public ParallelParser() {
+        this(new Parser(), ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public ParallelParser(Parser parser, ForkJoinPool pool, int chunkSize) {
+        if (chunkSize <= 0) throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        this.parser = parser;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    public ParseResult parse(String s) {
+        return parser.parse(s, this::parse);
+    }
+
+    private record Chunk(int from, int to, ParserContext ctx, List<SyntaxNode> definitions, int next) {
+    }
+
+    // Same as Parser.parse(ctx) for a context that has not parsed anything yet.
+    List<SyntaxNode> parse(ParserContext ctx) {
+        int[] cuts = findCuts(ctx);
+        if (cuts.length <= 2) return parser.parse(ctx);
+
+        List<ForkJoinTask<Chunk>> tasks = new ArrayList<>();
+        for (int i = 0; i + 1 < cuts.length; i++) {
+            int from = cuts[i];
+            int to = cuts[i + 1];
+            // Forked here, as forking builds the line map of ctx the first time.
+            ParserContext part = ctx.fork(from - 1);
+            tasks.add(pool.submit(() -> parseChunk(part, from, to)));
+        }
+        // Merging writes to the shared tokens, so every chunk has to be done reading them.
+        List<Chunk> chunks = new ArrayList<>();
+        for (ForkJoinTask<Chunk> task : tasks) chunks.add(task.join());
+
+        List<SyntaxNode> statements = new ArrayList<>();
+        int next = 0;
+        for (Chunk chunk : chunks) {
+            if (next == chunk.from) {
+                merge(ctx, chunk, statements);
+                next = chunk.next;
+            } else if (next < chunk.to) {
+                ctx.pos = next - 1;
+                next = parser.parse(ctx, chunk.to, statements);
+            }
+        }
+        ctx.pos = next;
+        return statements;
+    }
+
+    private Chunk parseChunk(ParserContext part, int from, int to) {
+        List<SyntaxNode> definitions = new ArrayList<>();
+        int next = parser.parse(part, to, definitions);
+        return new Chunk(from, to, part, definitions, next);
+    }
+
+    private static void merge(ParserContext ctx, Chunk chunk, List<SyntaxNode> statements) {
+        chunk.ctx.applyReplaced();
+        int base = ctx.arena == null ? 0 : ctx.arena.append(chunk.ctx.arena);
+        int ranges = ctx.getInvalidRanges().size();
+        for (int i = 0; i < chunk.definitions.size(); i++) {
+            SyntaxNode definition = chunk.definitions.get(i);
+            statements.add(ctx.arena == null ? definition : ctx.arena.node(base + ((ArenaNode) definition).index));
+            ctx.definitionRanges.add(ranges + chunk.ctx.definitionRanges.get(i));
+        }
+        ctx.getInvalidRanges().addAll(chunk.ctx.getInvalidRanges());
+        ctx.getDiagnostics().addAll(chunk.ctx.getDiagnostics());
+    }
+
+    // Token indices where chunks start, followed by the number of tokens.
+    private int[] findCuts(ParserContext ctx) {
+        List<Token> tokens = ctx.tokens;
+        List<Integer> cuts = new ArrayList<>();
+        cuts.add(0);
+        for (int i = chunkSize; i < tokens.size(); i++) {
+            if (i - cuts.getLast() >= chunkSize && ctx.typeDefinitionStartsLine(i)) cuts.add(i);
+        }
+        cuts.add(tokens.size());
+        return cuts.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
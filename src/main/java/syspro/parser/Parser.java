@@ -1,36 +1,60 @@
 package syspro.parser;
 
 import syspro.lexer.Lexer;
+import syspro.lexer.NameTable;
+import syspro.lexer.TokenBuffer;
 import syspro.parser.ast.ASTNode;
+import syspro.parser.ast.GreenNode;
+import syspro.parser.ast.SyntaxArena;
 import syspro.tm.lexer.Keyword;
+import syspro.tm.lexer.Symbol;
 import syspro.tm.lexer.Token;
 import syspro.tm.parser.AnySyntaxKind;
+import syspro.tm.parser.Diagnostic;
 import syspro.tm.parser.ParseResult;
+import syspro.tm.parser.SyntaxKind;
 import syspro.tm.parser.SyntaxNode;
 import syspro.utils.Logger;
 
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Function;
 
 import static java.util.Objects.isNull;
 import static syspro.tm.lexer.Keyword.*;
 import static syspro.tm.lexer.Symbol.*;
 import static syspro.tm.parser.SyntaxKind.*;
 
+// Holds no state: every parse interns its names and green nodes into tables of its own, which its result keeps.
+// So one parser can be used from several threads, and nothing of a parse outlives its result.
 public class Parser implements syspro.tm.parser.Parser {
 
     public List<SyntaxNode> parse(ParserContext ctx) {
         List<SyntaxNode> statements = new ArrayList<>();
+        parse(ctx, ctx.tokens.size(), statements);
+        return statements;
+    }
 
-        while (++ctx.pos < ctx.tokens.size()) {
-            ctx.logger.info(ctx.kind(), String.format("start parsing - %s.", ctx.get().toString()));
+    // Parses the top-level definitions that start before token limit, from the token after ctx.pos on.
+    // Returns the token where the next one would be looked for, limit or more.
+    int parse(ParserContext ctx, int limit, List<SyntaxNode> statements) {
+        while (++ctx.pos < limit) {
+            ctx.logger.info(ctx.kind(), () -> String.format("start parsing - %s.", ctx.get().toString()));
+            int ranges = ctx.getInvalidRanges().size();
             ASTNode statement = parseDefinition(ctx);
             if (isNull(statement)) ctx.logger.info(NULL, "final result - ");
             else ctx.logger.info(statement, "final result  - ");
-            if (!isNull(statement)) statements.add(statement);
+            if (!isNull(statement)) {
+                statements.add(ctx.arena == null ? statement : ctx.arena.add(statement));
+                ctx.definitionRanges.add(ranges);
+            }
         }
-        return statements;
+        return ctx.pos;
     }
 
     private ASTNode parseDefinition(ParserContext ctx) {
@@ -70,7 +94,7 @@ public class Parser implements syspro.tm.parser.Parser {
         // add panic mode
         if (isNull(functionName)) {
             functionName = new ASTNode(IDENTIFIER, ctx.get());
-            ctx.step();
+            ctx.advance();
         }
 
         ASTNode openParen = ctx.expected("Expected ( for function definition.", OPEN_PAREN);
@@ -132,12 +156,8 @@ public class Parser implements syspro.tm.parser.Parser {
     }
 
     private ASTNode parseTypeDefinition(ParserContext ctx) {
-        Keyword kind = switch (ctx.get().toString()) {
-            case "class" -> CLASS;
-            case "object" -> OBJECT;
-            case "interface" -> INTERFACE;
-            default -> NULL;
-        };
+        ctx.startDefinition();
+        Keyword kind = ctx.typeKeyword();
         ctx.updateTokenKind(kind);
         ASTNode keyword = new ASTNode(kind, ctx.get());
 
@@ -220,6 +240,8 @@ public class Parser implements syspro.tm.parser.Parser {
         return new ASTNode(SEPARATED_LIST, null, list);
     }
 
+    private static final int MAX_TYPE_ARGUMENT_DEPTH = 256;
+
     private ASTNode parseNameExpression(ParserContext ctx) {
         if (ctx.match(QUESTION)) {
             ASTNode question = new ASTNode(QUESTION, ctx.prev());
@@ -234,14 +256,20 @@ public class Parser implements syspro.tm.parser.Parser {
         ASTNode lessThan = null;
         ASTNode greaterThan = null;
 
-        if (ctx.match(LESS_THAN)) {
+        // a < b < c ... is parsed as type arguments up to the end first. Remembering where that failed keeps
+        // the comparisons it is parsed as then from trying again at every '<'. Nesting deeper than
+        // MAX_TYPE_ARGUMENT_DEPTH is not tried at all, so that it does not run out of stack.
+        if (ctx.typeArgumentDepth < MAX_TYPE_ARGUMENT_DEPTH && !ctx.notTypeArguments() && ctx.match(LESS_THAN)) {
             lessThan = new ASTNode(LESS_THAN, ctx.prev());
+            ctx.typeArgumentDepth++;
             typeArguments = parseSeparatedList(this::parseNameExpression, COMMA, ctx);
+            ctx.typeArgumentDepth--;
             greaterThan = ctx.match(GREATER_THAN) ? new ASTNode(GREATER_THAN_EXPRESSION, ctx.prev()) : null;
         }
 
         if (isNull(lessThan) != isNull(greaterThan)) {
             ctx.pos = resetPos;
+            ctx.setNotTypeArguments(resetPos);
             return new ASTNode(IDENTIFIER_NAME_EXPRESSION, null, name);
         }
 
@@ -309,14 +337,14 @@ public class Parser implements syspro.tm.parser.Parser {
             }
             case INDENT, DEDENT -> {
                 ctx.pos--;
-                ctx.addInvalidRange(ctx.get().start, ctx.get().end);
+                ctx.addInvalidRange(ctx.start(), ctx.end());
                 yield null;
             }
             default -> {
                 ctx.logger.log(Logger.LogLevel.ERROR, Logger.Stage.SYNTAX,
-                        String.format("Unexpected token in primary: %s.", value.kind()));
+                        () -> String.format("Unexpected token in primary: %s.", value.kind()));
                 ctx.pos--;
-                ctx.addInvalidRange(ctx.get().start, ctx.get().end,
+                ctx.addInvalidRange(ctx.start(), ctx.end(),
                         String.format("SyntaxError: Unexpected token: %s.", value.token().toString()));
                 yield null;
             }
@@ -349,150 +377,78 @@ public class Parser implements syspro.tm.parser.Parser {
     }
 
     private ASTNode parseExpression(ParserContext ctx) {
-        return parseAssignStatement(ctx);
-    }
-
-    private ASTNode parseAssignStatement(ParserContext ctx) {
-
-        ASTNode primary = parseLogicalOr(ctx);
-        while (ctx.match(EQUALS)) {
-            ASTNode eq = new ASTNode(EQUALS, ctx.prev());
-            ASTNode expr = parseExpression(ctx);
-            primary = new ASTNode(ASSIGNMENT_STATEMENT, null, primary, eq, expr);
-        }
-        return primary;
-    }
-
-
-    private ASTNode parseLogicalOr(ParserContext ctx) {
-
-        ASTNode expr = parseLogicalAnd(ctx);
-        while (ctx.match(BAR_BAR)) {
-            ASTNode logicalOr = new ASTNode(BAR_BAR, ctx.prev());
-            ASTNode right = parseLogicalAnd(ctx);
-            expr = new ASTNode(LOGICAL_OR_EXPRESSION, null, expr, logicalOr, right);
-        }
-        return expr;
-    }
-
-    private ASTNode parseLogicalAnd(ParserContext ctx) {
-
-        ASTNode expr = parseComparison(ctx);
-        while (ctx.match(AMPERSAND_AMPERSAND)) {
-            ASTNode logicalAnd = new ASTNode(AMPERSAND_AMPERSAND, ctx.prev());
-            ASTNode right = parseComparison(ctx);
-            expr = new ASTNode(LOGICAL_AND_EXPRESSION, null, expr, logicalAnd, right);
-        }
-        return expr;
-    }
-
-    private ASTNode parseComparison(ParserContext ctx) {
-
-        ASTNode expr = parseBitwiseOr(ctx);
-        while (ctx.match(EQUALS_EQUALS, EXCLAMATION_EQUALS, LESS_THAN,
-                LESS_THAN_EQUALS, GREATER_THAN, GREATER_THAN_EQUALS, IS)) {
-            ASTNode operator = new ASTNode(ctx.prev().toSyntaxKind(), ctx.prev());
-            ASTNode right = parseBitwiseOr(ctx);
+        return parseBinaryExpression(ctx, ASSIGNMENT_POWER);
+    }
+
+    // Binding powers of the binary operators, from assignment (loosest) to multiplication (tightest),
+    // and the expression each operator builds. Both are indexed by Symbol.ordinal(), 0 means not a binary operator.
+    private static final int ASSIGNMENT_POWER = 1;
+    private static final int COMPARISON_POWER = 4;
+    private static final int[] BINDING_POWER = new int[Symbol.values().length];
+    private static final SyntaxKind[] BINARY_EXPRESSION = new SyntaxKind[Symbol.values().length];
+
+    static {
+        binaryOperator(EQUALS, ASSIGNMENT_POWER, ASSIGNMENT_STATEMENT);
+        binaryOperator(BAR_BAR, 2, LOGICAL_OR_EXPRESSION);
+        binaryOperator(AMPERSAND_AMPERSAND, 3, LOGICAL_AND_EXPRESSION);
+        binaryOperator(EQUALS_EQUALS, COMPARISON_POWER, EQUALS_EXPRESSION);
+        binaryOperator(EXCLAMATION_EQUALS, COMPARISON_POWER, NOT_EQUALS_EXPRESSION);
+        binaryOperator(LESS_THAN, COMPARISON_POWER, LESS_THAN_EXPRESSION);
+        binaryOperator(LESS_THAN_EQUALS, COMPARISON_POWER, LESS_THAN_OR_EQUAL_EXPRESSION);
+        binaryOperator(GREATER_THAN, COMPARISON_POWER, GREATER_THAN_EXPRESSION);
+        binaryOperator(GREATER_THAN_EQUALS, COMPARISON_POWER, GREATER_THAN_OR_EQUAL_EXPRESSION);
+        binaryOperator(BAR, 5, BITWISE_OR_EXPRESSION);
+        binaryOperator(CARET, 6, BITWISE_EXCLUSIVE_OR_EXPRESSION);
+        binaryOperator(AMPERSAND, 7, BITWISE_AND_EXPRESSION);
+        binaryOperator(LESS_THAN_LESS_THAN, 8, BITWISE_LEFT_SHIFT_EXPRESSION);
+        binaryOperator(GREATER_THAN_GREATER_THAN, 8, BITWISE_RIGHT_SHIFT_EXPRESSION);
+        binaryOperator(PLUS, 9, ADD_EXPRESSION);
+        binaryOperator(MINUS, 9, SUBTRACT_EXPRESSION);
+        binaryOperator(ASTERISK, 10, MULTIPLY_EXPRESSION);
+        binaryOperator(SLASH, 10, DIVIDE_EXPRESSION);
+        binaryOperator(PERCENT, 10, MODULO_EXPRESSION);
+    }
+
+    private static void binaryOperator(Symbol symbol, int power, SyntaxKind expression) {
+        BINDING_POWER[symbol.ordinal()] = power;
+        BINARY_EXPRESSION[symbol.ordinal()] = expression;
+    }
+
+    private static int bindingPower(AnySyntaxKind kind) {
+        if (kind instanceof Symbol symbol) return BINDING_POWER[symbol.ordinal()];
+        return kind == IS ? COMPARISON_POWER : 0;
+    }
+
+    // Precedence climbing: folds every operator that binds at least as tight as minPower into the left operand.
+    // Binary operators are left-associative, the right side of an assignment is a whole expression.
+    private ASTNode parseBinaryExpression(ParserContext ctx, int minPower) {
+        ASTNode expr = parseUnaryExpression(ctx);
+        while (true) {
+            AnySyntaxKind kind = ctx.kind();
+            int power = bindingPower(kind);
+            if (power == 0 || power < minPower) return expr;
+
+            ASTNode operator = new ASTNode(kind, ctx.step());
+            if (power == ASSIGNMENT_POWER) {
+                expr = new ASTNode(ASSIGNMENT_STATEMENT, null, expr, operator, parseExpression(ctx));
+                continue;
+            }
+            ASTNode right = parseBinaryExpression(ctx, power + 1);
+            if (power != COMPARISON_POWER) {
+                expr = new ASTNode(BINARY_EXPRESSION[((Symbol) kind).ordinal()], null, expr, operator, right);
+                continue;
+            }
 
             if (isNull(right)) continue;
-
-            AnySyntaxKind kind = switch (operator.kind()) {
-                case EQUALS_EQUALS -> EQUALS_EXPRESSION;
-                case EXCLAMATION_EQUALS -> NOT_EQUALS_EXPRESSION;
-                case LESS_THAN -> LESS_THAN_EXPRESSION;
-                case LESS_THAN_EQUALS -> LESS_THAN_OR_EQUAL_EXPRESSION;
-                case GREATER_THAN -> GREATER_THAN_EXPRESSION;
-                case GREATER_THAN_EQUALS -> GREATER_THAN_OR_EQUAL_EXPRESSION;
-                default -> null;
-            };
-            if (ctx.is(IDENTIFIER) && Objects.equals(kind, IS_EXPRESSION))
-                expr = new ASTNode(kind, null, expr, operator, right, new ASTNode(IDENTIFIER, ctx.get()));
-            else expr = new ASTNode(kind, null, expr, operator, right);
-        }
-        return expr;
-    }
-
-    private ASTNode parseBitwiseOr(ParserContext ctx) {
-        ASTNode expr = parseBitwiseXor(ctx);
-        while (ctx.match(BAR)) {
-            ASTNode operator = new ASTNode(BAR, ctx.prev());
-            ASTNode right = parseBitwiseXor(ctx);
-            expr = new ASTNode(BITWISE_OR_EXPRESSION, null, expr, operator, right);
-        }
-        return expr;
-    }
-
-    private ASTNode parseBitwiseXor(ParserContext ctx) {
-        ASTNode expr = parseBitwiseAnd(ctx);
-        while (ctx.match(CARET)) {
-            ASTNode operator = new ASTNode(CARET, ctx.prev());
-            ASTNode right = parseBitwiseAnd(ctx);
-            expr = new ASTNode(BITWISE_EXCLUSIVE_OR_EXPRESSION, null, expr, operator, right);
-        }
-        return expr;
-    }
-
-    private ASTNode parseBitwiseAnd(ParserContext ctx) {
-        ASTNode expr = parseBitwiseShift(ctx);
-        while (ctx.match(AMPERSAND)) {
-            ASTNode operator = new ASTNode(AMPERSAND, ctx.prev());
-            ASTNode right = parseBitwiseShift(ctx);
-            expr = new ASTNode(BITWISE_AND_EXPRESSION, null, expr, operator, right);
-        }
-        return expr;
-    }
-
-    private ASTNode parseBitwiseShift(ParserContext ctx) {
-
-        ASTNode expr = parseBinaryExpression(ctx);
-        while (ctx.match(LESS_THAN_LESS_THAN, GREATER_THAN_GREATER_THAN)) {
-            ASTNode operator = new ASTNode(ctx.prev().toSyntaxKind(), ctx.prev());
-            ASTNode right = parseBinaryExpression(ctx);
-
-            AnySyntaxKind kind = switch (operator.kind()) {
-                case LESS_THAN_LESS_THAN -> BITWISE_LEFT_SHIFT_EXPRESSION;
-                case GREATER_THAN_GREATER_THAN -> BITWISE_RIGHT_SHIFT_EXPRESSION;
-                default -> throw new IllegalStateException("Unexpected value: " + operator.kind());
-            };
-
-            expr = new ASTNode(kind, null, expr, operator, right);
-        }
-        return expr;
-    }
-
-    private ASTNode parseBinaryExpression(ParserContext ctx) {
-        ASTNode expr = parseTerm(ctx);
-        while (ctx.match(PLUS, MINUS)) {
-            ASTNode operator = new ASTNode(ctx.prev().toSyntaxKind(), ctx.prev());
-            ASTNode right = parseTerm(ctx);
-
-            AnySyntaxKind kind = switch (operator.kind()) {
-                case PLUS -> ADD_EXPRESSION;
-                case MINUS -> SUBTRACT_EXPRESSION;
-                default -> throw new IllegalStateException("Unexpected value: " + operator.kind());
-            };
-
-            expr = new ASTNode(kind, null, expr, operator, right);
-        }
-        return expr;
-    }
-
-    private ASTNode parseTerm(ParserContext ctx) {
-        ASTNode expr = parseUnaryExpression(ctx);
-        while (ctx.match(ASTERISK, SLASH, PERCENT)) {
-            ASTNode operator = new ASTNode(ctx.prev().toSyntaxKind(), ctx.prev());
-            ASTNode right = parseUnaryExpression(ctx);
-
-            AnySyntaxKind kind = switch (operator.kind()) {
-                case ASTERISK -> MULTIPLY_EXPRESSION;
-                case SLASH -> DIVIDE_EXPRESSION;
-                case PERCENT -> MODULO_EXPRESSION;
-                default -> throw new IllegalStateException("Unexpected value: " + operator.kind());
-            };
-
-            expr = new ASTNode(kind, null, expr, operator, right);
+            if (kind == IS) {
+                // x is T name: the name is bound to x when the check succeeds.
+                ASTNode designation = ctx.is(IDENTIFIER) ? new ASTNode(IDENTIFIER, ctx.step()) : null;
+                expr = isNull(designation) ? new ASTNode(IS_EXPRESSION, null, expr, operator, right)
+                        : new ASTNode(IS_EXPRESSION, null, expr, operator, right, designation);
+            } else {
+                expr = new ASTNode(BINARY_EXPRESSION[((Symbol) kind).ordinal()], null, expr, operator, right);
+            }
         }
-        return expr;
     }
 
 
@@ -649,27 +605,79 @@ public class Parser implements syspro.tm.parser.Parser {
 
     @Override
     public ParseResult parse(String s) {
+        return parse(s, this::parse);
+    }
 
-
-        Lexer lexer = new Lexer();
-        List<Token> tokens = lexer.lex(s);
+    // Lexes s and parses its top-level definitions with definitions, which is parse(ParserContext) or does the same.
+    SysproParseResult parse(String s, Function<ParserContext, List<SyntaxNode>> definitions) {
+        NameTable names = new NameTable();
+        Lexer lexer = new Lexer(names);
+        TokenBuffer tokens = lexer.lexToBuffer(s);
 
         Logger logger = new Logger(Logger.Stage.LEXICAL);
         ParserContext ctx = new ParserContext(tokens, logger, s);
+        ctx.arena = new SyntaxArena(tokens);
+        ctx.getDiagnostics().addAll(tokens.diagnostics());
+        int lexerDiagnostics = ctx.getDiagnostics().size();
 
-        for (Token t : tokens) ctx.logger.info(t, "Token added - ");
+        // Going over the tokens materializes them out of the buffer, so only do it when they are logged.
+        if (Logger.isEnabled(Logger.LogLevel.INFO)) {
+            for (Token t : ctx.tokens) ctx.logger.info(t, "Token added - ");
+        }
 
         ctx.logger.updateStage(Logger.Stage.SYNTAX);
 
-        List<SyntaxNode> statements = parse(ctx);
+        List<SyntaxNode> statements = definitions.apply(ctx);
 
-        ctx.logger.printTree(new ASTNode(SOURCE_TEXT, null, new ASTNode(LIST, null, statements)), true);
+        SyntaxNode root = ctx.arena.add(SOURCE_TEXT, List.of(ctx.arena.add(LIST, statements)));
+        ctx.logger.printTree(root, true);
 
-        ctx.logger.close();
+        ctx.getDiagnostics().forEach(d -> ctx.logger.error(() -> d.info().errorCode().name()));
 
-        ctx.getDiagnostics().forEach(d -> System.out.println(d.info().errorCode().name()));
+        SysproParseResult result = new SysproParseResult(root, ctx.getInvalidRanges(), ctx.getDiagnostics(), names,
+                new GreenNode.Cache(), s, lexerDiagnostics, definitionRanges(ctx));
+        result.lines = ctx.lines;
+        return result;
+    }
+
+    // Receives the top-level definitions of parseStreaming() one by one, each with the diagnostics found up to its end.
+    public interface DefinitionListener {
+        void definition(SyntaxNode definition, List<Diagnostic> diagnostics);
+
+        // Diagnostics found after the last definition.
+        default void end(List<Diagnostic> diagnostics) {
+        }
+    }
+
+    // Parses the source as it is read and hands every top-level definition to listener as soon as it is parsed.
+    // Tokens before it are dropped by then, so the memory used is bounded by the largest definition, not the source.
+    // The definitions and diagnostics are the ones of parse() on the same text, only split by definition;
+    // the definitions are ASTNodes holding their tokens.
+    public void parseStreaming(Reader reader, DefinitionListener listener) {
+        StreamingParserContext ctx = new StreamingParserContext(new Lexer(), reader);
+        for (ctx.pos = 0; !ctx.isEOF(); ctx.pos++) {
+            ctx.drop();
+            ASTNode definition = parseDefinition(ctx);
+            if (!isNull(definition)) listener.definition(definition, ctx.takeDiagnostics(ctx.end()));
+        }
+        listener.end(ctx.takeDiagnostics(Integer.MAX_VALUE));
+    }
+
+    public void parseStreaming(ReadableByteChannel channel, DefinitionListener listener) {
+        parseStreaming(Channels.newReader(channel, StandardCharsets.UTF_8), listener);
+    }
+
+    static int[] definitionRanges(ParserContext ctx) {
+        int[] ranges = new int[ctx.definitionRanges.size() + 1];
+        for (int i = 0; i < ctx.definitionRanges.size(); i++) ranges[i] = ctx.definitionRanges.get(i);
+        ranges[ranges.length - 1] = ctx.getInvalidRanges().size();
+        return ranges;
+    }
 
-        return new SysproParseResult(new ASTNode(SOURCE_TEXT, null, new ASTNode(LIST, null, statements)),
-                ctx.getInvalidRanges(), ctx.getDiagnostics());
+    // Result of parse(previous text with the edit applied), but only the top-level definitions around the edit
+    // are parsed again, the others are taken from previous. Offsets and lengths are in code points.
+    // The root of the result is its tree(), so it is not made of ASTNodes.
+    public SysproParseResult reparse(ParseResult previous, int offset, int removedLength, String insertedText) {
+        return new IncrementalParser(this, (SysproParseResult) previous).reparse(offset, removedLength, insertedText);
     }
 }
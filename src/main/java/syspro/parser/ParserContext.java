@@ -1,6 +1,8 @@
 package syspro.parser;
 
+import syspro.lexer.TokenBuffer;
 import syspro.parser.ast.ASTNode;
+import syspro.parser.ast.SyntaxArena;
 import syspro.parser.diagnostics.IndentationError;
 import syspro.parser.diagnostics.SyntaxError;
 import syspro.tm.lexer.IdentifierToken;
@@ -8,10 +10,17 @@ import syspro.tm.lexer.Keyword;
 import syspro.tm.lexer.KeywordToken;
 import syspro.tm.lexer.Token;
 import syspro.tm.parser.*;
+import syspro.utils.LineMap;
 import syspro.utils.Logger;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static syspro.tm.lexer.Keyword.*;
 import static syspro.tm.parser.SyntaxKind.*;
@@ -21,15 +30,36 @@ public class ParserContext {
     public Logger logger;
 
     public List<Token> tokens;
+    // Set when the tokens are a view of a TokenBuffer: kinds are then read without creating tokens.
+    private TokenBuffer buffer;
+    // Tokens replaced by a fork(), by index. replacedAt spares the map lookup for the other tokens.
+    private Map<Integer, Token> replaced;
+    private BitSet replacedAt;
     public int pos = -1;
     private List<TextSpan> invalidRanges = new ArrayList<>();
     private List<Diagnostic> diagnostics = new ArrayList<>();
-
-
-    // variables for diagnostics
-    private int lineInText = 1;
-    private int lastTextPos = -1;
-    private final String inputText;
+    // Index of the first invalid range found while parsing each top-level definition. Invalid ranges found between
+    // two definitions belong to the one before.
+    final List<Integer> definitionRanges = new ArrayList<>();
+    // Set for a full parse: every top-level definition is copied into it as soon as it is parsed,
+    // so the ASTNodes of one definition are garbage before the next one is parsed.
+    SyntaxArena arena;
+
+    // Invalid ranges reported for one top-level definition at most, see report().
+    static final int MAX_DEFINITION_DIAGNOSTICS = 100;
+    private int definitionDiagnostics;
+    // Positions of '<' that do not start type arguments, see Parser.parseNameExpression(). Kept for one definition.
+    private final Set<Integer> notTypeArguments = new HashSet<>();
+    // Type argument lists being parsed around pos.
+    int typeArgumentDepth;
+    // Tokens [scan[0], scan[1]) are not DEDENT, or INDENT, as found by the last getInvalidEnd() that looked for it.
+    private final int[] dedentScan = {0, 0};
+    private final int[] indentScan = {0, 0};
+
+
+    final String inputText;
+    // Lines of inputText for the messages, built on the first one unless it is given.
+    LineMap lines;
 
     public boolean isEOF() {
         return pos >= tokens.size();
@@ -41,6 +71,39 @@ public class ParserContext {
         this.inputText = inputText;
     }
 
+    ParserContext(TokenBuffer buffer, Logger logger, String inputText) {
+        this(buffer.asList(), logger, inputText);
+        this.buffer = buffer;
+    }
+
+    // Context over the same tokens for parsing a part of them on another thread, from token pos + 1 on.
+    // Tokens it replaces are kept in it and only written to the shared tokens by applyReplaced().
+    ParserContext fork(int pos) {
+        ParserContext part = new ParserContext(tokens, new Logger(Logger.Stage.SYNTAX), inputText);
+        part.buffer = buffer;
+        part.pos = pos;
+        part.lines = lines();
+        part.replaced = new HashMap<>();
+        part.replacedAt = new BitSet();
+        // The arena of a part sees the tokens it replaced, see ParallelParser.
+        if (arena != null) part.arena = new SyntaxArena(new AbstractList<>() {
+            @Override
+            public Token get(int index) {
+                return part.token(index);
+            }
+
+            @Override
+            public int size() {
+                return tokens.size();
+            }
+        });
+        return part;
+    }
+
+    void applyReplaced() {
+        replaced.forEach(tokens::set);
+    }
+
     public boolean is(AnySyntaxKind... kind) {
         if (isEOF()) return false;
         for (AnySyntaxKind k : kind) {
@@ -51,38 +114,75 @@ public class ParserContext {
 
     public AnySyntaxKind kind() {
         if (isEOF()) return null;
+        if (buffer != null && !isReplaced(pos)) return buffer.syntaxKind(pos);
         return get().toSyntaxKind();
     }
 
     public boolean match(AnySyntaxKind... kinds) {
         for (AnySyntaxKind kind : kinds) {
             if (is(kind)) {
-                step();
+                advance();
                 return true;
             }
         }
         return false;
     }
 
+    // Creates the token when the tokens are a view of a TokenBuffer: for the leaves of the ASTNodes,
+    // the checks of the parser use kind(), start(), end() and typeKeyword().
     public Token get() {
         if (isEOF()) return prev();
-        return tokens.get(pos);
+        return token(pos);
+    }
+
+    private Token token(int index) {
+        return isReplaced(index) ? replaced.get(index) : tokens.get(index);
+    }
+
+    // Start of the token at pos, or of the last one at the end of input, like get().start.
+    public int start() {
+        int index = isEOF() ? pos - 1 : pos;
+        if (buffer != null && !isReplaced(index)) return buffer.start(index);
+        return token(index).start;
+    }
+
+    public int end() {
+        return end(isEOF() ? pos - 1 : pos);
+    }
+
+    private int end(int index) {
+        if (buffer != null && !isReplaced(index)) return buffer.end(index);
+        return token(index).end;
+    }
+
+    // Keyword of the token at pos when it starts a type definition: class, object and interface are lexed as
+    // identifiers, parseTypeDefinition() turns them into keywords. NULL for any other token.
+    Keyword typeKeyword() {
+        return isEOF() ? NULL : typeKeyword(pos);
+    }
+
+    private Keyword typeKeyword(int index) {
+        Keyword keyword = buffer != null && !isReplaced(index) ? buffer.keyword(index) : switch (token(index)) {
+            case IdentifierToken t -> t.contextualKeyword;
+            case KeywordToken t -> t.keyword;
+            default -> null;
+        };
+        return keyword == CLASS || keyword == OBJECT || keyword == INTERFACE ? keyword : NULL;
+    }
+
+    private boolean isReplaced(int index) {
+        return replacedAt != null && replacedAt.get(index);
     }
 
     public void addInvalidRange() {
         ErrorCode error = getError();
 
-        int start = get().start;
+        int start = start();
         int last = getInvalidTokenEnd();
 
         TextSpan textSpan = new TextSpan(start, last - start);
 
-        invalidRanges.add(textSpan);
-        diagnostics.add(new Diagnostic(
-                new DiagnosticInfo(error, null),
-                textSpan,
-                null
-        ));
+        report(textSpan, error);
     }
 
 
@@ -91,12 +191,7 @@ public class ParserContext {
         ErrorCode error = getError();
         TextSpan textSpan = new TextSpan(start, end - start);
 
-        invalidRanges.add(textSpan);
-        diagnostics.add(new Diagnostic(
-                new DiagnosticInfo(error, null),
-                textSpan,
-                null
-        ));
+        report(textSpan, error);
     }
 
 
@@ -107,27 +202,28 @@ public class ParserContext {
         int lineNum = getLineNumber();
         ErrorCode error = () -> (msg + " in line " + lineNum + ".");
 
-        invalidRanges.add(textSpan);
-        diagnostics.add(new Diagnostic(
-                new DiagnosticInfo(error, null),
-                textSpan,
-                null
-        ));
+        report(textSpan, error);
     }
 
     public void addInvalidRange(String msg) {
 
-        step();
+        advance();
         int lineNum = getLineNumber();
         pos--;
         ErrorCode error = () -> msg + lineNum + ".";
 
-        int start = get().start;
+        int start = start();
         int last = getInvalidTokenEnd();
 
         TextSpan textSpan = new TextSpan(start, last - start);
 
+        report(textSpan, error);
+    }
 
+    // Adds an invalid range and its diagnostic, unless the definition has MAX_DEFINITION_DIAGNOSTICS already:
+    // past that they mostly follow from the first ones.
+    private void report(TextSpan textSpan, ErrorCode error) {
+        if (definitionDiagnostics++ >= MAX_DEFINITION_DIAGNOSTICS) return;
         invalidRanges.add(textSpan);
         diagnostics.add(new Diagnostic(
                 new DiagnosticInfo(error, null),
@@ -136,6 +232,21 @@ public class ParserContext {
         ));
     }
 
+    // Called at the start of every top-level definition.
+    void startDefinition() {
+        definitionDiagnostics = 0;
+        notTypeArguments.clear();
+    }
+
+    // Whether the token at pos is a '<' that was found not to start type arguments before.
+    boolean notTypeArguments() {
+        return notTypeArguments.contains(pos);
+    }
+
+    void setNotTypeArguments(int index) {
+        notTypeArguments.add(index);
+    }
+
     private ErrorCode getError() {
         return switch (get().toSyntaxKind()) {
             case DEF -> new IndentationError("incorrect indentation in line " + (getLineNumber() + 1) + ".");
@@ -147,22 +258,26 @@ public class ParserContext {
     }
 
     public Token step() {
-        if (!isEOF()) pos++;
+        advance();
         return prev();
     }
 
+    // step() without creating the token.
+    void advance() {
+        if (!isEOF()) pos++;
+    }
+
     public Token prev() {
-        return tokens.get(pos - 1);
+        return token(pos - 1);
     }
 
-    private int getLineNumber() {
-        int end = get().start;
-        while (++lastTextPos < end) {
-            if (inputText.charAt(lastTextPos) == '\n')
-                lineInText++;
-        }
-        return lineInText;
+    int getLineNumber() {
+        return lines().line(start());
+    }
 
+    LineMap lines() {
+        if (lines == null) lines = new LineMap(inputText);
+        return lines;
     }
 
     public ASTNode expected(String msg, AnySyntaxKind... kinds) {
@@ -171,8 +286,8 @@ public class ParserContext {
                 return new ASTNode(kind, step());
         }
 
-        int start = get().start;
-        int last = get().end;
+        int start = start();
+        int last = end();
 
         String errorKind = switch (kinds[0]) {
             case INDENT, DEDENT -> "IndentationError: ";
@@ -185,12 +300,7 @@ public class ParserContext {
                 " Found: " + cur.toString() + ". In line " + lineNum + ".";
         TextSpan textSpan = new TextSpan(start, last - start);
 
-        invalidRanges.add(textSpan);
-        diagnostics.add(new Diagnostic(
-                new DiagnosticInfo(error, null),
-                textSpan,
-                null
-        ));
+        report(textSpan, error);
         return null;
     }
 
@@ -202,18 +312,28 @@ public class ParserContext {
                     new KeywordToken(t.start, t.end, t.leadingTriviaLength, t.trailingTriviaLength, kind);
             default -> get();
         };
-        tokens.set(pos, newToken);
+        if (replaced == null) {
+            tokens.set(pos, newToken);
+            return;
+        }
+        replaced.put(pos, newToken);
+        replacedAt.set(pos);
     }
 
+    // Skips to the end of the block the error is in: to the next DEDENT, or at a DEDENT, to the next INDENT.
+    // Tokens scanned before are jumped over, so every token is scanned at most once for each of the two.
     public int getInvalidEnd() {
         int start = pos;
-        AnySyntaxKind kind = switch (kind()) {
-            case DEDENT -> INDENT;
-            default -> DEDENT;
-        };
+        // kind() is null at the end of input.
+        boolean toIndent = kind() == DEDENT;
+        int[] scan = toIndent ? indentScan : dedentScan;
+        if (scan[0] <= pos && pos < scan[1]) pos = scan[1];
+        else scan[0] = pos;
 
+        AnySyntaxKind kind = toIndent ? INDENT : DEDENT;
         while (!isEOF() && !kind().equals(kind))
-            step();
+            advance();
+        scan[1] = pos;
         if (isEOF()) pos--;
 
         return pos - start;
@@ -221,8 +341,7 @@ public class ParserContext {
 
     public int getInvalidTokenEnd() {
         getInvalidEnd();
-        if (isEOF()) return prev().end;
-        return get().end;
+        return end();
     }
 
     public List<TextSpan> getInvalidRanges() {
@@ -237,12 +356,17 @@ public class ParserContext {
         };
     }
 
+    // Whether token index is class, object or interface at column 0. The parse of the top-level definitions
+    // often starts over at such a token: ParallelParser cuts the tokens there.
+    boolean typeDefinitionStartsLine(int index) {
+        if (typeKeyword(index) == NULL) return false;
+        int start = buffer != null ? buffer.start(index) + buffer.leadingTriviaLength(index)
+                : tokens.get(index).start + tokens.get(index).leadingTriviaLength;
+        return start <= lines().length() && lines().column(start) == 1;
+    }
+
     public boolean typeDefinitionStarts() {
-        if (isEOF()) return false;
-        return switch (get().toString()) {
-            case "class", "object", "interface" -> true;
-            default -> false;
-        };
+        return typeKeyword() != NULL;
     }
 
 
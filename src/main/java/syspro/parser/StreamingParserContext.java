@@ -0,0 +1,178 @@
+package syspro.parser;
+
+import syspro.lexer.Lexer;
+import syspro.tm.lexer.Token;
+import syspro.tm.parser.Diagnostic;
+import syspro.utils.Logger;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+// ParserContext over tokens lexed from a Reader while they are parsed, see Parser.parseStreaming().
+// Token indices stay absolute, but only the tokens from the one before pos on are kept: drop() forgets the older ones.
+// Line numbers are counted from the newlines the lexer reads; the ones before the kept tokens are only counted.
+class StreamingParserContext extends ParserContext {
+
+    private final TokenWindow window;
+    private final LineReader lines;
+    // Malformed literals found by the lexer, which is ahead of the parser.
+    private final List<Diagnostic> lexerDiagnostics;
+
+    StreamingParserContext(Lexer lexer, Reader reader) {
+        this(lexer, new LineReader(reader), new ArrayList<>());
+    }
+
+    private StreamingParserContext(Lexer lexer, LineReader lines, List<Diagnostic> lexerDiagnostics) {
+        super(new TokenWindow(lexer.lexStreaming(lines, lexerDiagnostics::add)), new Logger(Logger.Stage.SYNTAX), null);
+        this.window = (TokenWindow) tokens;
+        this.lines = lines;
+        this.lexerDiagnostics = lexerDiagnostics;
+    }
+
+    @Override
+    public boolean isEOF() {
+        return !window.has(pos);
+    }
+
+    @Override
+    int getLineNumber() {
+        return lines.line(start());
+    }
+
+    // Forgets the tokens before pos - 1, which is the last one prev() can ask for.
+    void drop() {
+        if (pos <= 0) return;
+        window.drop(pos - 1);
+        // Starts are not in order: a DEDENT starts after the token behind it, whose start includes the leading trivia.
+        // So the newlines are only forgotten before the smaller start of the two tokens lines are still counted for.
+        int start = window.get(pos - 1).start;
+        if (!isEOF()) start = Math.min(start, window.get(pos).start);
+        lines.drop(start);
+    }
+
+    // Diagnostics of the definition that ends at text position end: the ones of the lexer before it, then the ones
+    // found while parsing it. They are forgotten by the context.
+    List<Diagnostic> takeDiagnostics(int end) {
+        List<Diagnostic> result = new ArrayList<>();
+        lexerDiagnostics.removeIf(diagnostic -> diagnostic.location().start <= end && result.add(diagnostic));
+        result.addAll(getDiagnostics());
+        getDiagnostics().clear();
+        getInvalidRanges().clear();
+        return result;
+    }
+
+    // The tokens of the lexer read so far, from the first one not dropped on.
+    private static final class TokenWindow extends AbstractList<Token> {
+        private final Iterator<Token> source;
+        private final ArrayList<Token> tokens = new ArrayList<>();
+        // Index of tokens.get(0).
+        private int first;
+
+        TokenWindow(Iterator<Token> source) {
+            this.source = source;
+        }
+
+        // Whether there is a token index, reading up to it. Tokens before the window are there, too.
+        boolean has(int index) {
+            while (index >= size() && source.hasNext()) tokens.add(source.next());
+            return index < size();
+        }
+
+        @Override
+        public Token get(int index) {
+            if (index < first || !has(index))
+                throw new IndexOutOfBoundsException("Token " + index + " is not in the window from " + first + ".");
+            return tokens.get(index - first);
+        }
+
+        @Override
+        public Token set(int index, Token token) {
+            get(index);
+            return tokens.set(index - first, token);
+        }
+
+        @Override
+        public int size() {
+            return first + tokens.size();
+        }
+
+        void drop(int index) {
+            int count = Math.min(index - first, tokens.size());
+            if (count <= 0) return;
+            tokens.subList(0, count).clear();
+            first += count;
+        }
+    }
+
+    // Reader that remembers the code point offsets of the newlines read through it.
+    private static final class LineReader extends FilterReader {
+        private int position;
+        private boolean afterHighSurrogate;
+        private int[] newlines = new int[64];
+        private int firstNewline;
+        private int newlineCount;
+        // Newlines dropped from the front of the array.
+        private int dropped;
+
+        LineReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            if (c >= 0) record((char) c);
+            return c;
+        }
+
+        @Override
+        public int read(char[] chars, int offset, int length) throws IOException {
+            int read = super.read(chars, offset, length);
+            for (int i = 0; i < read; i++) record(chars[offset + i]);
+            return read;
+        }
+
+        private void record(char c) {
+            // A surrogate pair is one code point.
+            if (afterHighSurrogate && Character.isLowSurrogate(c)) {
+                afterHighSurrogate = false;
+                return;
+            }
+            afterHighSurrogate = Character.isHighSurrogate(c);
+            if (c == '\n') {
+                if (newlineCount == newlines.length) {
+                    System.arraycopy(newlines, firstNewline, newlines, 0, newlineCount - firstNewline);
+                    dropped += firstNewline;
+                    newlineCount -= firstNewline;
+                    firstNewline = 0;
+                    if (newlineCount > newlines.length / 2) newlines = Arrays.copyOf(newlines, newlines.length * 2);
+                }
+                newlines[newlineCount++] = position;
+            }
+            position++;
+        }
+
+        // Line of position: 1 + the number of newlines before it.
+        int line(int position) {
+            int low = firstNewline;
+            int high = newlineCount;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (newlines[middle] < position) low = middle + 1;
+                else high = middle;
+            }
+            return 1 + dropped + low;
+        }
+
+        // Only counts the newlines before position from now on.
+        void drop(int position) {
+            while (firstNewline < newlineCount && newlines[firstNewline] < position) firstNewline++;
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package syspro.parser;
 
+import syspro.lexer.NameTable;
+import syspro.parser.ast.GreenNode;
+import syspro.parser.ast.RedNode;
 import syspro.tm.parser.Diagnostic;
 import syspro.tm.parser.ParseResult;
 import syspro.tm.parser.SyntaxNode;
 import syspro.tm.parser.TextSpan;
+import syspro.utils.LineMap;
 
 import java.util.Collection;
 
@@ -12,11 +16,54 @@ public class SysproParseResult implements ParseResult {
     public SyntaxNode root;
     public Collection<TextSpan> invalidRanges;
     Collection<Diagnostic> diagnostics;
+    // Identifier names of the tokens lexed for this result.
+    public final NameTable names;
+    // Green nodes of this result and of the results reparsed from it, the versions of one document.
+    final GreenNode.Cache greenNodes;
+    private volatile RedNode tree;
+    // Set by the parser if it built it for its messages.
+    volatile LineMap lines;
 
-    SysproParseResult(SyntaxNode root, Collection<TextSpan> invalidRanges, Collection<Diagnostic> diagnostics) {
+    // Kept for Parser.reparse(). The diagnostics of the lexer come first, followed by one for each invalid range.
+    // The invalid ranges of top-level definition k are [definitionRanges[k], definitionRanges[k + 1]),
+    // the ones before definitionRanges[0] were found before the first definition.
+    final String text;
+    final int lexerDiagnostics;
+    final int[] definitionRanges;
+
+    SysproParseResult(SyntaxNode root, Collection<TextSpan> invalidRanges, Collection<Diagnostic> diagnostics,
+                      NameTable names, GreenNode.Cache greenNodes, String text, int lexerDiagnostics,
+                      int[] definitionRanges) {
         this.root = root;
         this.invalidRanges = invalidRanges;
         this.diagnostics = diagnostics;
+        this.names = names;
+        this.greenNodes = greenNodes;
+        this.text = text;
+        this.lexerDiagnostics = lexerDiagnostics;
+        this.definitionRanges = definitionRanges;
+        if (root instanceof RedNode red) tree = red;
+    }
+
+    // Immutable snapshot of root, built on first use; a reparsed result has it as its root.
+    // Subtrees equal to ones of earlier versions of the document are shared with them.
+    public RedNode tree() {
+        RedNode result = tree;
+        if (result == null) {
+            result = greenNodes.tree(root);
+            tree = result;
+        }
+        return result;
+    }
+
+    // Lines of the parsed text, to turn the positions of the tree and the diagnostics into lines and columns.
+    public LineMap lines() {
+        LineMap result = lines;
+        if (result == null) {
+            result = new LineMap(text);
+            lines = result;
+        }
+        return result;
     }
 
     @Override
@@ -6,27 +6,25 @@ import syspro.tm.parser.SyntaxNode;
 import syspro.tm.symbols.SemanticSymbol;
 import syspro.tm.symbols.SyntaxNodeWithSymbols;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 public class ASTNode implements SyntaxNodeWithSymbols {
 
     private AnySyntaxKind kind;
-    private List<SyntaxNode> slots;
+    private SyntaxNode[] slots;
     private Token token;
     private SemanticSymbol symbol = null;
 
 
     public ASTNode(AnySyntaxKind kind, Token token, SyntaxNode... slots) {
         this.kind = kind;
-        this.slots = new ArrayList<>(Arrays.asList(slots));
+        this.slots = slots;
         this.token = token;
     }
 
     public ASTNode(AnySyntaxKind kind, Token token, List<SyntaxNode> slots) {
         this.kind = kind;
-        this.slots = slots;
+        this.slots = slots.toArray(SyntaxNode[]::new);
         this.token = token;
     }
 
@@ -46,12 +44,12 @@ public class ASTNode implements SyntaxNodeWithSymbols {
 
     @Override
     public int slotCount() {
-        return slots.size();
+        return slots.length;
     }
 
     @Override
     public SyntaxNode slot(int index) {
-        return slots.get(index);
+        return slots[index];
     }
 
     @Override
@@ -0,0 +1,60 @@
+package syspro.parser.ast;
+
+import syspro.tm.lexer.Token;
+import syspro.tm.parser.AnySyntaxKind;
+import syspro.tm.symbols.SemanticSymbol;
+import syspro.tm.symbols.SyntaxNodeWithSymbols;
+
+// Cursor to a node of a SyntaxArena, for code that works with SyntaxNode. It only holds the arena and the index,
+// everything else is read from the arena, so two cursors to the same node are equal and see the same symbol.
+// The arena hands out a subclass with named accessors for the kinds the semantic analysis reads, see SyntaxArena.node.
+public class ArenaNode implements SyntaxNodeWithSymbols {
+
+    public final SyntaxArena arena;
+    public final int index;
+
+    ArenaNode(SyntaxArena arena, int index) {
+        this.arena = arena;
+        this.index = index;
+    }
+
+    public void updateSymbol(SemanticSymbol symbol) {
+        arena.setSymbol(index, symbol);
+    }
+
+    @Override
+    public SemanticSymbol symbol() {
+        return arena.symbol(index);
+    }
+
+    @Override
+    public AnySyntaxKind kind() {
+        return arena.kind(index);
+    }
+
+    @Override
+    public int slotCount() {
+        return arena.slotCount(index);
+    }
+
+    @Override
+    public ArenaNode slot(int index) {
+        int child = arena.slot(this.index, index);
+        return child < 0 ? null : arena.node(child);
+    }
+
+    @Override
+    public Token token() {
+        return arena.token(index);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ArenaNode other && other.arena == arena && other.index == index;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(arena) * 31 + index;
+    }
+}
@@ -0,0 +1,15 @@
+package syspro.parser.ast;
+
+// EXPRESSION_STATEMENT - expression
+public final class ExpressionStatementNode extends ArenaNode {
+
+    static final int EXPRESSION = 0;
+
+    ExpressionStatementNode(SyntaxArena arena, int index) {
+        super(arena, index);
+    }
+
+    public ArenaNode expression() {
+        return slot(EXPRESSION);
+    }
+}
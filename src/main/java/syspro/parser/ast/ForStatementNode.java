@@ -0,0 +1,25 @@
+package syspro.parser.ast;
+
+// FOR_STATEMENT - for, variable, in, iterable, indent, body, dedent
+public final class ForStatementNode extends ArenaNode {
+
+    static final int VARIABLE = 1;
+    static final int ITERABLE = 3;
+    static final int BODY = 5;
+
+    ForStatementNode(SyntaxArena arena, int index) {
+        super(arena, index);
+    }
+
+    public ArenaNode variable() {
+        return slot(VARIABLE);
+    }
+
+    public ArenaNode iterable() {
+        return slot(ITERABLE);
+    }
+
+    public ArenaNode body() {
+        return slot(BODY);
+    }
+}
@@ -0,0 +1,35 @@
+package syspro.parser.ast;
+
+// FUNCTION_DEFINITION - modifiers, def, name, openParen, parameters, closeParen, colon, returnType, indent, body, dedent
+public final class FunctionDefinitionNode extends ArenaNode {
+
+    static final int MODIFIERS = 0;
+    static final int NAME = 2;
+    static final int PARAMETERS = 4;
+    static final int RETURN_TYPE = 7;
+    static final int BODY = 9;
+
+    FunctionDefinitionNode(SyntaxArena arena, int index) {
+        super(arena, index);
+    }
+
+    public ArenaNode modifiers() {
+        return slot(MODIFIERS);
+    }
+
+    public ArenaNode name() {
+        return slot(NAME);
+    }
+
+    public ArenaNode parameters() {
+        return slot(PARAMETERS);
+    }
+
+    public ArenaNode returnType() {
+        return slot(RETURN_TYPE);
+    }
+
+    public ArenaNode body() {
+        return slot(BODY);
+    }
+}
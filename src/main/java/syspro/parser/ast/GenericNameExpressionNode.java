@@ -0,0 +1,20 @@
+package syspro.parser.ast;
+
+// GENERIC_NAME_EXPRESSION - name, lessThan, typeArguments, greaterThan
+public final class GenericNameExpressionNode extends ArenaNode {
+
+    static final int NAME = 0;
+    static final int TYPE_ARGUMENTS = 2;
+
+    GenericNameExpressionNode(SyntaxArena arena, int index) {
+        super(arena, index);
+    }
+
+    public ArenaNode name() {
+        return slot(NAME);
+    }
+
+    public ArenaNode typeArguments() {
+        return slot(TYPE_ARGUMENTS);
+    }
+}
@@ -0,0 +1,165 @@
+package syspro.parser.ast;
+
+import syspro.lexer.LexerContext;
+import syspro.tm.lexer.Token;
+import syspro.tm.parser.AnySyntaxKind;
+import syspro.tm.parser.SyntaxNode;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Immutable, position-independent node of a syntax tree. It knows its width and its children but not where it is,
+// so equal subtrees can be one object, shared between trees, threads and versions of a document.
+// Positions come from RedNode, which wraps a green node together with its parent and absolute offset.
+// Widths and offsets are in code points, like token positions. Tokens do not tile the text (indentation tokens
+// sit on the position of the next token), so each child keeps its offset from the start of the node.
+public final class GreenNode {
+
+    public final AnySyntaxKind kind;
+    // The token of a leaf moved to offset 0, null for other nodes.
+    public final Token token;
+    // Offset past the last code point covered by the node, trivia included.
+    public final int width;
+    private final GreenNode[] children;
+    private final int[] offsets;
+    private final int hash;
+
+    GreenNode(AnySyntaxKind kind, Token token, int width, GreenNode[] children, int[] offsets) {
+        this.kind = kind;
+        this.token = token;
+        this.width = width;
+        this.children = children;
+        this.offsets = offsets;
+        int h = Objects.hashCode(kind) * 31 + width;
+        if (token != null) h = h * 31 + token.toString().hashCode();
+        for (int i = 0; i < children.length; i++) {
+            h = h * 31 + System.identityHashCode(children[i]);
+            h = h * 31 + offsets[i];
+        }
+        this.hash = h;
+    }
+
+    public int slotCount() {
+        return children.length;
+    }
+
+    // Null for an empty slot.
+    public GreenNode slot(int index) {
+        return children[index];
+    }
+
+    // Offset of a child from the start of this node.
+    public int slotOffset(int index) {
+        return offsets[index];
+    }
+
+    // Structural equality one level deep: children are compared by identity, so it only finds equal subtrees
+    // when the children were interned by the same Cache.
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof GreenNode other)) return false;
+        if (hash != other.hash || kind != other.kind || width != other.width) return false;
+        if (!sameToken(token, other.token) || children.length != other.children.length) return false;
+        for (int i = 0; i < children.length; i++) {
+            if (children[i] != other.children[i]) return false;
+        }
+        return Arrays.equals(offsets, other.offsets);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    private static boolean sameToken(Token a, Token b) {
+        if (a == b) return true;
+        if (a == null || b == null || a.getClass() != b.getClass()) return false;
+        return a.end == b.end && a.leadingTriviaLength == b.leadingTriviaLength
+                && a.trailingTriviaLength == b.trailingTriviaLength && a.toString().equals(b.toString());
+    }
+
+    // Builds green trees and hands out one object for equal subtrees. One cache is meant for the versions of one
+    // document, see SysproParseResult; it can be used from several threads.
+    // Only leaves and nodes with a few children are interned, larger nodes rarely repeat. Sharing is only a saving,
+    // so once the cache holds MAX_NODES nodes it starts over instead of keeping the nodes of every old version.
+    public static final class Cache {
+
+        private static final int MAX_INTERNED_SLOTS = 3;
+        static final int MAX_NODES = 1 << 16;
+        private static final int NONE = Integer.MAX_VALUE;
+
+        private final ConcurrentHashMap<GreenNode, GreenNode> nodes = new ConcurrentHashMap<>();
+
+        public int size() {
+            return nodes.size();
+        }
+
+        // Green tree of a parsed tree.
+        public GreenNode of(SyntaxNode node) {
+            return node == null ? null : convert(node, new int[1]);
+        }
+
+        // Red tree over the green tree of a parsed tree, at the same absolute offsets.
+        public RedNode tree(SyntaxNode node) {
+            if (node == null) return null;
+            int[] start = new int[1];
+            GreenNode green = convert(node, start);
+            return RedNode.root(green, start[0] == NONE ? 0 : start[0]);
+        }
+
+        // Node without a token over children that start at the given absolute offsets. Offsets of null children
+        // and of children without tokens (width 0) are ignored.
+        public GreenNode node(AnySyntaxKind kind, GreenNode[] children, int[] starts) {
+            int[] absolute = starts.clone();
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] == null || children[i].width == 0) absolute[i] = NONE;
+            }
+            return make(kind, null, children.clone(), absolute);
+        }
+
+        // Also stores the absolute start of the node into start[0], NONE if it has no tokens.
+        private GreenNode convert(SyntaxNode node, int[] start) {
+            int count = node.slotCount();
+            GreenNode[] children = new GreenNode[count];
+            int[] starts = new int[count];
+            for (int i = 0; i < count; i++) {
+                SyntaxNode slot = node.slot(i);
+                starts[i] = NONE;
+                if (slot == null) continue;
+                children[i] = convert(slot, start);
+                starts[i] = start[0];
+            }
+            Token token = node.token();
+            start[0] = token == null ? NONE : token.start;
+            for (int childStart : starts) start[0] = Math.min(start[0], childStart);
+            return make(node.kind(), token, children, starts);
+        }
+
+        // starts are absolute, NONE for a child without tokens.
+        private GreenNode make(AnySyntaxKind kind, Token token, GreenNode[] children, int[] starts) {
+            int first = token == null ? NONE : token.start;
+            int last = token == null ? NONE : token.end + 1;
+            for (int i = 0; i < children.length; i++) {
+                if (starts[i] == NONE) continue;
+                first = Math.min(first, starts[i]);
+                last = last == NONE ? starts[i] + children[i].width : Math.max(last, starts[i] + children[i].width);
+            }
+
+            int[] offsets = new int[children.length];
+            for (int i = 0; i < children.length; i++) {
+                if (starts[i] != NONE) offsets[i] = starts[i] - first;
+            }
+            Token relative = token == null ? null : LexerContext.shift(token, -token.start);
+            return intern(new GreenNode(kind, relative, first == NONE ? 0 : last - first, children, offsets));
+        }
+
+        GreenNode intern(GreenNode green) {
+            if (green.children.length > MAX_INTERNED_SLOTS) return green;
+            if (nodes.size() >= MAX_NODES) nodes.clear();
+            GreenNode existing = nodes.putIfAbsent(green, green);
+            return existing == null ? green : existing;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package syspro.parser.ast;
+
+// IDENTIFIER_NAME_EXPRESSION - name
+public final class IdentifierNameExpressionNode extends ArenaNode {
+
+    static final int NAME = 0;
+
+    IdentifierNameExpressionNode(SyntaxArena arena, int index) {
+        super(arena, index);
+    }
+
+    public ArenaNode name() {
+        return slot(NAME);
+    }
+}
@@ -0,0 +1,25 @@
+package syspro.parser.ast;
+
+// IF_STATEMENT - if, condition, indent, thenBlock, dedent, else, elseIndent, elseBlock, elseDedent
+public final class IfStatementNode extends ArenaNode {
+
+    static final int CONDITION = 1;
+    static final int THEN_BLOCK = 3;
+    static final int ELSE_BLOCK = 7;
+
+    IfStatementNode(SyntaxArena arena, int index) {
+        super(arena, index);
+    }
+
+    public ArenaNode condition() {
+        return slot(CONDITION);
+    }
+
+    public ArenaNode thenBlock() {
+        return slot(THEN_BLOCK);
+    }
+
+    public ArenaNode elseBlock() {
+        return slot(ELSE_BLOCK);
+    }
+}
@@ -0,0 +1,20 @@
+package syspro.parser.ast;
+
+// PARAMETER_DEFINITION - name, colon, type
+public final class ParameterDefinitionNode extends ArenaNode {
+
+    static final int NAME = 0;
+    static final int TYPE = 2;
+
+    ParameterDefinitionNode(SyntaxArena arena, int index) {
+        super(arena, index);
+    }
+
+    public ArenaNode name() {
+        return slot(NAME);
+    }
+
+    public ArenaNode type() {
+        return slot(TYPE);
+    }
+}
@@ -0,0 +1,108 @@
+package syspro.parser.ast;
+
+import syspro.lexer.LexerContext;
+import syspro.tm.lexer.Token;
+import syspro.tm.parser.AnySyntaxKind;
+import syspro.tm.parser.SyntaxNode;
+import syspro.tm.parser.TextSpan;
+
+// Positioned view of a GreenNode: adds the parent and the absolute offset. Children and tokens are created
+// the first time they are asked for, so walking a part of a large tree only allocates for that part.
+// Red nodes are immutable too, apart from children and token. Those two are caches that are filled without
+// synchronization, a benign race: a thread that does not see another thread's write creates its own wrapper of the
+// same green node, at the same offset. Reading one through the race is safe because every field of a RedNode and of
+// a Token is final. So a tree can be shared between threads, but two of them may get different RedNode objects for
+// the same slot: compare nodes by green and offset, not by identity.
+public final class RedNode implements SyntaxNode {
+
+    public final GreenNode green;
+    public final RedNode parent;
+    // Absolute start of the node, trivia included.
+    public final int offset;
+    // Benign racy caches, see above.
+    private final RedNode[] children;
+    private Token token;
+
+    private RedNode(GreenNode green, RedNode parent, int offset) {
+        this.green = green;
+        this.parent = parent;
+        this.offset = offset;
+        this.children = new RedNode[green.slotCount()];
+    }
+
+    public static RedNode root(GreenNode green, int offset) {
+        return new RedNode(green, null, offset);
+    }
+
+    @Override
+    public AnySyntaxKind kind() {
+        return green.kind;
+    }
+
+    @Override
+    public int slotCount() {
+        return green.slotCount();
+    }
+
+    @Override
+    public RedNode slot(int index) {
+        RedNode child = children[index];
+        if (child == null) {
+            GreenNode slot = green.slot(index);
+            if (slot == null) return null;
+            child = new RedNode(slot, this, offset + green.slotOffset(index));
+            children[index] = child;
+        }
+        return child;
+    }
+
+    // The token of a leaf at its absolute position.
+    @Override
+    public Token token() {
+        Token result = token;
+        if (result == null && green.token != null) {
+            result = LexerContext.shift(green.token, offset);
+            token = result;
+        }
+        return result;
+    }
+
+    // From the first code point of the first token to the last code point of the last token, trivia included.
+    @Override
+    public TextSpan fullSpan() {
+        return new TextSpan(offset, green.width);
+    }
+
+    // Like fullSpan() but without the leading trivia of the first token and the trailing trivia of the last one.
+    @Override
+    public TextSpan span() {
+        Token first = firstToken();
+        if (first == null) return new TextSpan(offset, 0);
+        int start = first.start + first.leadingTriviaLength;
+        Token last = lastToken();
+        int end = last.end + 1 - last.trailingTriviaLength;
+        return new TextSpan(start, end - start);
+    }
+
+    // Null if there are no tokens under the node.
+    public Token firstToken() {
+        if (token() != null) return token();
+        for (int i = 0; i < slotCount(); i++) {
+            RedNode child = slot(i);
+            if (child == null) continue;
+            Token token = child.firstToken();
+            if (token != null) return token;
+        }
+        return null;
+    }
+
+    public Token lastToken() {
+        for (int i = slotCount() - 1; i >= 0; i--) {
+            RedNode child = slot(i);
+            if (child == null) continue;
+            Token token = child.lastToken();
+            if (token != null) return token;
+        }
+        return token();
+    }
+}
@@ -0,0 +1,259 @@
+package syspro.parser.ast;
+
+import syspro.lexer.TokenBuffer;
+import syspro.tm.lexer.Token;
+import syspro.tm.parser.AnySyntaxKind;
+import syspro.tm.parser.SyntaxKind;
+import syspro.tm.parser.SyntaxNode;
+import syspro.tm.symbols.SemanticSymbol;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Syntax tree of one parse stored in a few int arrays instead of one object per node.
+// A node is an index: its kind is an index into a small table of kinds, its token an index into the tokens
+// the tree was parsed from (-1 if it has none), and its children a range of the slots array (-1 for an empty slot).
+// A subtree is stored in pre-order, so walking it, or just going through the indices, reads the arrays front to back.
+// Symbols of the semantic analysis are kept next to the nodes, in an array created on the first one.
+// ArenaNode is the SyntaxNode view of an index, with a subclass per kind for the kinds the semantic analysis reads.
+public final class SyntaxArena {
+
+    private final TokenBuffer buffer;
+    private final List<Token> tokens;
+
+    private final List<AnySyntaxKind> kindTable = new ArrayList<>();
+    private final Map<AnySyntaxKind, Integer> kindIds = new HashMap<>();
+
+    private int size;
+    private int[] kinds = new int[64];
+    private int[] tokenIndices = new int[64];
+    // Children of node i are slots[slotStarts[i], slotStarts[i + 1]).
+    private int[] slotStarts = new int[65];
+    private int[] slots = new int[128];
+    private int slotCount;
+    private SemanticSymbol[] symbols;
+    private int lastToken;
+
+    // Tokens are read from the buffer when they are asked for, so the tree does not keep any Token objects.
+    public SyntaxArena(TokenBuffer buffer) {
+        this.buffer = buffer;
+        this.tokens = null;
+    }
+
+    public SyntaxArena(List<Token> tokens) {
+        this.buffer = null;
+        this.tokens = tokens;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Nodes of the kinds the semantic analysis reads come with accessors named after their slots.
+    public ArenaNode node(int index) {
+        if (!(kind(index) instanceof SyntaxKind kind)) return new ArenaNode(this, index);
+        return switch (kind) {
+            case TYPE_DEFINITION -> new TypeDefinitionNode(this, index);
+            case FUNCTION_DEFINITION -> new FunctionDefinitionNode(this, index);
+            case VARIABLE_DEFINITION -> new VariableDefinitionNode(this, index);
+            case PARAMETER_DEFINITION -> new ParameterDefinitionNode(this, index);
+            case TYPE_PARAMETER_DEFINITION -> new TypeParameterDefinitionNode(this, index);
+            case TYPE_BOUND -> new TypeBoundNode(this, index);
+            case IF_STATEMENT -> new IfStatementNode(this, index);
+            case WHILE_STATEMENT -> new WhileStatementNode(this, index);
+            case FOR_STATEMENT -> new ForStatementNode(this, index);
+            case EXPRESSION_STATEMENT -> new ExpressionStatementNode(this, index);
+            case IDENTIFIER_NAME_EXPRESSION -> new IdentifierNameExpressionNode(this, index);
+            case GENERIC_NAME_EXPRESSION -> new GenericNameExpressionNode(this, index);
+            default -> new ArenaNode(this, index);
+        };
+    }
+
+    public AnySyntaxKind kind(int index) {
+        return kindTable.get(kinds[index]);
+    }
+
+    public int slotCount(int index) {
+        return slotStarts[index + 1] - slotStarts[index];
+    }
+
+    // Index of a child, -1 for an empty slot.
+    public int slot(int index, int slot) {
+        if (slot < 0 || slot >= slotCount(index))
+            throw new IndexOutOfBoundsException("Slot " + slot + " of a node with " + slotCount(index) + " slots.");
+        return slots[slotStarts[index] + slot];
+    }
+
+    public int tokenIndex(int index) {
+        return tokenIndices[index];
+    }
+
+    public Token token(int index) {
+        int token = tokenIndices[index];
+        if (token < 0) return null;
+        return buffer != null ? buffer.token(token) : tokens.get(token);
+    }
+
+    public SemanticSymbol symbol(int index) {
+        return symbols == null ? null : symbols[index];
+    }
+
+    public void setSymbol(int index, SemanticSymbol symbol) {
+        if (symbols == null) {
+            if (symbol == null) return;
+            symbols = new SemanticSymbol[kinds.length];
+        }
+        symbols[index] = symbol;
+    }
+
+    // Copies a tree into the arena. Its tokens have to come from the tokens of the arena.
+    public ArenaNode add(SyntaxNode node) {
+        return node == null ? null : node(copy(node));
+    }
+
+    // New node over children that are nodes of this arena or trees to copy into it.
+    // The children go first, so the node is not in pre-order with them; it is meant for the list and the root
+    // above the top-level definitions.
+    public ArenaNode add(AnySyntaxKind kind, List<? extends SyntaxNode> children) {
+        int[] ids = new int[children.size()];
+        for (int i = 0; i < ids.length; i++) {
+            SyntaxNode child = children.get(i);
+            ids[i] = child instanceof ArenaNode node && node.arena == this ? node.index : child == null ? -1 : copy(child);
+        }
+        int index = allocate(kind, -1, ids.length);
+        System.arraycopy(ids, 0, slots, slotStarts[index], ids.length);
+        return node(index);
+    }
+
+    // Appends the nodes of part, an arena over the same tokens. Returns the index of its first node in this arena.
+    public int append(SyntaxArena part) {
+        int base = size;
+        int slotBase = slotCount;
+        ensureCapacity(size + part.size, slotCount + part.slotCount);
+        int[] kindMap = new int[part.kindTable.size()];
+        for (int i = 0; i < kindMap.length; i++) kindMap[i] = kindId(part.kindTable.get(i));
+
+        for (int i = 0; i < part.size; i++) {
+            kinds[base + i] = kindMap[part.kinds[i]];
+            tokenIndices[base + i] = part.tokenIndices[i];
+            slotStarts[base + i] = slotBase + part.slotStarts[i];
+        }
+        for (int i = 0; i < part.slotCount; i++) {
+            int child = part.slots[i];
+            slots[slotBase + i] = child < 0 ? -1 : base + child;
+        }
+        size += part.size;
+        slotCount += part.slotCount;
+        slotStarts[size] = slotCount;
+        for (int i = 0; part.symbols != null && i < part.size; i++) {
+            if (part.symbols[i] != null) setSymbol(base + i, part.symbols[i]);
+        }
+        return base;
+    }
+
+    // Copies in pre-order with a stack of its own, as a chain like a + b + c + ... is as deep as it is long.
+    private int copy(SyntaxNode node) {
+        int first = size;
+        ArrayDeque<SyntaxNode> nodes = new ArrayDeque<>();
+        // Where the index of each node on the stack goes in slots, -1 for the node copied.
+        IntStack targets = new IntStack();
+        nodes.push(node);
+        targets.push(-1);
+        while (!nodes.isEmpty()) {
+            SyntaxNode next = nodes.pop();
+            int target = targets.pop();
+            int count = next.slotCount();
+            int index = allocate(next.kind(), indexOf(next.token()), count);
+            if (target >= 0) slots[target] = index;
+            int start = slotStarts[index];
+            for (int i = count - 1; i >= 0; i--) {
+                SyntaxNode child = next.slot(i);
+                if (child == null) {
+                    slots[start + i] = -1;
+                    continue;
+                }
+                nodes.push(child);
+                targets.push(start + i);
+            }
+        }
+        return first;
+    }
+
+    private static final class IntStack {
+        private int[] values = new int[16];
+        private int size;
+
+        void push(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int pop() {
+            return values[--size];
+        }
+    }
+
+    private int allocate(AnySyntaxKind kind, int token, int count) {
+        ensureCapacity(size + 1, slotCount + count);
+        int index = size++;
+        kinds[index] = kindId(kind);
+        tokenIndices[index] = token;
+        slotStarts[index] = slotCount;
+        slotCount += count;
+        slotStarts[index + 1] = slotCount;
+        return index;
+    }
+
+    private void ensureCapacity(int nodes, int slotCount) {
+        if (nodes > kinds.length) {
+            int capacity = Math.max(kinds.length * 2, nodes);
+            kinds = Arrays.copyOf(kinds, capacity);
+            tokenIndices = Arrays.copyOf(tokenIndices, capacity);
+            slotStarts = Arrays.copyOf(slotStarts, capacity + 1);
+            if (symbols != null) symbols = Arrays.copyOf(symbols, capacity);
+        }
+        if (slotCount > slots.length) slots = Arrays.copyOf(slots, Math.max(slots.length * 2, slotCount));
+    }
+
+    private int kindId(AnySyntaxKind kind) {
+        Integer id = kindIds.get(kind);
+        if (id == null) {
+            id = kindTable.size();
+            kindTable.add(kind);
+            kindIds.put(kind, id);
+        }
+        return id;
+    }
+
+    // Looks for the token around the one found last, as the leaves of a tree mostly come in the order of the tokens.
+    // Token starts are not sorted: an indentation token is at the start of the line of the token after it,
+    // inside that token's leading trivia. Equal indentation tokens next to each other are interchangeable.
+    private int indexOf(Token token) {
+        if (token == null) return -1;
+        AnySyntaxKind kind = token.toSyntaxKind();
+        int count = tokenCount();
+        for (int distance = 0; lastToken + distance < count || lastToken - distance >= 0; distance++) {
+            int after = lastToken + distance;
+            if (after < count && isToken(after, token, kind)) return lastToken = after;
+            int before = lastToken - distance;
+            if (before >= 0 && isToken(before, token, kind)) return lastToken = before;
+        }
+        throw new IllegalArgumentException("Token " + token + " at " + token.start + " is not one of the arena's tokens.");
+    }
+
+    private boolean isToken(int index, Token token, AnySyntaxKind kind) {
+        if (buffer != null) {
+            return buffer.start(index) == token.start && buffer.end(index) == token.end && buffer.syntaxKind(index) == kind;
+        }
+        Token other = tokens.get(index);
+        return other.start == token.start && other.end == token.end && other.toSyntaxKind() == kind;
+    }
+
+    private int tokenCount() {
+        return buffer != null ? buffer.size() : tokens.size();
+    }
+}
@@ -0,0 +1,15 @@
+package syspro.parser.ast;
+
+// TYPE_BOUND - bound, types
+public final class TypeBoundNode extends ArenaNode {
+
+    static final int TYPES = 1;
+
+    TypeBoundNode(SyntaxArena arena, int index) {
+        super(arena, index);
+    }
+
+    public ArenaNode types() {
+        return slot(TYPES);
+    }
+}
@@ -0,0 +1,35 @@
+package syspro.parser.ast;
+
+// TYPE_DEFINITION - keyword, name, lessThan, typeParameters, greaterThan, bounds, indent, members, dedent
+public final class TypeDefinitionNode extends ArenaNode {
+
+    static final int KEYWORD = 0;
+    static final int NAME = 1;
+    static final int TYPE_PARAMETERS = 3;
+    static final int BOUNDS = 5;
+    static final int MEMBERS = 7;
+
+    TypeDefinitionNode(SyntaxArena arena, int index) {
+        super(arena, index);
+    }
+
+    public ArenaNode keyword() {
+        return slot(KEYWORD);
+    }
+
+    public ArenaNode name() {
+        return slot(NAME);
+    }
+
+    public ArenaNode typeParameters() {
+        return slot(TYPE_PARAMETERS);
+    }
+
+    public TypeBoundNode bounds() {
+        return (TypeBoundNode) slot(BOUNDS);
+    }
+
+    public ArenaNode members() {
+        return slot(MEMBERS);
+    }
+}
@@ -0,0 +1,20 @@
+package syspro.parser.ast;
+
+// TYPE_PARAMETER_DEFINITION - name, bounds
+public final class TypeParameterDefinitionNode extends ArenaNode {
+
+    static final int NAME = 0;
+    static final int BOUNDS = 1;
+
+    TypeParameterDefinitionNode(SyntaxArena arena, int index) {
+        super(arena, index);
+    }
+
+    public ArenaNode name() {
+        return slot(NAME);
+    }
+
+    public TypeBoundNode bounds() {
+        return (TypeBoundNode) slot(BOUNDS);
+    }
+}
@@ -0,0 +1,30 @@
+package syspro.parser.ast;
+
+// VARIABLE_DEFINITION - keyword, name, colon, type, eq, value
+public final class VariableDefinitionNode extends ArenaNode {
+
+    static final int KEYWORD = 0;
+    static final int NAME = 1;
+    static final int TYPE = 3;
+    static final int VALUE = 5;
+
+    VariableDefinitionNode(SyntaxArena arena, int index) {
+        super(arena, index);
+    }
+
+    public ArenaNode keyword() {
+        return slot(KEYWORD);
+    }
+
+    public ArenaNode name() {
+        return slot(NAME);
+    }
+
+    public ArenaNode type() {
+        return slot(TYPE);
+    }
+
+    public ArenaNode value() {
+        return slot(VALUE);
+    }
+}
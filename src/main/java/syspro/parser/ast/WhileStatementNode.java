@@ -0,0 +1,20 @@
+package syspro.parser.ast;
+
+// WHILE_STATEMENT - while, condition, indent, body, dedent
+public final class WhileStatementNode extends ArenaNode {
+
+    static final int CONDITION = 1;
+    static final int BODY = 3;
+
+    WhileStatementNode(SyntaxArena arena, int index) {
+        super(arena, index);
+    }
+
+    public ArenaNode condition() {
+        return slot(CONDITION);
+    }
+
+    public ArenaNode body() {
+        return slot(BODY);
+    }
+}
@@ -0,0 +1,102 @@
+package syspro.utils;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+// Starts of the lines of a text, to turn offsets into lines and columns by binary search instead of counting
+// newlines. Offsets are in code points, like the positions of tokens and text spans. UTF-16 indices, as used by String
+// and by editors, are converted with the offsets of the code points outside the BMP, which take two chars.
+// Lines end after '\n' and, like columns, are counted from 1. Immutable, so a parse and its analysis can share it.
+public final class LineMap {
+
+    private final int length;
+    // Offset of the first code point of each line, lineStarts[0] is 0.
+    private final int[] lineStarts;
+    // Offsets of the supplementary code points, in order.
+    private final int[] supplementary;
+
+    public LineMap(String text) {
+        int[] starts = new int[16];
+        int lines = 1;
+        int[] pairs = new int[0];
+        int pairCount = 0;
+        int offset = 0;
+        for (int i = 0; i < text.length(); offset++) {
+            char c = text.charAt(i++);
+            if (c == '\n') {
+                if (lines == starts.length) starts = Arrays.copyOf(starts, lines * 2);
+                starts[lines++] = offset + 1;
+            } else if (Character.isHighSurrogate(c) && i < text.length() && Character.isLowSurrogate(text.charAt(i))) {
+                if (pairCount == pairs.length) pairs = Arrays.copyOf(pairs, Math.max(16, pairCount * 2));
+                pairs[pairCount++] = offset;
+                i++;
+            }
+        }
+        this.length = offset;
+        this.lineStarts = Arrays.copyOf(starts, lines);
+        this.supplementary = Arrays.copyOf(pairs, pairCount);
+    }
+
+    // Length of the text in code points.
+    public int length() {
+        return length;
+    }
+
+    public int lineCount() {
+        return lineStarts.length;
+    }
+
+    // Line of the code point at offset; a '\n' is on the line it ends. The end of the text, offset length, is valid.
+    public int line(int offset) {
+        Objects.checkIndex(offset, length + 1);
+        return countAtMost(lineStarts, offset);
+    }
+
+    // Column of offset in code points.
+    public int column(int offset) {
+        return offset - lineStart(line(offset)) + 1;
+    }
+
+    // Column of offset in UTF-16 units.
+    public int utf16Column(int offset) {
+        return utf16Index(offset) - utf16Index(lineStart(line(offset))) + 1;
+    }
+
+    // Offset of the first code point of line.
+    public int lineStart(int line) {
+        Objects.checkIndex(line - 1, lineStarts.length);
+        return lineStarts[line - 1];
+    }
+
+    // UTF-16 index of the code point at offset.
+    public int utf16Index(int offset) {
+        Objects.checkIndex(offset, length + 1);
+        return offset + countAtMost(supplementary, offset - 1);
+    }
+
+    // Offset of the code point that UTF-16 index is a part of.
+    public int offset(int utf16Index) {
+        Objects.checkIndex(utf16Index, length + supplementary.length + 1);
+        // Supplementary code point k takes indices supplementary[k] + k and the one after.
+        int low = 0;
+        int high = supplementary.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (supplementary[middle] + middle + 1 <= utf16Index) low = middle + 1;
+            else high = middle;
+        }
+        return utf16Index - low;
+    }
+
+    // Number of values at most value in a sorted array.
+    private static int countAtMost(int[] values, int value) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] <= value) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,106 @@
+package syspro.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+// Hands log lines to a sink on a background thread, so that logging never waits for I/O.
+// Lines go through a bounded ring buffer (an ArrayBlockingQueue); when it is full, new lines are dropped and counted.
+public final class LogAppender implements AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 1 << 14;
+
+    private final Logger.Sink sink;
+    private final ArrayBlockingQueue<String> ring;
+    private final Thread writer;
+
+    private long appended;
+    private long written;
+    private long dropped;
+    private volatile boolean closed;
+
+    public LogAppender(Logger.Sink sink) {
+        this(sink, DEFAULT_CAPACITY);
+    }
+
+    public LogAppender(Logger.Sink sink, int capacity) {
+        this.sink = sink;
+        this.ring = new ArrayBlockingQueue<>(capacity);
+        this.writer = Thread.ofPlatform().name("syspro-log").daemon().start(this::drain);
+    }
+
+    // Returns false if the line was dropped because the buffer is full or the appender is closed.
+    public boolean append(String line) {
+        if (closed || !ring.offer(line)) {
+            synchronized (this) {
+                dropped++;
+            }
+            return false;
+        }
+        synchronized (this) {
+            appended++;
+        }
+        return true;
+    }
+
+    public synchronized long dropped() {
+        return dropped;
+    }
+
+    // Waits until every line appended so far has been written and the sink flushed.
+    public void flush() {
+        synchronized (this) {
+            long target = appended;
+            while (written < target && writer.isAlive()) {
+                try {
+                    wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // Writes the lines appended so far, then closes the sink.
+    @Override
+    public void close() {
+        flush();
+        closed = true;
+        writer.interrupt();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        List<String> batch = new ArrayList<>();
+        while (!closed) {
+            try {
+                batch.add(ring.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            ring.drainTo(batch);
+            try {
+                for (String line : batch) sink.write(line);
+                sink.flush();
+            } catch (IOException e) {
+                // A failing sink must not take the program down, its lines are lost.
+            }
+            synchronized (this) {
+                written += batch.size();
+                notifyAll();
+            }
+            batch.clear();
+        }
+        try {
+            sink.close();
+        } catch (IOException e) {
+            // Same as a failing write.
+        }
+    }
+}
@@ -4,31 +4,47 @@ import syspro.tm.lexer.Token;
 import syspro.tm.parser.AnySyntaxKind;
 import syspro.tm.parser.SyntaxNode;
 
-import java.io.File;
-import java.io.FileWriter;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import static syspro.tm.lexer.Keyword.NULL;
 
 
+// Logging for the lexer and parser stages. Off by default: every method returns before formatting anything
+// unless its level passes the threshold, and nothing is opened until the first line is logged.
+// Lines are written by one shared LogAppender on a background thread, so concurrent parses do not interleave writes.
+// The threshold and the file can be set with -Dsyspro.log.level=INFO and -Dsyspro.log.file=..., or with configure().
+// Without a file, lines go to syspro.log in the temporary directory.
 public class Logger {
 
-    String FILENAME = "src/main/java/syspro/utils/log.txt";
+    static final Path DEFAULT_FILE = Path.of(System.getProperty("java.io.tmpdir"), "syspro.log");
+
+    private static volatile LogLevel threshold = parseLevel(System.getProperty("syspro.log.level"));
+    private static Sink sink;
+    private static LogAppender appender;
 
 
     private Stage stage;
-    private File logFile;
-    private FileWriter writer;
 
 
+    // Ordered from the most verbose to OFF, a line is logged when its level is at least the threshold.
     public enum LogLevel {
         ALL,
+        DEBUG,
         INFO,
         WARNING,
         ERROR,
-        DEBUG
+        OFF
     }
 
     public enum Stage {
@@ -37,32 +53,136 @@ public class Logger {
         SEMANTIC
     }
 
+    // Where the appender writes lines, one call per line. The appender closes it when it is closed itself.
+    public interface Sink extends Closeable {
+        void write(String line) throws IOException;
+
+        default void flush() throws IOException {
+        }
+
+        @Override
+        default void close() throws IOException {
+        }
+
+        static Sink of(Consumer<String> consumer) {
+            return consumer::accept;
+        }
+
+        // Truncates the file when it is opened, that is on the first line logged. Lines written after close()
+        // open it again and are appended.
+        static Sink file(Path path) {
+            return new Sink() {
+                private Writer writer;
+                private boolean opened;
+
+                @Override
+                public void write(String line) throws IOException {
+                    if (writer == null) {
+                        writer = opened
+                                ? Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)
+                                : Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+                        opened = true;
+                    }
+                    writer.write(line);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    if (writer != null) writer.flush();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    if (writer == null) return;
+                    Writer closing = writer;
+                    writer = null;
+                    closing.close();
+                }
+            };
+        }
+    }
+
     public Logger(Stage stage) {
         this.stage = stage;
-        this.logFile = new File(FILENAME);
+        header(stage);
+    }
+
+    // Sets the threshold and sends the lines logged from now on to sink. Lines already logged go to the old sink,
+    // which is closed.
+    public static synchronized void configure(LogLevel level, Sink sink) {
+        if (appender != null) appender.close();
+        appender = null;
+        Logger.sink = sink;
+        threshold = level;
+    }
+
+    public static void setLevel(LogLevel level) {
+        threshold = level;
+    }
+
+    public static LogLevel level() {
+        return threshold;
+    }
+
+    // Level named by value, in any case. A missing or misspelled level turns logging off rather than failing
+    // the class initialization, and with it every parse.
+    static LogLevel parseLevel(String value) {
+        if (value == null) return LogLevel.OFF;
         try {
-            this.writer = new FileWriter(logFile, false);
-            writer.write(String.format("\n-------------%s----------\n", stage));
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+            return LogLevel.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return LogLevel.OFF;
         }
+    }
 
+    // Waits until the lines logged so far are written, e.g. before reading the log.
+    public static void flush() {
+        LogAppender current;
+        synchronized (Logger.class) {
+            current = appender;
+        }
+        if (current != null) current.flush();
     }
 
-    public void log(LogLevel level, Stage stage, String message) {
-        String msg = String.format("--%s --%s   %s\n", level, stage, message);
-        try {
-            writer.write(msg);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    private static synchronized LogAppender appender() {
+        if (appender == null) {
+            if (sink == null) {
+                String file = System.getProperty("syspro.log.file");
+                sink = Sink.file(file != null ? Path.of(file) : DEFAULT_FILE);
+            }
+            appender = new LogAppender(sink);
         }
+        return appender;
+    }
+
+    public static boolean isEnabled(LogLevel level) {
+        return level != LogLevel.OFF && level.compareTo(threshold) >= 0;
+    }
+
+    public void log(LogLevel level, Stage stage, String message) {
+        if (!isEnabled(level)) return;
+        appender().append(line(level, stage, message));
+    }
+
+    private static String line(LogLevel level, Stage stage, String message) {
+        return String.format("--%s --%s   %s\n", level, stage, message);
+    }
+
+    public void log(LogLevel level, Stage stage, Supplier<String> message) {
+        if (!isEnabled(level)) return;
+        log(level, stage, message.get());
     }
 
     public void info(String message) {
         log(LogLevel.INFO, this.stage, message);
     }
 
+    public void info(Supplier<String> message) {
+        log(LogLevel.INFO, this.stage, message);
+    }
+
     public void info(Token token, String message) {
+        if (!isEnabled(LogLevel.INFO)) return;
         String tokenLength = String.format("<%1$s %2$s>",
                 token.start + token.leadingTriviaLength,
                 token.end - token.trailingTriviaLength);
@@ -75,14 +195,20 @@ public class Logger {
     }
 
     public void info(AnySyntaxKind kind, String message) {
-
+        if (!isEnabled(LogLevel.INFO)) return;
         String tokenInfo = String.format("  %s",
                 kind.toString());
         log(LogLevel.INFO, this.stage, message.trim() + tokenInfo);
 
     }
 
+    public void info(AnySyntaxKind kind, Supplier<String> message) {
+        if (!isEnabled(LogLevel.INFO)) return;
+        info(kind, message.get());
+    }
+
     public void info(SyntaxNode node, String message) {
+        if (!isEnabled(LogLevel.INFO)) return;
         List<AnySyntaxKind> slots = new ArrayList<>();
 
         for (int i = 0; i < node.slotCount(); i++) {
@@ -102,67 +228,67 @@ public class Logger {
 
     }
 
+    public void warn(Supplier<String> message) {
+        log(LogLevel.WARNING, this.stage, message);
+    }
+
     public void error(String message) {
         log(LogLevel.ERROR, this.stage, message);
 
     }
 
+    public void error(Supplier<String> message) {
+        log(LogLevel.ERROR, this.stage, message);
+    }
+
     public void debug(String message) {
         log(LogLevel.DEBUG, this.stage, message);
 
     }
 
+    public void debug(Supplier<String> message) {
+        log(LogLevel.DEBUG, this.stage, message);
+    }
+
     public void updateStage(Stage stage) {
-        try {
-            writer.write(String.format("\n-------------%s----------\n", stage));
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
         this.stage = stage;
+        header(stage);
     }
 
-    public void close() {
-        try {
-            writer.close();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+    // Not through info(), which a subclass could override: the constructor calls it.
+    private static void header(Stage stage) {
+        if (!isEnabled(LogLevel.INFO)) return;
+        appender().append(line(LogLevel.INFO, stage, String.format("\n-------------%s----------\n", stage)));
     }
 
     public void printTree(SyntaxNode head, boolean includeSelf) {
-        try {
-            writer.write(String.format("\n-------------AST----------\n"));
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-        printTreeRecursive(head, 0, includeSelf);
+        if (!isEnabled(LogLevel.INFO)) return;
+        StringBuilder sb = new StringBuilder("\n-------------AST----------\n");
+        printTreeRecursive(sb, head, 0, includeSelf);
+        appender().append(sb.toString());
     }
 
     // Helper recursive method to print the tree
-    private void printTreeRecursive(SyntaxNode node, int depth, boolean includeSelf) {
+    private void printTreeRecursive(StringBuilder sb, SyntaxNode node, int depth, boolean includeSelf) {
         String indent = " ".repeat(depth * 2);
-        try {
-            AnySyntaxKind kind = NULL;
-            String info = " ";
-            if (node != null) kind = node.kind();
-            if (node != null && node.token() != null) info += node.token().toString();
-            writer.write(indent + kind + info + "\n");
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        AnySyntaxKind kind = NULL;
+        String info = " ";
+        if (node != null) kind = node.kind();
+        if (node != null && node.token() != null) info += node.token().toString();
+        sb.append(indent).append(kind).append(info).append('\n');
 
         if (node == null) return;
 
         if (includeSelf) {
             for (int i = 0; i < node.slotCount(); i++) {
                 var child = node.slot(i);
-                printTreeRecursive(child, depth + 1, includeSelf);
+                printTreeRecursive(sb, child, depth + 1, includeSelf);
 
             }
         } else {
             for (int i = node.slotCount() - 1; i >= 0; i--) {
                 var child = node.slot(i);
-                printTreeRecursive(child, depth + 1, includeSelf);
+                printTreeRecursive(sb, child, depth + 1, includeSelf);
 
             }
         }
@@ -0,0 +1,37 @@
+package syspro.lexer;
+
+import org.junit.jupiter.api.Test;
+import syspro.tm.lexer.BadToken;
+import syspro.tm.lexer.IdentifierToken;
+import syspro.tm.lexer.Token;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class BadTokenTest {
+
+    @Test
+    void unrecognizedRunIsOneToken() {
+        List<Token> tokens = new Lexer().lex("x  @$\u0000\u00a7;{} y");
+        assertEquals(3, tokens.size());
+        assertInstanceOf(IdentifierToken.class, tokens.get(0));
+        Token bad = tokens.get(1);
+        assertInstanceOf(BadToken.class, bad);
+        assertEquals(1, bad.start);
+        assertEquals(9, bad.end);
+        assertEquals(2, bad.leadingTriviaLength);
+        assertEquals(0, bad.trailingTriviaLength);
+        assertInstanceOf(IdentifierToken.class, tokens.get(2));
+    }
+
+    @Test
+    void runStopsAtTokens() {
+        List<Token> tokens = new Lexer().lex("@@a@@1@@+@@\"s\"@@");
+        assertEquals(List.of("BadToken", "IdentifierToken", "BadToken", "IntegerLiteralToken", "BadToken", "SymbolToken",
+                        "BadToken", "StringLiteralToken", "BadToken"),
+                tokens.stream().map(t -> t.getClass().getSimpleName()).toList());
+        assertEquals(tokens, new DfaLexer().lex("@@a@@1@@+@@\"s\"@@"));
+    }
+}
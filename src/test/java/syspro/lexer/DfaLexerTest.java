@@ -0,0 +1,37 @@
+package syspro.lexer;
+
+import org.junit.jupiter.api.Test;
+import syspro.tm.lexer.Token;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static syspro.lexer.LexerTestSupport.*;
+
+
+class DfaLexerTest {
+
+    private static void assertSameTokens(String source) {
+        List<Token> expected = new Lexer().lex(source);
+        List<Token> actual = new DfaLexer().lex(source);
+        assertEquals(expected.size(), actual.size(), source);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(describe(expected.get(i)), describe(actual.get(i)), source + ", token " + i);
+        }
+    }
+
+    @Test
+    void sameTokensAsLexForResources() throws IOException {
+        for (int i = 0; i <= 17; i++) assertSameTokens(resource(i));
+    }
+
+    @Test
+    void sameTokensOnOperatorsAndLiterals() {
+        assertSameTokens("x = (a<<2)+(b>>1)*a%b-~a^b|a&b\ny = a[b]!=b[a]==(a<=b)>=(a<b)>(a>b)\n");
+        assertSameTokens("val m: Map<List<Int32>>= a=!b && c || d <: e < f\n");
+        assertSameTokens("12i32 7u64x 5i6 3u32\n'\\n' \"s\\U+0041\" 'ab' \"open\n");
+        assertSameTokens("class𝚨 true false truex null٣ if_ _if ٣٣ 5u64");
+        assertSameTokens("a # comment\n  b\n\tc\r\n'");
+    }
+}
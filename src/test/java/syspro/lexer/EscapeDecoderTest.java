@@ -0,0 +1,78 @@
+package syspro.lexer;
+
+import org.junit.jupiter.api.Test;
+import syspro.tm.lexer.BadToken;
+import syspro.tm.lexer.RuneLiteralToken;
+import syspro.tm.lexer.StringLiteralToken;
+import syspro.tm.lexer.Token;
+import syspro.tm.parser.Diagnostic;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class EscapeDecoderTest {
+
+    private static String string(String source) {
+        return ((StringLiteralToken) new Lexer().lex(source).getFirst()).value;
+    }
+
+    private static int rune(String source) {
+        return ((RuneLiteralToken) new Lexer().lex(source).getFirst()).value;
+    }
+
+    @Test
+    void decodesEscapes() {
+        assertEquals("plain 𝚨 text", string("\"plain 𝚨 text\""));
+        assertEquals("𝚨­𐍁", string("\"\\U+1D6A8\\U+00AD\\U+10341\""));
+        assertEquals("a\tb\nc\\d'e\0", string("\"a\\tb\\nc\\\\d\\'e\\0\""));
+        assertEquals(0x1D6A8, rune("'\\U+1D6A8'"));
+        assertEquals('\n', rune("'\\n'"));
+        assertEquals('x', rune("'x'"));
+    }
+
+    // An escaped quote does not end the literal it is in.
+    @Test
+    void escapedQuotes() {
+        for (Lexer lexer : new Lexer[]{new Lexer(), new DfaLexer()}) {
+            TokenBuffer buffer = lexer.lexToBuffer("x = \"a\\\"b\" + '\\''");
+            assertEquals(5, buffer.size());
+            assertEquals("a\"b", ((StringLiteralToken) buffer.token(2)).value);
+            assertEquals(9, buffer.token(2).end);
+            assertEquals('\'', ((RuneLiteralToken) buffer.token(4)).value);
+            assertTrue(buffer.diagnostics().isEmpty());
+        }
+        assertEquals("\\", string("\"\\\\\""));
+        assertEquals('\'', rune("'\\''"));
+    }
+
+    @Test
+    void reportsMalformedEscapes() {
+        TokenBuffer buffer = new Lexer().lexToBuffer("x = \"a\\qb\\U+12G\\U+D800\"");
+        assertEquals("a\\qb\\U+12G\\U+D800", ((StringLiteralToken) buffer.token(2)).value);
+
+        List<Diagnostic> diagnostics = buffer.diagnostics();
+        assertEquals(3, diagnostics.size());
+        assertEquals(6, diagnostics.get(0).location().start);
+        assertEquals(2, diagnostics.get(0).location().length);
+        assertEquals(9, diagnostics.get(1).location().start);
+        assertEquals(5, diagnostics.get(1).location().length);
+        assertEquals(15, diagnostics.get(2).location().start);
+        assertEquals(7, diagnostics.get(2).location().length);
+        assertTrue(diagnostics.get(0).info().errorCode().name().contains("\\q"));
+    }
+
+    @Test
+    void malformedRuneIsBadToken() {
+        TokenBuffer buffer = new Lexer().lexToBuffer("'\\U+12'");
+        Token token = buffer.token(0);
+        assertInstanceOf(BadToken.class, token);
+        assertEquals(1, buffer.diagnostics().size());
+        assertEquals(1, buffer.diagnostics().getFirst().location().start);
+        assertEquals(5, buffer.diagnostics().getFirst().location().length);
+
+        assertInstanceOf(BadToken.class, new Lexer().lex("'ab'").getFirst());
+        assertInstanceOf(BadToken.class, new Lexer().lex("''").getFirst());
+    }
+}
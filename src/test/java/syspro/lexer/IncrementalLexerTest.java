@@ -0,0 +1,78 @@
+package syspro.lexer;
+
+import org.junit.jupiter.api.Test;
+import syspro.tm.lexer.Token;
+import syspro.tm.parser.Diagnostic;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static syspro.lexer.LexerTestSupport.*;
+
+
+class IncrementalLexerTest {
+
+    private static final String[] FRAGMENTS = {
+            "\n", "\r\n", " ", "  ", "    ", "\t", "#", "# note\n", "\"", "'", "\"str\"", "'r'", "<", ">", "<:",
+            "=", "!", "(", ")", ":", "a", "name", "class", "def", "1", "42u64", "x.y", "𝚨", "\\U+10341", "$",
+            "\\q", "99999999999999999999",
+    };
+
+    @Test
+    void randomEditsMatchFullRelex() throws IOException {
+        Random random = new Random(4);
+        for (int i = 0; i <= 17; i++) {
+            StringBuilder text = new StringBuilder(resource(i));
+            IncrementalLexer lexer = new IncrementalLexer(text.toString());
+            assertEquals(describeAll(new Lexer().lex(text.toString())), describeAll(lexer.tokens()));
+
+            for (int step = 0; step < 200; step++) {
+                int[] codePoints = text.codePoints().toArray();
+                int offset = random.nextInt(codePoints.length + 1);
+                int removed = Math.min(random.nextInt(4), codePoints.length - offset);
+                String inserted = random.nextInt(3) == 0 ? "" : FRAGMENTS[random.nextInt(FRAGMENTS.length)];
+
+                String edited = new String(codePoints, 0, offset) + inserted
+                        + new String(codePoints, offset + removed, codePoints.length - offset - removed);
+                List<String> expected;
+                List<Diagnostic> expectedDiagnostics = new ArrayList<>();
+                try {
+                    expected = describeAll(new Lexer().lex(edited, expectedDiagnostics::add));
+                } catch (RuntimeException e) {
+                    // Text without tokens (only trivia, for example) is not lexable at all.
+                    continue;
+                }
+                text = new StringBuilder(edited);
+
+                List<Token> tokens = lexer.edit(offset, removed, inserted);
+                assertEquals(expected, describeAll(tokens),
+                        i + "-test.txt, step " + step + ": " + offset + "-" + removed + "+" + inserted);
+                assertEquals(describeDiagnostics(expectedDiagnostics), describeDiagnostics(lexer.diagnostics()),
+                        i + "-test.txt, step " + step + ": " + offset + "-" + removed + "+" + inserted);
+            }
+        }
+    }
+
+    @Test
+    void editReusesTokensAfterTheEditedLine() {
+        String source = "class A\n  def f(): Int64\n    return 1\n  def g(): Int64\n    return 2\n";
+        IncrementalLexer lexer = new IncrementalLexer(source);
+        List<Token> before = lexer.tokens();
+        List<Token> after = lexer.edit(source.indexOf("1"), 1, "100");
+
+        assertEquals(describeAll(new Lexer().lex(source.replace("return 1", "return 100"))), describeAll(after));
+        assertSame(before.get(0), after.get(0));
+        // Shifted tokens of the reused tail are made once.
+        assertSame(after.get(after.size() - 2), after.get(after.size() - 2));
+    }
+
+    @Test
+    void rejectsEditsOutsideOfText() {
+        IncrementalLexer lexer = new IncrementalLexer("class A\n");
+        assertThrows(IllegalArgumentException.class, () -> lexer.edit(9, 0, "x"));
+        assertThrows(IllegalArgumentException.class, () -> lexer.edit(4, 5, ""));
+    }
+}
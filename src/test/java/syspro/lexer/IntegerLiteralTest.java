@@ -0,0 +1,65 @@
+package syspro.lexer;
+
+import org.junit.jupiter.api.Test;
+import syspro.tm.lexer.BadToken;
+import syspro.tm.lexer.BuiltInType;
+import syspro.tm.lexer.IntegerLiteralToken;
+import syspro.tm.parser.Diagnostic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class IntegerLiteralTest {
+
+    private static IntegerLiteralToken integer(TokenBuffer buffer) {
+        return (IntegerLiteralToken) buffer.token(0);
+    }
+
+    @Test
+    void readsValueAndSuffix() {
+        TokenBuffer buffer = new Lexer().lexToBuffer("9223372036854775807 ");
+        assertEquals(Long.MAX_VALUE, integer(buffer).value);
+        assertEquals(BuiltInType.INT64, integer(buffer).type);
+        assertFalse(integer(buffer).hasTypeSuffix);
+
+        buffer = new Lexer().lexToBuffer("42u32 ");
+        assertEquals(42, integer(buffer).value);
+        assertEquals(BuiltInType.UINT32, integer(buffer).type);
+        assertTrue(integer(buffer).hasTypeSuffix);
+        assertTrue(buffer.diagnostics().isEmpty());
+    }
+
+    @Test
+    void readsFullUnsignedRange() {
+        TokenBuffer buffer = new Lexer().lexToBuffer("18446744073709551615u64 ");
+        assertEquals(-1L, integer(buffer).value);
+        assertEquals(BuiltInType.UINT64, integer(buffer).type);
+        assertTrue(buffer.diagnostics().isEmpty());
+    }
+
+    @Test
+    void reportsOverflow() {
+        for (String literal : new String[]{"9223372036854775808", "18446744073709551616u64", "99999999999999999999999i64",
+                "2147483648i32", "4294967296u32"}) {
+            TokenBuffer buffer = new Lexer().lexToBuffer("x = " + literal + " ");
+            assertInstanceOf(BadToken.class, buffer.token(2), literal);
+            assertEquals(1, buffer.diagnostics().size(), literal);
+            assertEquals(4, buffer.diagnostics().getFirst().location().start);
+            assertEquals(literal.length(), buffer.diagnostics().getFirst().location().length);
+        }
+        assertTrue(new Lexer().lexToBuffer("2147483647i32 4294967295u32 ").diagnostics().isEmpty());
+    }
+
+    // lex() has no diagnostics in its result, the token itself tells that the literal is wrong.
+    @Test
+    void overflowIsVisibleWithoutDiagnostics() {
+        assertInstanceOf(BadToken.class, new Lexer().lex("99999999999999999999").getFirst());
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        new Lexer().lex("x = 99999999999999999999", diagnostics::add);
+        assertEquals(1, diagnostics.size());
+        assertEquals(4, diagnostics.getFirst().location().start);
+    }
+}
@@ -0,0 +1,56 @@
+package syspro.lexer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static syspro.lexer.LexerTestSupport.*;
+
+
+class LexerSessionTest {
+
+    @Test
+    void sameTokensAsLexAcrossCalls() throws IOException {
+        LexerSession session = new LexerSession();
+        // Large and small sources in turn, so that later calls run over leftovers of earlier ones.
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i <= 17; i++) {
+                String source = resource(i);
+                assertEquals(describeAll(new Lexer().lex(source)), describeAll(session.lex(source)), "resource " + i);
+                assertEquals(describeAll(new Lexer().lex("x")), describeAll(session.lex("x")));
+            }
+        }
+        assertEquals(describeAll(new Lexer().lex("a\n  𝚨 # c\n")), describeAll(session.lex("a\n  𝚨 # c\n")));
+        assertTrue(session.lex("").isEmpty());
+    }
+
+    @Test
+    void diagnosticsOfLastCall() {
+        LexerSession session = new LexerSession();
+        session.lex("\"\\q\"");
+        assertEquals(1, session.diagnostics().size());
+        session.lex("\"ok\"");
+        assertTrue(session.diagnostics().isEmpty());
+        assertSame(LexerSession.local(), LexerSession.local());
+    }
+
+    // A thread's session must not keep the names and buffers of everything it has lexed.
+    @Test
+    void doesNotGrowWithoutBound() {
+        LexerSession session = new LexerSession();
+        StringBuilder names = new StringBuilder();
+        for (int i = 0; i <= LexerSession.MAX_NAMES; i++) names.append('n').append(i).append('\n');
+        String large = names.toString();
+        assertEquals(LexerSession.MAX_NAMES + 1, session.lex(large).size());
+        assertEquals(describeAll(new Lexer().lex("a b")), describeAll(session.lex("a b")));
+        assertEquals(2, session.lexer.names.size());
+
+        // A lexer of the caller keeps its names.
+        Lexer lexer = new Lexer();
+        LexerSession shared = new LexerSession(lexer);
+        shared.lex(large);
+        shared.lex("a b");
+        assertEquals(LexerSession.MAX_NAMES + 3, lexer.names.size());
+    }
+}
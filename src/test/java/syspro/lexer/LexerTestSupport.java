@@ -0,0 +1,50 @@
+package syspro.lexer;
+
+import syspro.tm.lexer.IntegerLiteralToken;
+import syspro.tm.lexer.Token;
+import syspro.tm.parser.Diagnostic;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+// Shared by the lexer tests: tokens and diagnostics as strings that assertEquals can compare, and the test sources.
+final class LexerTestSupport {
+
+    private LexerTestSupport() {
+    }
+
+    // Class, text, position and trivia. Integers also show their value and suffix, toString() only the text.
+    static String describe(Token t) {
+        String text = t instanceof IntegerLiteralToken i ? t + " " + i.value + " " + i.hasTypeSuffix : t.toString();
+        return String.format("%s %s %d %d %d %d", t.getClass().getSimpleName(), text,
+                t.start, t.end, t.leadingTriviaLength, t.trailingTriviaLength);
+    }
+
+    static List<String> describeAll(Iterator<Token> tokens) {
+        List<String> result = new ArrayList<>();
+        tokens.forEachRemaining(t -> result.add(describe(t)));
+        return result;
+    }
+
+    static List<String> describeAll(List<Token> tokens) {
+        return describeAll(tokens.iterator());
+    }
+
+    // Error codes have no equals(), so diagnostics are compared by location and name.
+    static List<String> describeDiagnostics(List<Diagnostic> diagnostics) {
+        return diagnostics.stream().map(d -> d.location() + " " + d.info().errorCode().name()).toList();
+    }
+
+    static String resource(int i) throws IOException {
+        try (InputStream in = LexerTestSupport.class.getResourceAsStream("/" + i + "-test.txt")) {
+            assertNotNull(in);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
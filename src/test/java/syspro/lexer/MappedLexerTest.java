@@ -0,0 +1,43 @@
+package syspro.lexer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static syspro.lexer.LexerTestSupport.*;
+
+
+class MappedLexerTest {
+
+    private static void assertSameAsString(Path path) throws IOException {
+        String source = Files.readString(path);
+        assertEquals(describeAll(new Lexer().lex(source)), describeAll(new Lexer().lex(path)), path.toString());
+    }
+
+    @Test
+    void sameTokensAsLexForResources() throws IOException, URISyntaxException {
+        for (int i = 0; i <= 17; i++) {
+            assertSameAsString(Path.of(MappedLexerTest.class.getResource("/" + i + "-test.txt").toURI()));
+        }
+    }
+
+    @Test
+    void mixesAsciiAndMultiByteBlocks() throws IOException {
+        StringBuilder source = new StringBuilder("class A\n");
+        for (int i = 0; i < 200; i++) {
+            source.append("  val x").append(i).append(" = ").append(i % 7 == 0 ? "\"𝚨­𐍁 é\"" : "'a'").append('\n');
+        }
+        Path path = Files.createTempFile("mapped", ".syspro");
+        try {
+            Files.writeString(path, source, StandardCharsets.UTF_8);
+            assertSameAsString(path);
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package syspro.lexer;
+
+import org.junit.jupiter.api.Test;
+import syspro.tm.lexer.IdentifierToken;
+import syspro.tm.lexer.Token;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class NameTableTest {
+
+    @Test
+    void internsNamesFromStringsAndSource() {
+        NameTable names = new NameTable();
+        int first = names.intern("value");
+        int supplementary = names.intern("𝚨𐍁");
+
+        assertEquals(first, names.intern(new String("value")));
+        assertEquals(supplementary, names.find("𝚨𐍁"));
+        assertEquals(-1, names.find("missing"));
+
+        LexerContext ctx = new LexerContext("x 𝚨𐍁 value");
+        assertEquals(supplementary, names.intern(ctx, 2, 4));
+        assertEquals(first, names.intern(ctx, 5, 10));
+        assertSame(names.name(first), names.name(names.intern(ctx, 5, 10)));
+    }
+
+    @Test
+    void growsPastInitialCapacity() {
+        NameTable names = new NameTable();
+        for (int i = 0; i < 10_000; i++) assertEquals(i, names.intern("name" + i));
+        for (int i = 0; i < 10_000; i++) assertEquals("name" + i, names.name(names.find("name" + i)));
+        assertEquals(10_000, names.size());
+    }
+
+    @Test
+    void recognizesEveryReservedWord() {
+        String[] words = {"this", "super", "is", "if", "else", "for", "in", "while", "def", "var", "val", "return",
+                "break", "continue", "abstract", "virtual", "override", "native", "class", "object", "interface",
+                "null", "true", "false"};
+        for (String word : words) {
+            int slot = KeywordTable.find(new LexerContext(word), 0, word.length());
+            assertTrue(slot >= 0, word);
+            assertEquals(word, KeywordTable.word(slot));
+        }
+        for (String word : new String[]{"thiss", "whilE", "i", "nul", "interfaces", "𝚨"}) {
+            assertEquals(-1, KeywordTable.find(new LexerContext(word), 0, word.codePointCount(0, word.length())), word);
+        }
+    }
+
+    @Test
+    void sameNameIsOneString() {
+        List<Token> tokens = new Lexer().lex("val count = count + count\n");
+        String first = ((IdentifierToken) tokens.get(1)).value;
+        assertSame(first, ((IdentifierToken) tokens.get(3)).value);
+        assertSame(first, ((IdentifierToken) tokens.get(5)).value);
+    }
+}
@@ -0,0 +1,70 @@
+package syspro.lexer;
+
+import org.junit.jupiter.api.Test;
+import syspro.tm.lexer.IdentifierToken;
+import syspro.tm.lexer.Token;
+import syspro.tm.parser.Diagnostic;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static syspro.lexer.LexerTestSupport.*;
+
+
+class ParallelLexerTest {
+
+    private static void assertSameTokens(String source, int chunkSize, ForkJoinPool pool) {
+        List<Diagnostic> expectedDiagnostics = new ArrayList<>();
+        List<Token> expected = new Lexer().lex(source, expectedDiagnostics::add);
+        List<Diagnostic> actualDiagnostics = new ArrayList<>();
+        List<Token> actual = new ParallelLexer(new Lexer(), pool, chunkSize).lex(source, actualDiagnostics::add);
+        assertEquals(expected.size(), actual.size(), "chunk size " + chunkSize);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(describe(expected.get(i)), describe(actual.get(i)), "chunk size " + chunkSize + ", token " + i);
+        }
+        assertEquals(describeDiagnostics(expectedDiagnostics), describeDiagnostics(actualDiagnostics), "chunk size " + chunkSize);
+    }
+
+    @Test
+    void sameTokensAsLexForResources() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int i = 0; i <= 17; i++) {
+                String source = resource(i);
+                for (int chunkSize : new int[]{1, 7, 64, 1 << 16}) {
+                    assertSameTokens(source, chunkSize, pool);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void relexesChunksStartingInsideLiteralsAndComments() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertSameTokens("class A\n  val s = \"first\nx = 1\ny\"\nclass B\n  def f(): Int32\n", 1, pool);
+            assertSameTokens("class A # comment\nclass B\n    val x = 1   \n\n\nclass C\n", 1, pool);
+            assertSameTokens("class A\n  val r = '\nb'\nc < d\r\ne > f\n", 1, pool);
+            // Diagnostics of a chunk that is relexed are the ones of the real state.
+            assertSameTokens("val s = \"a\nx = \"\\q\"\ny = 99999999999999999999\nz = '\\U+12'\n\"\n", 1, pool);
+            assertSameTokens("val s = \"a\n99999999999999999999 \" # \"\n    z = 1\n    w = 2\ny = 99999999999999999999\n", 1, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void namesComeFromTheGivenLexer() {
+        Lexer lexer = new Lexer();
+        List<Token> tokens = new ParallelLexer(lexer, ForkJoinPool.commonPool(), 1).lex("value\nvalue\nvalue\n");
+        String name = lexer.names.name(lexer.names.find("value"));
+        for (Token token : tokens) {
+            if (token instanceof IdentifierToken identifier) assertSame(name, identifier.value);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package syspro.lexer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static syspro.lexer.LexerTestSupport.*;
+
+
+class StreamingLexerTest {
+
+    @Test
+    void sameTokensAsLexForResources() throws IOException {
+        for (int i = 0; i <= 17; i++) {
+            String source = resource(i);
+            List<String> expected = describeAll(new Lexer().lex(source));
+            for (int window : new int[]{8, 13, 64, StreamingLexerContext.DEFAULT_WINDOW_SIZE}) {
+                assertEquals(expected, describeAll(new Lexer().lexStreaming(new StringReader(source), window)),
+                        i + "-test.txt with window " + window);
+            }
+        }
+    }
+
+    @Test
+    void lexemesLongerThanWindow() {
+        String source = """
+                class 𝚨𐍁
+                    def nameImplicit(): String
+                        return "𝚨­𐍁 a string that is much longer than the window \\U+1D6A8\\U+00AD\\U+10341"
+                    def letterExͯplicit(): Rune
+                        return '\\U+1D6A8'
+                    def aVeryLongIdentifierThatDoesNotFitIntoTheWindowAtAll(): Int64
+                        return 90000000000u64
+                \r
+                """;
+        List<String> expected = describeAll(new Lexer().lex(source));
+        assertEquals(expected, describeAll(new Lexer().lexStreaming(new StringReader(source), 8)));
+    }
+
+    @Test
+    void readsFromChannel() {
+        String source = "class A\n  val x = 'a' # comment\n  def f(): Int64\n    return x <= 1\n";
+        byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+        var channel = Channels.newChannel(new java.io.ByteArrayInputStream(bytes));
+        assertEquals(describeAll(new Lexer().lex(source)), describeAll(new Lexer().lexStreaming(channel)));
+    }
+}
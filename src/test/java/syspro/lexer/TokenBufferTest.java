@@ -0,0 +1,71 @@
+package syspro.lexer;
+
+import org.junit.jupiter.api.Test;
+import syspro.tm.lexer.IdentifierToken;
+import syspro.tm.lexer.Keyword;
+import syspro.tm.lexer.KeywordToken;
+import syspro.tm.lexer.Token;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static syspro.lexer.LexerTestSupport.*;
+
+
+class TokenBufferTest {
+
+    private static Keyword keyword(Token token) {
+        return switch (token) {
+            case KeywordToken k -> k.keyword;
+            case IdentifierToken i -> i.contextualKeyword;
+            default -> null;
+        };
+    }
+
+    @Test
+    void sameTokensAsLexForResources() throws IOException {
+        for (int i = 0; i <= 17; i++) {
+            String source = resource(i);
+            List<Token> expected = new Lexer().lex(source);
+            TokenBuffer buffer = new Lexer().lexToBuffer(source);
+
+            assertEquals(expected.size(), buffer.size(), i + "-test.txt");
+            for (int j = 0; j < expected.size(); j++) {
+                Token token = expected.get(j);
+                assertEquals(describe(token), describe(buffer.token(j)), i + "-test.txt, token " + j);
+                assertEquals(token.toSyntaxKind(), buffer.syntaxKind(j));
+                assertEquals(token.start, buffer.start(j));
+                assertEquals(token.end, buffer.end(j));
+                assertEquals(keyword(token), buffer.keyword(j));
+            }
+        }
+    }
+
+    // Names are interned when the tokens are added, so reading ids does not change the table.
+    @Test
+    void nameIdDoesNotIntern() {
+        TokenBuffer buffer = new Lexer().lexToBuffer("class A\n  val object = A\n");
+        NameTable names = buffer.names();
+        int size = names.size();
+        for (int i = 0; i < buffer.size(); i++) {
+            int id = buffer.nameId(i);
+            if (id >= 0) assertEquals(buffer.token(i).toString(), names.name(id));
+        }
+        assertEquals(size, names.size());
+        assertEquals(names.intern("class"), buffer.nameId(0));
+        assertEquals(buffer.nameId(1), buffer.nameId(buffer.size() - 2));
+    }
+
+    @Test
+    void listViewWritesThrough() {
+        TokenBuffer buffer = new Lexer().lexToBuffer("class A\n  val x = 1u64\n");
+        List<Token> tokens = buffer.asList();
+        Token replacement = new Lexer().lex("   abc").getFirst();
+
+        tokens.set(1, replacement);
+        assertEquals(describe(replacement), describe(buffer.token(1)));
+        assertEquals(replacement.toSyntaxKind(), buffer.syntaxKind(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.token(tokens.size()));
+    }
+}
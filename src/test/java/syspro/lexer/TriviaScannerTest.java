@@ -0,0 +1,42 @@
+package syspro.lexer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class TriviaScannerTest {
+
+    private static final int[] ALPHABET = {' ', '\t', '\r', '\n', '#', 'a', 'Z', '7', '_', '|', '@', '[', '`', '{', 0x3BB};
+
+    @Test
+    void matchesScalarScanner() {
+        TriviaScanner scalar = new TriviaScanner();
+        TriviaScanner selected = TriviaScanner.INSTANCE;
+        Random random = new Random(12);
+        for (int i = 0; i < 2000; i++) {
+            int[] codePoints = new int[random.nextInt(80)];
+            // Long runs of one kind, so that whole vectors match.
+            int kind = random.nextInt(4);
+            for (int j = 0; j < codePoints.length; j++) {
+                codePoints[j] = random.nextInt(8) == 0 ? ALPHABET[random.nextInt(ALPHABET.length)] : ALPHABET[kind];
+            }
+            int from = codePoints.length == 0 ? 0 : random.nextInt(codePoints.length);
+            int to = codePoints.length;
+            assertEquals(scalar.blankRunEnd(codePoints, from, to), selected.blankRunEnd(codePoints, from, to));
+            assertEquals(scalar.newlineIndex(codePoints, from, to), selected.newlineIndex(codePoints, from, to));
+            assertEquals(scalar.identifierRunEnd(codePoints, from, to), selected.identifierRunEnd(codePoints, from, to));
+            assertEquals(scalar.indentationWidth(codePoints, from, to), selected.indentationWidth(codePoints, from, to));
+        }
+    }
+
+    @Test
+    void asciiIdentifierPartsMatchLexer() {
+        for (int codePoint = 0; codePoint < 0x80; codePoint++) {
+            assertEquals(syspro.lexer.utils.UnicodePattern.isIdentifierContinue(codePoint),
+                    TriviaScanner.isAsciiIdentifierPart(codePoint), "code point " + codePoint);
+        }
+    }
+}
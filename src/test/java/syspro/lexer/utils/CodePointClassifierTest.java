@@ -0,0 +1,49 @@
+package syspro.lexer.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static syspro.lexer.utils.UnicodeReader.codePointToString;
+
+
+class CodePointClassifierTest {
+
+    // The regexes UnicodePattern used before the lookup tables.
+    private static final Pattern IDENTIFIER_START = Pattern.compile("[\\p{L}\\p{Nl}]|_");
+    private static final Pattern IDENTIFIER_CONTINUE = Pattern.compile("[\\p{L}\\p{Nl}|\\p{Nd}\\p{Mn}\\p{Mc}\\p{Cf}]");
+    private static final Pattern DIGIT = Pattern.compile("\\p{Nd}");
+    private static final Pattern IDENTIFIER = Pattern.compile("[\\p{L}\\p{Nl}|_-]+[\\p{L}\\p{Nl}|\\p{Nd}\\p{Mn}\\p{Mc}\\p{Cf}]*");
+    private static final Pattern NUMBER = Pattern.compile("(^\\p{Nd}+(i64|i32|u32|u64)?)$");
+
+    @Test
+    void matchesRegexForEveryCodePoint() {
+        for (int codePoint = 0; codePoint <= Character.MAX_CODE_POINT; codePoint++) {
+            String s = codePointToString(codePoint);
+            assertEquals(IDENTIFIER_START.matcher(s).matches(), CodePointClassifier.isIdentifierStart(codePoint),
+                    () -> "identifier start mismatch at " + Integer.toHexString(s.codePointAt(0)));
+            assertEquals(IDENTIFIER_CONTINUE.matcher(s).matches(), CodePointClassifier.isIdentifierContinue(codePoint),
+                    () -> "identifier continue mismatch at " + Integer.toHexString(s.codePointAt(0)));
+            assertEquals(DIGIT.matcher(s).matches(), CodePointClassifier.isDigit(codePoint),
+                    () -> "digit mismatch at " + Integer.toHexString(s.codePointAt(0)));
+        }
+    }
+
+    @Test
+    void outOfRangeCodePoints() {
+        assertEquals(0, CodePointClassifier.flags(-1));
+        assertEquals(0, CodePointClassifier.flags(Character.MAX_CODE_POINT + 1));
+    }
+
+    @Test
+    void identifierAndNumberMatchRegex() {
+        String[] samples = {"", "_", "-", "|", "a", "a1", "1a", "_a_", "a_b", "-a", "|a|", "𝚨𐍁", "nameExͯplicit",
+                "number﻿Value", "ab́", "٣٤", "12", "12i64", "12i32", "12u32", "12u64", "12u", "12i640", "i64",
+                "4774i", "٣u64", "1 2"};
+        for (String s : samples) {
+            assertEquals(IDENTIFIER.matcher(s).matches(), UnicodePattern.isIdentifier(s), s);
+            assertEquals(NUMBER.matcher(s).matches(), UnicodePattern.isNumber(s), s);
+        }
+    }
+}
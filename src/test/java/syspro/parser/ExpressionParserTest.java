@@ -0,0 +1,72 @@
+package syspro.parser;
+
+import org.junit.jupiter.api.Test;
+import syspro.tm.parser.SyntaxKind;
+import syspro.tm.parser.SyntaxNode;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class ExpressionParserTest {
+
+    // Kinds of the expression nodes under node, operands in parentheses, names and literals as their text.
+    private static String shape(SyntaxNode node) {
+        if (node == null) return "null";
+        if (node.kind() == SyntaxKind.IDENTIFIER_NAME_EXPRESSION || node.kind() == SyntaxKind.INTEGER_LITERAL_EXPRESSION)
+            return node.slot(0).token().toString();
+        if (node.slotCount() == 0) return node.token().toString();
+        StringBuilder sb = new StringBuilder(node.kind().toString()).append('(');
+        for (int i = 0; i < node.slotCount(); i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(shape(node.slot(i)));
+        }
+        return sb.append(')').toString();
+    }
+
+    private static SyntaxNode list(SyntaxNode node) {
+        for (int i = 0; i < node.slotCount(); i++) {
+            if (node.slot(i) != null && node.slot(i).kind() == SyntaxKind.LIST) return node.slot(i);
+        }
+        throw new IllegalStateException("No list in " + node.kind());
+    }
+
+    // The expression of each statement in the body of the only function.
+    private static String[] statements(String... lines) {
+        StringBuilder source = new StringBuilder("class A\n    def f()\n");
+        for (String line : lines) source.append("        ").append(line).append('\n');
+        SyntaxNode type = new Parser().parse(source.toString()).root().slot(0).slot(0);
+        SyntaxNode body = list(list(type).slot(0));
+        String[] shapes = new String[body.slotCount()];
+        for (int i = 0; i < shapes.length; i++) {
+            SyntaxNode statement = body.slot(i);
+            if (statement.kind() == SyntaxKind.ASSIGNMENT_STATEMENT) shapes[i] = shape(statement);
+            else shapes[i] = shape(statement.slot(statement.slotCount() - 1));
+        }
+        return shapes;
+    }
+
+    @Test
+    void precedenceAndAssociativity() {
+        String[] shapes = statements(
+                "return a + b * c - d",
+                "return a < b == c",
+                "return a | b ^ c & d << 1",
+                "x = y = a % 2");
+        assertEquals("SUBTRACT_EXPRESSION(ADD_EXPRESSION(a + MULTIPLY_EXPRESSION(b * c)) - d)", shapes[0]);
+        assertEquals("EQUALS_EXPRESSION(LESS_THAN_EXPRESSION(a < b) == c)", shapes[1]);
+        assertEquals("BITWISE_OR_EXPRESSION(a | BITWISE_EXCLUSIVE_OR_EXPRESSION(b ^ BITWISE_AND_EXPRESSION(c & BITWISE_LEFT_SHIFT_EXPRESSION(d << 1))))", shapes[2]);
+        assertEquals("ASSIGNMENT_STATEMENT(x = ASSIGNMENT_STATEMENT(y = MODULO_EXPRESSION(a % 2)))", shapes[3]);
+    }
+
+    @Test
+    void unaryOperandIsWholeExpression() {
+        assertEquals("UNARY_MINUS_EXPRESSION(- ADD_EXPRESSION(a + b))", statements("return -a + b")[0]);
+    }
+
+    @Test
+    void isExpression() {
+        String[] shapes = statements("return x is Foo", "return x is Foo y");
+        assertEquals("IS_EXPRESSION(x is Foo)", shapes[0]);
+        assertEquals("IS_EXPRESSION(x is Foo y)", shapes[1]);
+    }
+}
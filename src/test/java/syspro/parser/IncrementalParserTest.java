@@ -0,0 +1,61 @@
+package syspro.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static syspro.parser.ParserTestSupport.*;
+
+
+class IncrementalParserTest {
+
+    private static final String[] INSERTIONS = {
+            "\n", "    ", "x", "class C\n", "\n    val y = 2", "def g()\n        return 1\n", "(", ")", "\"", "#", ":", "<",
+            "\nobject O\n    var z: Int64\n",
+    };
+
+    private static SysproParseResult edit(Parser parser, SysproParseResult result, String text, int offset, int removed, String inserted) {
+        SysproParseResult reparsed = parser.reparse(result, offset, removed, inserted);
+        String edited = text.substring(0, offset) + inserted + text.substring(offset + removed);
+        assertEquals(edited, reparsed.text);
+        assertEquals(describe((SysproParseResult) new Parser().parse(edited)), describe(reparsed),
+                () -> "after replacing " + removed + " at " + offset + " with '" + inserted + "' in:\n" + text);
+        return reparsed;
+    }
+
+    @Test
+    void sameAsFullParse() {
+        Parser parser = new Parser();
+        String text = "class A\n    val x = 1\n\nclass B\n    def f()\n        return 2\n# c\nobject C\n    var y = 3\n";
+        SysproParseResult result = (SysproParseResult) parser.parse(text);
+        result = edit(parser, result, text, 47, 1, "42");
+        text = result.text;
+        result = edit(parser, result, text, 8, 13, "");
+        text = result.text;
+        result = edit(parser, result, text, 0, 0, "    ");
+        text = result.text;
+        edit(parser, result, text, text.length(), 0, "class D\n    val z = 4\n");
+    }
+
+    // Random edits in a row on the test sources, every result compared to parsing the whole text.
+    // The sources are ASCII, so offsets in chars are offsets in code points.
+    @Test
+    void randomEditsMatchFullParse() throws IOException {
+        Random random = new Random(19);
+        for (int i = 0; i <= 17; i++) {
+            String text = resource(i);
+            if (!text.chars().allMatch(c -> c < 128)) continue;
+            Parser parser = new Parser();
+            SysproParseResult result = (SysproParseResult) parser.parse(text);
+            for (int round = 0; round < 40; round++) {
+                int offset = random.nextInt(text.length() + 1);
+                int removed = random.nextInt(4) == 0 ? random.nextInt(Math.min(30, text.length() - offset) + 1) : 0;
+                String inserted = random.nextInt(3) == 0 ? "" : INSERTIONS[random.nextInt(INSERTIONS.length)];
+                result = edit(parser, result, text, offset, removed, inserted);
+                text = result.text;
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package syspro.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static syspro.parser.ParserTestSupport.*;
+
+
+class ParallelParserTest {
+
+    private static void assertSameResult(String source, int chunkSize, ForkJoinPool pool) {
+        SysproParseResult expected = (SysproParseResult) new Parser().parse(source);
+        SysproParseResult actual = (SysproParseResult) new ParallelParser(new Parser(), pool, chunkSize).parse(source);
+        assertArrayEquals(expected.definitionRanges, actual.definitionRanges, "chunk size " + chunkSize);
+        assertEquals(describe(expected), describe(actual), "chunk size " + chunkSize);
+    }
+
+    @Test
+    void sameResultAsParse() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            StringBuilder all = new StringBuilder();
+            for (int i = 0; i <= 17; i++) {
+                String source = resource(i);
+                all.append(source).append('\n');
+                for (int chunkSize : new int[]{1, 7, 64, ParallelParser.DEFAULT_CHUNK_SIZE}) {
+                    assertSameResult(source, chunkSize, pool);
+                }
+            }
+            for (int chunkSize : new int[]{1, 16, 256}) assertSameResult(all.toString(), chunkSize, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Error recovery of the first class skips to the next indentation token, past the start of the second one,
+    // so the chunk parsed from there is dropped and B is not a definition.
+    @Test
+    void parsesOnWhereRecoveryEnds() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertSameResult("class A<\nclass B\n    val y = 2\nclass C\n    val z = 3\n", 1, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package syspro.parser;
+
+import syspro.tm.lexer.Token;
+import syspro.tm.parser.Diagnostic;
+import syspro.tm.parser.SyntaxNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+// Shared by the parser tests: trees, results and diagnostics as strings that assertEquals can compare,
+// and the test sources.
+final class ParserTestSupport {
+
+    private ParserTestSupport() {
+    }
+
+    // One line per node in preorder: kind, slot count and the token of a leaf with its position and trivia.
+    static String describe(SyntaxNode node) {
+        StringBuilder sb = new StringBuilder();
+        describe(node, sb);
+        return sb.toString();
+    }
+
+    private static void describe(SyntaxNode node, StringBuilder sb) {
+        if (node == null) {
+            sb.append("null\n");
+            return;
+        }
+        Token t = node.token();
+        sb.append(node.kind()).append(' ').append(node.slotCount());
+        if (t != null) sb.append(String.format(" %s %s %d %d %d %d", t.getClass().getSimpleName(), t,
+                t.start, t.end, t.leadingTriviaLength, t.trailingTriviaLength));
+        sb.append('\n');
+        for (int i = 0; i < node.slotCount(); i++) describe(node.slot(i), sb);
+    }
+
+    // The tree, then the invalid ranges and the diagnostics.
+    static String describe(SysproParseResult result) {
+        StringBuilder sb = new StringBuilder();
+        describe(result.root(), sb);
+        sb.append(result.invalidRanges()).append('\n');
+        for (Diagnostic d : result.diagnostics()) sb.append(describe(d)).append('\n');
+        return sb.toString();
+    }
+
+    // Error codes have no equals(), so diagnostics are compared by location and name.
+    static String describe(Diagnostic d) {
+        return d.location() + " " + d.info().errorCode().name();
+    }
+
+    static String resource(int i) throws IOException {
+        try (InputStream in = ParserTestSupport.class.getResourceAsStream("/" + i + "-test.txt")) {
+            assertNotNull(in);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package syspro.parser;
+
+import org.junit.jupiter.api.Test;
+import syspro.lexer.Lexer;
+import syspro.tm.lexer.Token;
+import syspro.utils.Logger;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class RecoveryFuzzTest {
+
+    private static final String[] WORDS = {"def", "val", "var", "x", "y", "T", "if", "else", "while", "for", "in",
+            "return", "break", "this", "super", "null", "true", "1", "\"s\"", "'c'", "(", ")", "[", "]", "<", ">", "<=",
+            "==", "=", "+", "-", "*", "/", "&", "|", "~", "!", "&&", ".", ",", ":", "?", "is", "<:", "abstract", "@",
+            "\n", "\n    ", "\n        ", "\n            ", "\n  "};
+
+    // Random words in the body of a function, so that most of them go through the recovery of statements.
+    private static String soup(int words, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder("class A\n    def f(): Int64\n        ");
+        for (int i = 0; i < words; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            sb.append(word).append(word.startsWith("\n") ? "        " : " ");
+        }
+        return sb.append('\n').toString();
+    }
+
+    private static String repeated(String pattern, int times) {
+        return "class A\n    def f(): Int64\n        " + pattern.repeat(times) + "\n";
+    }
+
+    // Token reads per token of a parse, which is what the time of a parse grows with.
+    private static double readsPerToken(String source) {
+        List<Token> tokens = new Lexer().lex(source);
+        long[] reads = {0};
+        List<Token> counted = new AbstractList<>() {
+            @Override
+            public Token get(int index) {
+                reads[0]++;
+                return tokens.get(index);
+            }
+
+            @Override
+            public Token set(int index, Token token) {
+                return tokens.set(index, token);
+            }
+
+            @Override
+            public int size() {
+                return tokens.size();
+            }
+        };
+        ParserContext ctx = new ParserContext(counted, new Logger(Logger.Stage.SYNTAX), source);
+        new Parser().parse(ctx);
+        assertTrue(ctx.getDiagnostics().size() <= ParserContext.MAX_DEFINITION_DIAGNOSTICS);
+        return (double) reads[0] / tokens.size();
+    }
+
+    private static void assertLinear(String small, String large) {
+        double expected = readsPerToken(small);
+        double actual = readsPerToken(large);
+        assertTrue(actual < 2 * expected + 8, actual + " token reads per token, " + expected + " on a smaller input");
+    }
+
+    @Test
+    void randomTokens() {
+        for (long seed = 0; seed < 20; seed++) assertLinear(soup(500, seed), soup(8000, seed));
+    }
+
+    // Every '<' here looked like the start of type arguments up to the end of the line once.
+    @Test
+    void comparisonChains() {
+        for (String pattern : new String[]{"x<", "x < y < ", "x<y, ", "x<y<z>"}) {
+            assertLinear(repeated(pattern, 200), repeated(pattern, 3200));
+        }
+        assertDoesNotThrow(() -> new Parser().parse(repeated("x<", 20000)));
+    }
+
+    @Test
+    void diagnosticsAreCapped() {
+        SysproParseResult result = (SysproParseResult) new Parser().parse(repeated("val ", 1000) + repeated("val ", 10));
+        assertEquals(ParserContext.MAX_DEFINITION_DIAGNOSTICS + 10, result.invalidRanges().size());
+        assertEquals(result.invalidRanges().size(), result.diagnostics().size());
+    }
+}
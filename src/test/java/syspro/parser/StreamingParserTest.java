@@ -0,0 +1,95 @@
+package syspro.parser;
+
+import org.junit.jupiter.api.Test;
+import syspro.tm.parser.Diagnostic;
+import syspro.tm.parser.SyntaxNode;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static syspro.parser.ParserTestSupport.*;
+
+
+class StreamingParserTest {
+
+    private static void assertSameResult(String source) {
+        SyntaxNode root = new Parser().parse(source).root();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < root.slot(0).slotCount(); i++) expected.append(describe(root.slot(0).slot(i)));
+        List<String> expectedDiagnostics = new ArrayList<>();
+        new Parser().parse(source).diagnostics().forEach(d -> expectedDiagnostics.add(describe(d)));
+
+        StringBuilder actual = new StringBuilder();
+        List<String> actualDiagnostics = new ArrayList<>();
+        new Parser().parseStreaming(new StringReader(source), new Parser.DefinitionListener() {
+            @Override
+            public void definition(SyntaxNode definition, List<Diagnostic> diagnostics) {
+                actual.append(describe(definition));
+                diagnostics.forEach(d -> actualDiagnostics.add(describe(d)));
+            }
+
+            @Override
+            public void end(List<Diagnostic> diagnostics) {
+                diagnostics.forEach(d -> actualDiagnostics.add(describe(d)));
+            }
+        });
+        assertEquals(expected.toString(), actual.toString());
+        // parse() puts the diagnostics of the lexer first, the stream puts them next to the definition they are in.
+        expectedDiagnostics.sort(null);
+        actualDiagnostics.sort(null);
+        assertEquals(expectedDiagnostics, actualDiagnostics);
+    }
+
+    @Test
+    void sameResultAsParse() throws IOException {
+        StringBuilder all = new StringBuilder();
+        for (int i = 0; i <= 17; i++) {
+            String source = resource(i);
+            all.append(source).append('\n');
+            assertSameResult(source);
+        }
+        assertSameResult(all.toString());
+        assertSameResult("class A<\nclass B\n    val y = 2\n  val s = \"\\U+FFFFFFFF\"\nclass C\n    val z = 3\n");
+    }
+
+    // The DEDENT at the end of A starts after the class that follows it, whose start includes the blank line.
+    // Forgetting the newlines before the DEDENT put the error in class on line 3.
+    @Test
+    void lineNumbersAfterDedent() {
+        assertSameResult("class A\n  def f()\n\nclass");
+        assertSameResult("class A\n  def f()\n\n\nclass B\n    val x = \nclass");
+    }
+
+    // A definition is handed out long before the end of a source that is generated while it is read.
+    @Test
+    void emitsDefinitionsWhileReading() {
+        int[] charsRead = new int[1];
+        Reader reader = new Reader() {
+            private final String definition = "class A\n    val x = 1\n";
+
+            @Override
+            public int read(char[] chars, int offset, int length) {
+                length = Math.min(length, (1 << 21) - charsRead[0]);
+                if (length == 0) return -1;
+                for (int i = 0; i < length; i++) chars[offset + i] = definition.charAt((charsRead[0] + i) % definition.length());
+                charsRead[0] += length;
+                return length;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        List<Integer> readAt = new ArrayList<>();
+        new Parser().parseStreaming(reader, (definition, diagnostics) -> {
+            if (readAt.size() < 2) readAt.add(charsRead[0]);
+            else readAt.set(1, charsRead[0]);
+        });
+        assertTrue(readAt.getFirst() < 1 << 19, "read " + readAt.getFirst() + " chars before the first definition");
+        assertEquals(1 << 21, (int) readAt.get(1));
+    }
+}
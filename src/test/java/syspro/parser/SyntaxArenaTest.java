@@ -0,0 +1,56 @@
+package syspro.parser;
+
+import org.junit.jupiter.api.Test;
+import syspro.languageServer.symbols.TypeSymbol;
+import syspro.lexer.Lexer;
+import syspro.parser.ast.ASTNode;
+import syspro.parser.ast.ArenaNode;
+import syspro.parser.ast.SyntaxArena;
+import syspro.tm.parser.SyntaxNode;
+import syspro.utils.Logger;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static syspro.parser.ParserTestSupport.*;
+import static syspro.tm.parser.SyntaxKind.*;
+
+
+class SyntaxArenaTest {
+
+    @Test
+    void sameTreeAsASTNodes() throws IOException {
+        for (int i = 0; i <= 17; i++) {
+            String text = resource(i);
+            Parser parser = new Parser();
+            ParserContext ctx = new ParserContext(new Lexer().lexToBuffer(text), new Logger(Logger.Stage.SYNTAX), text);
+            List<SyntaxNode> definitions = parser.parse(ctx);
+            ASTNode tree = new ASTNode(SOURCE_TEXT, null, new ASTNode(LIST, null, definitions));
+
+            SyntaxNode root = new Parser().parse(text).root();
+            assertInstanceOf(ArenaNode.class, root);
+            assertEquals(describe(tree), describe(root), "resource " + i);
+        }
+    }
+
+    @Test
+    void symbolsAreKeptByIndex() {
+        SysproParseResult result = (SysproParseResult) new Parser().parse("class A\n    val x = 1\n");
+        ArenaNode definition = (ArenaNode) result.root().slot(0).slot(0);
+        SyntaxArena arena = definition.arena;
+        assertEquals(TYPE_DEFINITION, definition.kind());
+        // The definition comes first, then its subtree in pre-order; the list and the root are added last.
+        assertEquals(0, definition.index);
+        assertEquals(arena.size() - 1, ((ArenaNode) result.root()).index);
+
+        TypeSymbol symbol = new TypeSymbol("A", definition);
+        definition.updateSymbol(symbol);
+        // A new cursor to the same node sees it too.
+        assertSame(symbol, ((ArenaNode) result.root().slot(0).slot(0)).symbol());
+        assertEquals(definition, arena.node(0));
+        assertNull(definition.slot(1).symbol());
+        assertEquals("A", definition.slot(1).token().toString());
+        assertEquals(definition.slot(1).token().start, arena.token(arena.slot(0, 1)).start);
+    }
+}
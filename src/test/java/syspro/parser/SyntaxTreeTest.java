@@ -0,0 +1,64 @@
+package syspro.parser;
+
+import org.junit.jupiter.api.Test;
+import syspro.parser.ast.RedNode;
+import syspro.tm.parser.SyntaxKind;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static syspro.parser.ParserTestSupport.*;
+
+
+class SyntaxTreeTest {
+
+    @Test
+    void sameTreeAsParser() throws Exception {
+        Parser parser = new Parser();
+        List<SysproParseResult> results = new ArrayList<>();
+        for (int i = 0; i <= 17; i++) results.add((SysproParseResult) parser.parse(resource(i)));
+
+        // The snapshots are read from several threads at once, while they share green nodes.
+        try (ExecutorService pool = Executors.newFixedThreadPool(4)) {
+            List<Future<String>> trees = new ArrayList<>();
+            for (SysproParseResult result : results) trees.add(pool.submit(() -> describe(result.tree())));
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(describe(results.get(i).root()), trees.get(i).get(), "resource " + i);
+            }
+        }
+    }
+
+    @Test
+    void sharesEqualSubtrees() {
+        Parser parser = new Parser();
+        SysproParseResult result = (SysproParseResult) parser.parse("class A\n    val x = 1\n    val y = 1\n    val z = 2\n");
+        RedNode members = result.tree().slot(0).slot(0).slot(7);
+        RedNode first = members.slot(0);
+        RedNode second = members.slot(1);
+        assertEquals(SyntaxKind.VARIABLE_DEFINITION, first.kind());
+
+        RedNode one = first.slot(5);
+        RedNode otherOne = second.slot(5);
+        assertSame(one.green, otherOne.green);
+        assertEquals(19, one.slot(0).token().start);
+        assertEquals(33, otherOne.slot(0).token().start);
+        assertSame(first, one.parent);
+        assertSame(one, first.slot(5));
+        assertEquals(first.offset + first.green.slotOffset(5), one.offset);
+
+        // "val" has the newline and four blanks as leading trivia, "1" is the last code point before the next newline.
+        assertEquals(7, first.fullSpan().start);
+        assertEquals(12, first.span().start);
+        assertEquals(21, first.span().end());
+
+        // Versions of a document share green nodes, separate parses do not share anything.
+        SysproParseResult edited = parser.reparse(result, 16, 1, "w");
+        assertSame(one.green, edited.tree().slot(0).slot(0).slot(7).slot(1).slot(5).green);
+        SysproParseResult again = (SysproParseResult) parser.parse("class B\n    val w = 1\n    val v = 3\n");
+        assertNotSame(one.green, again.tree().slot(0).slot(0).slot(7).slot(0).slot(5).green);
+    }
+}
@@ -0,0 +1,63 @@
+package syspro.parser;
+
+import org.junit.jupiter.api.Test;
+import syspro.languageServer.LanguageServer;
+import syspro.languageServer.semantic.SemanticModel;
+import syspro.parser.ast.ArenaNode;
+import syspro.parser.ast.FunctionDefinitionNode;
+import syspro.parser.ast.IfStatementNode;
+import syspro.parser.ast.TypeDefinitionNode;
+import syspro.parser.ast.WhileStatementNode;
+import syspro.tm.symbols.FunctionSymbol;
+import syspro.tm.symbols.VariableSymbol;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static syspro.tm.parser.SyntaxKind.*;
+
+
+class TypedNodesTest {
+
+    private static final String SOURCE = """
+            class A<T> <: B
+                def f(x: T): Int64
+                    if x
+                        val y = 1
+                    while x
+                        val z = 2
+                    return 0
+            """;
+
+    @Test
+    void accessorsNameTheSlots() {
+        ArenaNode root = (ArenaNode) new Parser().parse(SOURCE).root();
+        TypeDefinitionNode type = (TypeDefinitionNode) root.slot(0).slot(0);
+        assertEquals("A", type.name().token().toString());
+        assertEquals(TYPE_PARAMETER_DEFINITION, type.typeParameters().slot(0).kind());
+        assertEquals(type.slot(5), type.bounds());
+        assertEquals(IDENTIFIER_NAME_EXPRESSION, type.bounds().types().slot(0).kind());
+
+        FunctionDefinitionNode function = (FunctionDefinitionNode) type.members().slot(0);
+        assertEquals("f", function.name().token().toString());
+        assertEquals(PARAMETER_DEFINITION, function.parameters().slot(0).kind());
+        assertEquals(function.slot(9), function.body());
+
+        IfStatementNode ifStatement = (IfStatementNode) function.body().slot(0);
+        assertEquals(ifStatement.slot(3), ifStatement.thenBlock());
+        assertNull(ifStatement.elseBlock());
+        WhileStatementNode whileStatement = (WhileStatementNode) function.body().slot(1);
+        assertEquals(IDENTIFIER_NAME_EXPRESSION, whileStatement.condition().kind());
+        assertEquals(LIST, whileStatement.body().kind());
+    }
+
+    // The block of an if without else and the body of a while used to be skipped by the analysis.
+    @Test
+    void blocksAreAnalyzed() {
+        SemanticModel model = (SemanticModel) new LanguageServer().buildModel(SOURCE);
+        TypeDefinitionNode type = (TypeDefinitionNode) model.root.slot(0).slot(0);
+        FunctionSymbol function = assertInstanceOf(FunctionSymbol.class, type.members().slot(0).symbol());
+        List<String> locals = function.locals().stream().map(VariableSymbol::name).toList();
+        assertEquals(List.of("y", "z"), locals);
+    }
+}
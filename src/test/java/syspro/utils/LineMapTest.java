@@ -0,0 +1,68 @@
+package syspro.utils;
+
+import org.junit.jupiter.api.Test;
+import syspro.parser.Parser;
+import syspro.tm.parser.Diagnostic;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class LineMapTest {
+
+    @Test
+    void linesAndColumns() {
+        LineMap lines = new LineMap("ab\n\ncd\n");
+        assertEquals(4, lines.lineCount());
+        assertEquals(7, lines.length());
+        assertEquals(1, lines.line(0));
+        assertEquals(1, lines.line(2));
+        assertEquals(3, lines.column(2));
+        assertEquals(2, lines.line(3));
+        assertEquals(3, lines.line(4));
+        assertEquals(2, lines.column(5));
+        assertEquals(4, lines.line(7));
+        assertEquals(4, lines.lineStart(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> lines.line(8));
+        assertThrows(IndexOutOfBoundsException.class, () -> lines.lineStart(5));
+    }
+
+    @Test
+    void utf16() {
+        String text = "a𝚨b\n𐍁𐍁c";
+        LineMap lines = new LineMap(text);
+        assertEquals(text.codePointCount(0, text.length()), lines.length());
+        for (int offset = 0; offset <= lines.length(); offset++) {
+            int index = text.offsetByCodePoints(0, offset);
+            assertEquals(index, lines.utf16Index(offset));
+            assertEquals(offset, lines.offset(index));
+        }
+        // The second half of a surrogate pair is a part of the code point it ends.
+        assertEquals(1, lines.offset(2));
+        assertEquals(5, lines.offset(7));
+        assertEquals(2, lines.line(5));
+        assertEquals(3, lines.column(6));
+        assertEquals(5, lines.utf16Column(6));
+        assertEquals(4, lines.utf16Column(2));
+    }
+
+    @Test
+    void unpairedSurrogatesAreCodePoints() {
+        LineMap lines = new LineMap("\uD835a\n\uDEA8");
+        assertEquals(4, lines.length());
+        assertEquals(3, lines.utf16Index(3));
+        assertEquals(2, lines.line(3));
+    }
+
+    // Token positions are in code points, so the lines named by the parser do not drift after code points
+    // outside the BMP.
+    @Test
+    void parserMessagesNameTheLine() {
+        String text = "class A\n    val 𝚨𝚨𝚨𝚨𝚨𝚨𝚨𝚨𝚨𝚨𝚨𝚨 = 1\n    val = 2\n";
+        List<Diagnostic> diagnostics = List.copyOf(new Parser().parse(text).diagnostics());
+        assertEquals(1, diagnostics.size());
+        String message = diagnostics.getFirst().info().errorCode().name();
+        assertTrue(message.endsWith("In line 3."), message);
+    }
+}
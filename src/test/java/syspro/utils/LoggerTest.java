@@ -0,0 +1,105 @@
+package syspro.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import syspro.parser.Parser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class LoggerTest {
+
+    private final List<String> lines = new CopyOnWriteArrayList<>();
+    private final Logger.LogLevel initial = Logger.level();
+
+    @AfterEach
+    void restore() {
+        Logger.configure(initial, null);
+    }
+
+    @Test
+    void offDoesNotFormat() {
+        Logger.configure(Logger.LogLevel.OFF, Logger.Sink.of(lines::add));
+        Logger logger = new Logger(Logger.Stage.SYNTAX);
+        logger.info(() -> fail("formatted while off"));
+        logger.error(() -> fail("formatted while off"));
+        logger.printTree(null, true);
+        new Parser().parse("class A\n    val x = 1 + ;\n");
+        Logger.flush();
+        assertTrue(lines.isEmpty());
+    }
+
+    @Test
+    void filtersByLevel() {
+        Logger.configure(Logger.LogLevel.WARNING, Logger.Sink.of(lines::add));
+        Logger logger = new Logger(Logger.Stage.SYNTAX);
+        logger.debug("debug");
+        logger.info(() -> fail("below the threshold"));
+        logger.warn("warn");
+        logger.error(() -> "error");
+        Logger.flush();
+        assertEquals(List.of("--WARNING --SYNTAX   warn\n", "--ERROR --SYNTAX   error\n"), lines);
+    }
+
+    @Test
+    void parserLogsThroughSink() {
+        Logger.configure(Logger.LogLevel.ALL, Logger.Sink.of(lines::add));
+        new Parser().parse("class A\n");
+        Logger.flush();
+        assertTrue(lines.stream().anyMatch(line -> line.contains("Token added")));
+        assertTrue(lines.stream().anyMatch(line -> line.contains("-------------AST----------")));
+    }
+
+    @Test
+    void parsesLevelLeniently() {
+        assertEquals(Logger.LogLevel.INFO, Logger.parseLevel("INFO"));
+        assertEquals(Logger.LogLevel.WARNING, Logger.parseLevel(" warning "));
+        assertEquals(Logger.LogLevel.OFF, Logger.parseLevel("INFOO"));
+        assertEquals(Logger.LogLevel.OFF, Logger.parseLevel(""));
+        assertEquals(Logger.LogLevel.OFF, Logger.parseLevel(null));
+    }
+
+    @Test
+    void appenderClosesFileSink() throws IOException {
+        Path file = Files.createTempFile("syspro", ".log");
+        try {
+            Logger.Sink sink = Logger.Sink.file(file);
+            try (LogAppender appender = new LogAppender(sink)) {
+                appender.append("a\n");
+            }
+            assertEquals("a\n", Files.readString(file));
+            // Reopened after close, without losing the lines before.
+            try (LogAppender appender = new LogAppender(sink)) {
+                appender.append("b\n");
+            }
+            assertEquals("a\nb\n", Files.readString(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void appenderDropsWhenFull() {
+        Object gate = new Object();
+        try (LogAppender appender = new LogAppender(line -> {
+            synchronized (gate) {
+                lines.add(line);
+            }
+        }, 2)) {
+            synchronized (gate) {
+                // The writer takes at most one line and then waits for the gate, so the buffer fills up.
+                for (int i = 0; i < 10; i++) appender.append("line " + i);
+            }
+            appender.flush();
+            assertTrue(appender.dropped() > 0);
+            assertEquals(10, lines.size() + appender.dropped());
+            assertEquals("line 0", lines.getFirst());
+        }
+    }
+}
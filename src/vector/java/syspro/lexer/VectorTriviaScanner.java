@@ -0,0 +1,69 @@
+package syspro.lexer;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+import static jdk.incubator.vector.VectorOperators.*;
+
+// TriviaScanner that compares a whole vector of code points at a time. The tail shorter than a vector goes
+// through the scalar code. Only loaded by TriviaScanner.select() when jdk.incubator.vector is in the boot layer.
+final class VectorTriviaScanner extends TriviaScanner {
+
+    // Most runs are shorter than 16 code points, wider vectors than 256 bits only add work.
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED.vectorBitSize() > 256
+            ? IntVector.SPECIES_256 : IntVector.SPECIES_PREFERRED;
+
+    @Override
+    int blankRunEnd(int[] codePoints, int from, int to) {
+        int pos = from;
+        for (int bound = from + SPECIES.loopBound(to - from); pos < bound; pos += SPECIES.length()) {
+            IntVector v = IntVector.fromArray(SPECIES, codePoints, pos);
+            VectorMask<Integer> other = v.compare(NE, ' ').and(v.compare(NE, '\t')).and(v.compare(NE, '\r'));
+            if (other.anyTrue()) return pos + other.firstTrue();
+        }
+        return super.blankRunEnd(codePoints, pos, to);
+    }
+
+    @Override
+    int newlineIndex(int[] codePoints, int from, int to) {
+        int pos = from;
+        for (int bound = from + SPECIES.loopBound(to - from); pos < bound; pos += SPECIES.length()) {
+            VectorMask<Integer> newline = IntVector.fromArray(SPECIES, codePoints, pos).compare(EQ, '\n');
+            if (newline.anyTrue()) return pos + newline.firstTrue();
+        }
+        return super.newlineIndex(codePoints, pos, to);
+    }
+
+    @Override
+    int identifierRunEnd(int[] codePoints, int from, int to) {
+        int pos = from;
+        for (int bound = from + SPECIES.loopBound(to - from); pos < bound; pos += SPECIES.length()) {
+            IntVector v = IntVector.fromArray(SPECIES, codePoints, pos);
+            IntVector lower = v.or(0x20);
+            VectorMask<Integer> part = lower.compare(GE, 'a').and(lower.compare(LE, 'z'))
+                    .or(v.compare(GE, '0').and(v.compare(LE, '9')))
+                    .or(v.compare(EQ, '|'));
+            if (!part.allTrue()) return pos + part.not().firstTrue();
+        }
+        return super.identifierRunEnd(codePoints, pos, to);
+    }
+
+    @Override
+    int indentationWidth(int[] codePoints, int from, int to) {
+        int width = 0;
+        int pos = from;
+        for (int bound = from + SPECIES.loopBound(to - from); pos < bound; pos += SPECIES.length()) {
+            IntVector v = IntVector.fromArray(SPECIES, codePoints, pos);
+            VectorMask<Integer> spaces = v.compare(EQ, ' ');
+            VectorMask<Integer> tabs = v.compare(EQ, '\t');
+            VectorMask<Integer> blank = spaces.or(tabs);
+            if (!blank.allTrue()) {
+                VectorMask<Integer> run = SPECIES.indexInRange(0, blank.not().firstTrue());
+                return width + spaces.and(run).trueCount() + 2 * tabs.and(run).trueCount();
+            }
+            width += spaces.trueCount() + 2 * tabs.trueCount();
+        }
+        return width + super.indentationWidth(codePoints, pos, to);
+    }
+}